@@ -0,0 +1,119 @@
+package com.example.util;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD case mappings on ASCII text, one vector of characters at a time. Loaded by
+ * {@link FormatterEngine} only when the {@code jdk.incubator.vector} module is present. It lives
+ * in {@code src-vector}, a source root of its own compiled against {@code src} with
+ * {@code --add-modules jdk.incubator.vector}, so the rest of the tree builds without the module.
+ */
+final class VectorCase implements FormatterEngine.BulkCase {
+
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+    private static final long LANE_BITS = LANES == 64 ? -1L : (1L << LANES) - 1;
+
+    private static final short NON_ASCII = (short) 0xFF80;
+    private static final short CASE_BIT = 0x20;
+
+    @Override
+    public boolean toLowerCase(char[] chars, int length) {
+        return flipCase(chars, length, 'A', 'Z');
+    }
+
+    @Override
+    public boolean toUpperCase(char[] chars, int length) {
+        return flipCase(chars, length, 'a', 'z');
+    }
+
+    // Flip the case of the letters between first and last, giving up on non-ASCII input
+    private static boolean flipCase(char[] chars, int length, char first, char last) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += LANES) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            if (v.lanewise(VectorOperators.AND, NON_ASCII).compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                return false;
+            }
+            VectorMask<Short> letters = v.compare(VectorOperators.GE, (short) first)
+                    .and(v.compare(VectorOperators.LE, (short) last));
+            v.lanewise(VectorOperators.XOR, CASE_BIT, letters).intoCharArray(chars, i);
+        }
+        for (; i < length; i++) {
+            char c = chars[i];
+            if (c >= 0x80) {
+                return false;
+            }
+            if (c >= first && c <= last) {
+                chars[i] = (char) (c ^ CASE_BIT);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vectors made only of ASCII letters and special characters are mapped in one go: a letter is
+     * uppercased exactly when the character before it is not a letter. Any other vector, and the
+     * tail, goes through the same rules one character at a time.
+     */
+    @Override
+    public void capitalizeLetters(char[] chars, int length, CharTable specialCharacters) {
+        boolean capitalizeNext = true;
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += LANES) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            if (v.lanewise(VectorOperators.AND, NON_ASCII).compare(VectorOperators.NE, (short) 0).anyTrue()) {
+                capitalizeNext = capitalizeLetters(chars, i, i + LANES, specialCharacters, capitalizeNext);
+                continue;
+            }
+            ShortVector folded = v.lanewise(VectorOperators.OR, CASE_BIT);
+            VectorMask<Short> letters = folded.compare(VectorOperators.GE, (short) 'a')
+                    .and(folded.compare(VectorOperators.LE, (short) 'z'));
+            long nonLetters = ~letters.toLong() & LANE_BITS;
+            if (!allSpecial(chars, i, nonLetters, specialCharacters)) {
+                capitalizeNext = capitalizeLetters(chars, i, i + LANES, specialCharacters, capitalizeNext);
+                continue;
+            }
+
+            long capitalize = (nonLetters << 1 | (capitalizeNext ? 1 : 0)) & letters.toLong();
+            folded.blend(v, letters.not())
+                    .lanewise(VectorOperators.AND, (short) ~CASE_BIT, VectorMask.fromLong(SPECIES, capitalize))
+                    .intoCharArray(chars, i);
+            capitalizeNext = (nonLetters >>> (LANES - 1) & 1) != 0;
+        }
+        capitalizeLetters(chars, i, length, specialCharacters, capitalizeNext);
+    }
+
+    private static boolean allSpecial(char[] chars, int offset, long lanes, CharTable specialCharacters) {
+        while (lanes != 0) {
+            if (!specialCharacters.contains(chars[offset + Long.numberOfTrailingZeros(lanes)])) {
+                return false;
+            }
+            lanes &= lanes - 1;
+        }
+        return true;
+    }
+
+    // FormatterEngine.capitalizeLetters in place, returning whether the next letter is capitalized
+    private static boolean capitalizeLetters(char[] chars, int from, int to, CharTable specialCharacters,
+                                             boolean capitalizeNext) {
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            if (c < 0x80) {
+                if (FormatterEngine.isAsciiLetter(c)) {
+                    chars[i] = capitalizeNext ? FormatterEngine.toUpperAscii(c) : FormatterEngine.toLowerAscii(c);
+                    capitalizeNext = false;
+                } else if (specialCharacters.contains(c)) {
+                    capitalizeNext = true;
+                }
+            } else if (Character.isLetter(c)) {
+                chars[i] = capitalizeNext ? Character.toUpperCase(c) : Character.toLowerCase(c);
+                capitalizeNext = false;
+            }
+        }
+        return capitalizeNext;
+    }
+}
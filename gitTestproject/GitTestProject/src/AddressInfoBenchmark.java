@@ -0,0 +1,118 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the regex-based address formatting {@link AddressInfoFormatter} used to do against the
+ * single-scan version, on the generated address mix. Run with {@code -prof gc} to see the
+ * allocation difference as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AddressInfoBenchmark {
+
+    private static final int CORPUS_SIZE = 1024;
+
+    @Param({"MAINFRAME", "MIXED_CASE", "UNICODE"})
+    public FormatterCorpus.Style style;
+
+    private String[] corpus;
+
+    @Setup
+    public void setUp() {
+        corpus = FormatterCorpus.generate(FormatterCorpus.Field.ADDRESS, style, CORPUS_SIZE, 42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void legacy(Blackhole blackhole) {
+        for (String address : corpus) {
+            blackhole.consume(Legacy.formatAddress(address));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void singleScan(Blackhole blackhole) {
+        for (String address : corpus) {
+            blackhole.consume(AddressInfoFormatter.formatAddress(address));
+        }
+    }
+
+    // AddressInfoFormatter before the rewrite
+    private static final class Legacy {
+
+        private static final Set<String> UPPERCASE_WORDS = Set.of("PO", "BOX", "APT", "SUITE", "FL", "FLOOR");
+        private static final Set<String> CANADIAN_PROVINCES = Set.of(FormatterRules.CANADIAN_PROVINCES);
+        private static final Set<String> US_STATES = Set.of(FormatterRules.US_STATES);
+        private static final Set<String> COUNTRY_CODES = Set.of("CA", "US");
+
+        private static final Pattern CANADIAN_POSTAL_CODE_REGEX = Pattern.compile("^[A-Z]\\d[A-Z] ?\\d[A-Z]\\d$");
+        private static final Pattern US_ZIP_CODE_REGEX = Pattern.compile("^\\d{5}(-\\d{4})?$");
+        private static final Pattern HYPHENATED_WORD_REGEX = Pattern.compile(".*-.*");
+        private static final Pattern APOSTROPHE_WORD_REGEX = Pattern.compile(".*'.*");
+
+        static String formatAddress(String address) {
+            if (address == null || address.isBlank()) {
+                return address;
+            }
+            String[] parts = address.split("\\s*,\\s*");
+            StringBuilder formattedAddress = new StringBuilder();
+            for (String part : parts) {
+                part = part.trim();
+                if (!part.isEmpty()) {
+                    formattedAddress.append(processAddressPart(part)).append(", ");
+                }
+            }
+            return formattedAddress.toString().replaceAll(",\\s*$", "");
+        }
+
+        private static String processAddressPart(String part) {
+            if (CANADIAN_POSTAL_CODE_REGEX.matcher(part).matches()) {
+                String postalCode = part.replaceAll("\\s+", "").toUpperCase();
+                return postalCode.substring(0, 3) + " " + postalCode.substring(3);
+            } else if (US_ZIP_CODE_REGEX.matcher(part).matches()) {
+                return part;
+            } else if (CANADIAN_PROVINCES.contains(part.toUpperCase()) || US_STATES.contains(part.toUpperCase())
+                    || COUNTRY_CODES.contains(part.toUpperCase())) {
+                return part.toUpperCase();
+            }
+
+            StringBuilder processedPart = new StringBuilder();
+            for (String word : part.split("\\s+")) {
+                if (UPPERCASE_WORDS.contains(word.toUpperCase())) {
+                    processedPart.append(word.toUpperCase()).append(" ");
+                } else if (HYPHENATED_WORD_REGEX.matcher(word).matches()) {
+                    processedPart.append(capitalizePieces(word, "-")).append(" ");
+                } else if (APOSTROPHE_WORD_REGEX.matcher(word).matches()) {
+                    processedPart.append(capitalizePieces(word, "'")).append(" ");
+                } else {
+                    processedPart.append(capitalizeWord(word)).append(" ");
+                }
+            }
+            return processedPart.toString().trim();
+        }
+
+        private static String capitalizePieces(String word, String separator) {
+            return Arrays.stream(word.split(separator))
+                    .map(Legacy::capitalizeWord)
+                    .reduce((a, b) -> a + separator + b)
+                    .orElse(word);
+        }
+
+        private static String capitalizeWord(String word) {
+            if (word.isBlank()) return word;
+            return Character.toUpperCase(word.charAt(0)) + word.substring(1).toLowerCase();
+        }
+    }
+}
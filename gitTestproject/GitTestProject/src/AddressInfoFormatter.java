@@ -1,34 +1,14 @@
 package com.example.util;
 
-import java.util.*;
-import java.util.regex.Pattern;
-
 public class AddressInfoFormatter {
 
     // Words to remain fully uppercase
-    private static final Set<String> UPPERCASE_WORDS = Set.of("PO", "BOX", "APT", "SUITE", "FL", "FLOOR");
-
-    // Canadian province abbreviations
-    private static final Set<String> CANADIAN_PROVINCES = Set.of(
-            "AB", "BC", "MB", "NB", "NL", "NS", "NT", "NU", "ON", "PE", "QC", "SK", "YT"
-    );
-
-    // US state abbreviations
-    private static final Set<String> US_STATES = Set.of(
-            "AL", "AK", "AZ", "AR", "CA", "CO", "CT", "DE", "FL", "GA", "HI", "ID", "IL", "IN",
-            "IA", "KS", "KY", "LA", "ME", "MD", "MA", "MI", "MN", "MS", "MO", "MT", "NE", "NV",
-            "NH", "NJ", "NM", "NY", "NC", "ND", "OH", "OK", "OR", "PA", "RI", "SC", "SD", "TN",
-            "TX", "UT", "VT", "VA", "WA", "WV", "WI", "WY"
-    );
-
-    // Country codes
-    private static final Set<String> COUNTRY_CODES = Set.of("CA", "US");
-
-    // Regex patterns
-    private static final Pattern CANADIAN_POSTAL_CODE_REGEX = Pattern.compile("^[A-Z]\\d[A-Z] ?\\d[A-Z]\\d$");
-    private static final Pattern US_ZIP_CODE_REGEX = Pattern.compile("^\\d{5}(-\\d{4})?$");
-    private static final Pattern HYPHENATED_WORD_REGEX = Pattern.compile(".*-.*");
-    private static final Pattern APOSTROPHE_WORD_REGEX = Pattern.compile(".*'.*");
+    private static final CodeSet UPPERCASE_WORDS = new CodeSet(CodeSet.Fold.UPPER,
+            new String[]{"PO", "BOX", "APT", "SUITE", "FL", "FLOOR"});
+
+    // Canadian province and US state abbreviations, and country codes
+    private static final CodeSet REGION_CODES = new CodeSet(CodeSet.Fold.UPPER,
+            FormatterRules.CANADIAN_PROVINCES, FormatterRules.US_STATES, new String[]{"CA", "US"});
 
     /**
      * Format an entire address string into properly formatted components.
@@ -41,88 +21,214 @@ public class AddressInfoFormatter {
             return address;
         }
 
-        // Split address into logical parts based on commas
-        String[] parts = address.split("\\s*,\\s*");
-        StringBuilder formattedAddress = new StringBuilder();
+        StringBuilder formatted = new StringBuilder(address.length() + 8);
+        appendAddress(address, formatted);
+        return formatted.toString();
+    }
 
-        for (String part : parts) {
-            part = part.trim();
-            if (!part.isEmpty()) {
-                formattedAddress.append(processAddressPart(part)).append(", ");
-            }
+    /**
+     * Format an address into the given output. Blank input is copied unchanged and null appends
+     * nothing.
+     *
+     * @param address the raw address
+     * @param out     receives the formatted address
+     */
+    public static void formatAddress(CharSequence address, Appendable out) {
+        FormatterEngine.formatTo(address, out, AddressInfoFormatter::appendAddress);
+    }
+
+    /**
+     * Split on commas, trim each part and join the non-empty parts with ", ".
+     */
+    private static void appendAddress(CharSequence address, StringBuilder out) {
+        if (FormatterEngine.isBlank(address)) {
+            out.append(address);
+            return;
         }
 
-        // Remove trailing comma and space
-        return formattedAddress.toString().replaceAll(",\\s*$", "");
+        int length = address.length();
+        boolean first = true;
+        int start = 0;
+        while (start <= length) {
+            int comma = start;
+            while (comma < length && address.charAt(comma) != ',') {
+                comma++;
+            }
+            int end = comma;
+            while (start < end && address.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && address.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            if (start < end) {
+                if (!first) {
+                    out.append(", ");
+                }
+                appendAddressPart(address, start, end, out);
+                first = false;
+            }
+            start = comma + 1;
+        }
     }
 
     /**
      * Process a single part of the address.
      */
-    private static String processAddressPart(String part) {
-        if (CANADIAN_POSTAL_CODE_REGEX.matcher(part).matches()) {
-            return formatCanadianPostalCode(part);
-        } else if (US_ZIP_CODE_REGEX.matcher(part).matches()) {
-            return part;
-        } else if (CANADIAN_PROVINCES.contains(part.toUpperCase()) || US_STATES.contains(part.toUpperCase())) {
-            return part.toUpperCase();
-        } else if (COUNTRY_CODES.contains(part.toUpperCase())) {
-            return part.toUpperCase();
-        }
-
-        String[] words = part.split("\\s+");
-        StringBuilder processedPart = new StringBuilder();
-
-        for (String word : words) {
-            if (UPPERCASE_WORDS.contains(word.toUpperCase())) {
-                processedPart.append(word.toUpperCase()).append(" ");
-            } else if (HYPHENATED_WORD_REGEX.matcher(word).matches()) {
-                processedPart.append(capitalizeHyphenatedWord(word)).append(" ");
-            } else if (APOSTROPHE_WORD_REGEX.matcher(word).matches()) {
-                processedPart.append(capitalizeApostropheWord(word)).append(" ");
-            } else {
-                processedPart.append(capitalizeWord(word)).append(" ");
-            }
+    private static void appendAddressPart(CharSequence address, int start, int end, StringBuilder out) {
+        if (isCanadianPostalCode(address, start, end)) {
+            // Format Canadian postal codes to 'A1A 1A1' format
+            out.append(address, start, start + 3).append(' ').append(address, end - 3, end);
+            return;
+        }
+        if (isZipCode(address, start, end)) {
+            out.append(address, start, end);
+            return;
+        }
+        String code = REGION_CODES.find(address, start, end);
+        if (code != null) {
+            out.append(code);
+            return;
         }
 
-        return processedPart.toString().trim();
+        // Words are separated by runs of whitespace and joined with single spaces
+        int base = out.length();
+        int word = start;
+        while (word < end) {
+            int wordEnd = word + 1;
+            while (wordEnd < end && !isSeparator(address.charAt(wordEnd))) {
+                wordEnd++;
+            }
+            if (word > start) {
+                out.append(' ');
+            }
+            appendWord(address, word, wordEnd, out);
+            word = wordEnd;
+            while (word < end && isSeparator(address.charAt(word))) {
+                word++;
+            }
+        }
+        // Dropping trailing separators can leave a control character at the end
+        FormatterEngine.trim(out, base);
     }
 
     /**
-     * Format Canadian postal codes to 'A1A 1A1' format.
+     * Classify a word in one scan: uppercase keywords, then hyphenated words (e.g., ARBOUR-HALL ->
+     * Arbour-Hall), then words with apostrophes (e.g., O'SULLIVAN -> O'Sullivan), then plain words
+     * (e.g., MAIN -> Main).
      */
-    private static String formatCanadianPostalCode(String postalCode) {
-        postalCode = postalCode.replaceAll("\\s+", "").toUpperCase();
-        return postalCode.substring(0, 3) + " " + postalCode.substring(3);
+    private static void appendWord(CharSequence address, int start, int end, StringBuilder out) {
+        String keyword = UPPERCASE_WORDS.find(address, start, end);
+        if (keyword != null) {
+            out.append(keyword);
+            return;
+        }
+
+        boolean ascii = true;
+        boolean hyphen = false;
+        boolean apostrophe = false;
+        boolean lineBreak = false;
+        for (int i = start; i < end; i++) {
+            char c = address.charAt(i);
+            if (c == '-') {
+                hyphen = true;
+            } else if (c == '\'') {
+                apostrophe = true;
+            } else if (c >= 0x80) {
+                ascii = false;
+                lineBreak |= c == '\u0085' || c == '\u2028' || c == '\u2029';
+            }
+        }
+
+        // Words holding a Unicode line break were never treated as hyphenated or apostrophe words
+        if (hyphen && !lineBreak) {
+            appendPieces(address, start, end, '-', ascii, out);
+        } else if (apostrophe && !lineBreak) {
+            appendPieces(address, start, end, '\'', ascii, out);
+        } else {
+            capitalizeWord(address, start, end, ascii, out);
+        }
     }
 
     /**
-     * Capitalize hyphenated words (e.g., ARBOUR-HALL -> Arbour-Hall).
+     * Capitalize each piece between separators. Trailing separators are dropped, as String.split
+     * drops trailing empty pieces, unless the word is made only of separators.
      */
-    private static String capitalizeHyphenatedWord(String word) {
-        String[] parts = word.split("-");
-        return Arrays.stream(parts)
-                .map(AddressFormatter::capitalizeWord)
-                .reduce((a, b) -> a + "-" + b)
-                .orElse(word);
+    private static void appendPieces(CharSequence address, int start, int end, char separator, boolean ascii,
+                                     StringBuilder out) {
+        int last = end;
+        while (last > start && address.charAt(last - 1) == separator) {
+            last--;
+        }
+        if (last == start) {
+            out.append(address, start, end);
+            return;
+        }
+        int piece = start;
+        for (int i = start; i <= last; i++) {
+            if (i == last || address.charAt(i) == separator) {
+                if (piece > start) {
+                    out.append(separator);
+                }
+                capitalizeWord(address, piece, i, ascii, out);
+                piece = i + 1;
+            }
+        }
     }
 
     /**
-     * Capitalize words with apostrophes (e.g., O'SULLIVAN -> O'Sullivan).
+     * Uppercase the first character and lowercase the rest. Blank words come out unchanged
+     * because whitespace has no case.
      */
-    private static String capitalizeApostropheWord(String word) {
-        String[] parts = word.split("'");
-        return Arrays.stream(parts)
-                .map(AddressFormatter::capitalizeWord)
-                .reduce((a, b) -> a + "'" + b)
-                .orElse(word);
+    private static void capitalizeWord(CharSequence address, int start, int end, boolean ascii, StringBuilder out) {
+        if (start == end) {
+            return;
+        }
+        if (!ascii) {
+            FormatterEngine.capitalizeFirstCharacter(address, start, end, out);
+            return;
+        }
+        out.append(FormatterEngine.toUpperAscii(address.charAt(start)));
+        for (int i = start + 1; i < end; i++) {
+            out.append(FormatterEngine.toLowerAscii(address.charAt(i)));
+        }
     }
 
-    /**
-     * Capitalize a single word (e.g., MAIN -> Main).
-     */
-    private static String capitalizeWord(String word) {
-        if (word.isBlank()) return word;
-        return Character.toUpperCase(word.charAt(0)) + word.substring(1).toLowerCase();
+    // An uppercase postal code, 'A1A1A1' or 'A1A 1A1'
+    private static boolean isCanadianPostalCode(CharSequence address, int start, int end) {
+        int length = end - start;
+        if (length != 6 && (length != 7 || address.charAt(start + 3) != ' ')) {
+            return false;
+        }
+        int second = end - 3;
+        return isUpperAsciiLetter(address.charAt(start))
+                && FormatterEngine.isAsciiDigit(address.charAt(start + 1))
+                && isUpperAsciiLetter(address.charAt(start + 2))
+                && FormatterEngine.isAsciiDigit(address.charAt(second))
+                && isUpperAsciiLetter(address.charAt(second + 1))
+                && FormatterEngine.isAsciiDigit(address.charAt(second + 2));
+    }
+
+    // '12345' or '12345-6789'
+    private static boolean isZipCode(CharSequence address, int start, int end) {
+        int length = end - start;
+        if (length != 5 && (length != 10 || address.charAt(start + 5) != '-')) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (i != start + 5 && !FormatterEngine.isAsciiDigit(address.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUpperAsciiLetter(char c) {
+        return c >= 'A' && c <= 'Z';
+    }
+
+    // The characters matched by \s
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
     }
 }
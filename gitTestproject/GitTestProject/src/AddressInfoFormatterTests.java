@@ -1,3 +1,4 @@
+package com.example.util;
 
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
@@ -6,37 +7,61 @@ class AddressInfoFormatterTests {
 
     @Test
     void testBasicStreetAddress() {
-        assertEquals("123 Main Street", AddressFormatter.formatAddress("123 MAIN STREET"));
-        assertEquals("555 Arbour-Hall Road", AddressFormatter.formatAddress("555 ARBOUR-HALL ROAD"));
+        assertEquals("123 Main Street", AddressInfoFormatter.formatAddress("123 MAIN STREET"));
+        assertEquals("555 Arbour-Hall Road", AddressInfoFormatter.formatAddress("555 ARBOUR-HALL ROAD"));
     }
 
     @Test
     void testUppercaseWords() {
-        assertEquals("PO Box 567", AddressFormatter.formatAddress("PO BOX 567"));
-        assertEquals("Suite 123, Floor 2", AddressFormatter.formatAddress("SUITE 123, FLOOR 2"));
+        assertEquals("PO BOX 567", AddressInfoFormatter.formatAddress("PO BOX 567"));
+        assertEquals("SUITE 123, FLOOR 2", AddressInfoFormatter.formatAddress("SUITE 123, FLOOR 2"));
     }
 
     @Test
     void testCanadianPostalCode() {
-        assertEquals("H1M 2J5", AddressFormatter.formatAddress("H1M2J5"));
-        assertEquals("A1A 1A1", AddressFormatter.formatAddress("A1A1A1"));
+        assertEquals("H1M 2J5", AddressInfoFormatter.formatAddress("H1M2J5"));
+        assertEquals("A1A 1A1", AddressInfoFormatter.formatAddress("A1A1A1"));
     }
 
     @Test
     void testUSZipCode() {
-        assertEquals("12345", AddressFormatter.formatAddress("12345"));
-        assertEquals("12345-6789", AddressFormatter.formatAddress("12345-6789"));
+        assertEquals("12345", AddressInfoFormatter.formatAddress("12345"));
+        assertEquals("12345-6789", AddressInfoFormatter.formatAddress("12345-6789"));
     }
 
     @Test
     void testHyphenatedAndApostropheWords() {
-        assertEquals("O'Shaunessy Avenue", AddressFormatter.formatAddress("O'SHAUNESSY AVENUE"));
-        assertEquals("Arbour-Hall Road", AddressFormatter.formatAddress("ARBOUR-HALL ROAD"));
+        assertEquals("O'Shaunessy Avenue", AddressInfoFormatter.formatAddress("O'SHAUNESSY AVENUE"));
+        assertEquals("Arbour-Hall Road", AddressInfoFormatter.formatAddress("ARBOUR-HALL ROAD"));
     }
 
     @Test
     void testComplexAddress() {
-        assertEquals("123 Main Street, PO Box 567, Ottawa-Gatineau, H1M 2J5",
-                AddressFormatter.formatAddress("123 MAIN STREET, PO BOX 567, OTTAWA-GATINEAU, H1M2J5"));
+        assertEquals("123 Main Street, PO BOX 567, Ottawa-Gatineau, H1M 2J5",
+                AddressInfoFormatter.formatAddress("123 MAIN STREET, PO BOX 567, OTTAWA-GATINEAU, H1M2J5"));
+    }
+
+    @Test
+    void testRegionCodesAndSpacing() {
+        assertEquals("12 King St W, Toronto, ON, M5W 1E6, CA",
+                AddressInfoFormatter.formatAddress("  12 KING   ST W ,toronto,on,M5W 1E6,, ca ,"));
+    }
+
+    @Test
+    void testTrailingHyphenIsDropped() {
+        assertEquals("Arbour Hall", AddressInfoFormatter.formatAddress("ARBOUR- HALL"));
+        assertEquals("-", AddressInfoFormatter.formatAddress("-"));
+    }
+
+    @Test
+    void testNonAsciiWords() {
+        assertEquals("Émilie-José Street, Montréal", AddressInfoFormatter.formatAddress("ÉMILIE-JOSÉ STREET, MONTRÉAL"));
+    }
+
+    @Test
+    void testFormatIntoAppendable() {
+        StringBuilder out = new StringBuilder("Address: ");
+        AddressInfoFormatter.formatAddress("555 ARBOUR-HALL ROAD, H1M2J5", out);
+        assertEquals("Address: 555 Arbour-Hall Road, H1M 2J5", out.toString());
     }
 }
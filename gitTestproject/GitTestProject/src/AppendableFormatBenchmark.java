@@ -0,0 +1,70 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.CharBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the Appendable overloads against their String counterparts. Run with {@code -prof gc}:
+ * the {@code append*} benchmarks should report {@code gc.alloc.rate.norm} of 0 B/op on this
+ * ASCII input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AppendableFormatBenchmark {
+
+    private static final String LAST_NAME = "MCDONALD-O'SHEA";
+    private static final String LEGAL_ENTITY_NAME = "ALPHA & BETA HOLDINGS OF CANADA LTD.";
+    private static final String ADDRESS = "123 MAIN STREET, TORONTO, ON, M5W1E6, CANADA";
+
+    private final StringBuilder builder = new StringBuilder(256);
+    private final CharBuffer charBuffer = CharBuffer.allocate(256);
+
+    @Benchmark
+    public String stringLastName() {
+        return ClientNameFormatter.formatLastName(LAST_NAME);
+    }
+
+    @Benchmark
+    public StringBuilder appendLastName() {
+        builder.setLength(0);
+        ClientNameFormatter.formatLastName(LAST_NAME, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public String stringLegalEntityName() {
+        return LegalEntityNameFormatter.formatLegalEntityName(LEGAL_ENTITY_NAME);
+    }
+
+    @Benchmark
+    public StringBuilder appendLegalEntityName() {
+        builder.setLength(0);
+        LegalEntityNameFormatter.formatLegalEntityName(LEGAL_ENTITY_NAME, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public String stringAddress() {
+        return StringFormatter.formatAddress(ADDRESS);
+    }
+
+    @Benchmark
+    public StringBuilder appendAddress() {
+        builder.setLength(0);
+        StringFormatter.formatAddress(ADDRESS, builder);
+        return builder;
+    }
+
+    @Benchmark
+    public CharBuffer appendAddressToCharBuffer() {
+        charBuffer.clear();
+        StringFormatter.formatAddress(ADDRESS, charBuffer);
+        return charBuffer;
+    }
+}
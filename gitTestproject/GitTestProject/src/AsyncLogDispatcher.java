@@ -0,0 +1,211 @@
+package com.yourpackage.aspect;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Hands events from request threads to a single background thread through a {@link RingBuffer}.
+ * Publishing never takes a lock; what happens when the buffer is full is up to the
+ * {@link OverflowPolicy}.
+ */
+public class AsyncLogDispatcher<E> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncLogDispatcher.class);
+
+    // How long the consumer sleeps when idle, and a blocked producer between retries
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    /**
+     * What to do with an event that arrives while the buffer is full or filling up.
+     */
+    public enum OverflowPolicy {
+        /** Drop events that do not fit */
+        DROP,
+        /** Once the buffer is half full keep one event in every sample rate, drop the rest and anything that does not fit */
+        SAMPLE,
+        /** Make the publishing thread wait for room */
+        BLOCK
+    }
+
+    private final RingBuffer<E> buffer;
+    private final Consumer<E> handler;
+    private final OverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    private final Thread consumer;
+
+    private final AtomicLong sampleCounter = new AtomicLong();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+
+    /**
+     * Start a dispatcher and its consumer thread.
+     *
+     * @param name           the consumer thread name
+     * @param capacity       the buffer size, rounded up to a power of two
+     * @param overflowPolicy what to do when the buffer is full
+     * @param sampleRate     with {@link OverflowPolicy#SAMPLE}, keep one in this many events under pressure
+     * @param handler        called on the consumer thread for every event, in publishing order; what it
+     *                       throws is logged and the next event handled
+     */
+    public AsyncLogDispatcher(String name, int capacity, OverflowPolicy overflowPolicy, int sampleRate,
+                              Consumer<E> handler) {
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        }
+        this.buffer = new RingBuffer<>(capacity);
+        this.handler = handler;
+        this.overflowPolicy = overflowPolicy;
+        this.sampleRate = sampleRate;
+        this.consumer = new Thread(this::drain, name);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Queue an event for the consumer thread.
+     *
+     * @return false if the event was dropped
+     */
+    public boolean publish(E event) {
+        if (closed || !admit()) {
+            dropped.increment();
+            return false;
+        }
+        return enqueue(event);
+    }
+
+    /**
+     * Queue an event for the consumer thread, creating it only if the overflow policy lets it in.
+     *
+     * @return false if the event was dropped, possibly without being created
+     */
+    public boolean publishLazily(Supplier<? extends E> event) {
+        if (closed || !admit()) {
+            dropped.increment();
+            return false;
+        }
+        return enqueue(event.get());
+    }
+
+    // Whether an event arriving now is worth creating; it may still not fit once created
+    private boolean admit() {
+        switch (overflowPolicy) {
+            case SAMPLE:
+                int size = buffer.size();
+                return size < buffer.capacity()
+                        && (size < buffer.capacity() / 2 || sampleCounter.getAndIncrement() % sampleRate == 0);
+            case BLOCK:
+                return true;
+            default:
+                return buffer.size() < buffer.capacity();
+        }
+    }
+
+    private boolean enqueue(E event) {
+        boolean accepted;
+        switch (overflowPolicy) {
+            case BLOCK:
+                accepted = buffer.offer(event);
+                // Give up once nothing is left to make room
+                while (!accepted && !closed && consumer.isAlive()) {
+                    wakeConsumer();
+                    LockSupport.parkNanos(FULL_PARK_NANOS);
+                    accepted = buffer.offer(event);
+                }
+                break;
+            default:
+                accepted = buffer.offer(event);
+        }
+        if (!accepted) {
+            dropped.increment();
+            return false;
+        }
+        published.increment();
+        wakeConsumer();
+        return true;
+    }
+
+    private void wakeConsumer() {
+        if (consumerParked) {
+            consumerParked = false;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            E event = buffer.poll();
+            if (event != null) {
+                handle(event);
+                continue;
+            }
+            if (closed) {
+                return;
+            }
+            consumerParked = true;
+            // Re-check so an event published just before the flag was set is not left waiting
+            if (buffer.size() == 0) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+            consumerParked = false;
+        }
+    }
+
+    private void handle(E event) {
+        try {
+            handler.accept(event);
+        } catch (Throwable e) {
+            // Errors too, since this thread is the only consumer and blocked publishers wait on it
+            logger.warn("Failed to log event", e);
+        }
+    }
+
+    /**
+     * @return the number of events waiting for the consumer thread
+     */
+    public int queueDepth() {
+        return buffer.size();
+    }
+
+    /**
+     * @return the number of buffer slots
+     */
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return the number of events accepted so far
+     */
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * @return the number of events dropped so far, because the buffer was full, sampled out or closed
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Stop accepting events and wait for the consumer thread to log the ones already queued.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        closed = true;
+        LockSupport.unpark(consumer);
+        consumer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
@@ -0,0 +1,122 @@
+package com.yourpackage.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLogDispatcherTests {
+
+    @Test
+    void testDeliversInOrder() throws Exception {
+        List<Integer> received = new ArrayList<>();
+        AsyncLogDispatcher<Integer> dispatcher = new AsyncLogDispatcher<>("test", 16,
+                AsyncLogDispatcher.OverflowPolicy.BLOCK, 1, received::add);
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(dispatcher.publish(i));
+        }
+        dispatcher.close();
+
+        assertEquals(1000, received.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, received.get(i));
+        }
+        assertEquals(0, dispatcher.droppedCount());
+    }
+
+    @Test
+    void testDropsWhenFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncLogDispatcher<Integer> dispatcher = new AsyncLogDispatcher<>("test", 4,
+                AsyncLogDispatcher.OverflowPolicy.DROP, 1, event -> await(release));
+
+        int accepted = 0;
+        for (int i = 0; i < 100; i++) {
+            if (dispatcher.publish(i)) {
+                accepted++;
+            }
+        }
+        // The consumer holds at most one event, the buffer the other four
+        assertTrue(accepted <= 5, "accepted " + accepted);
+        assertEquals(100 - accepted, dispatcher.droppedCount());
+        assertEquals(accepted, dispatcher.publishedCount());
+
+        release.countDown();
+        dispatcher.close();
+        assertEquals(0, dispatcher.queueDepth());
+    }
+
+    @Test
+    void testDoesNotCreateDroppedEvents() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncLogDispatcher<Integer> dispatcher = new AsyncLogDispatcher<>("test", 4,
+                AsyncLogDispatcher.OverflowPolicy.DROP, 1, event -> await(release));
+        AtomicInteger created = new AtomicInteger();
+
+        for (int i = 0; i < 100; i++) {
+            dispatcher.publishLazily(created::incrementAndGet);
+        }
+
+        assertEquals(dispatcher.publishedCount(), created.get());
+        assertEquals(100 - created.get(), dispatcher.droppedCount());
+
+        release.countDown();
+        dispatcher.close();
+    }
+
+    @Test
+    void testConcurrentProducersLoseNothingWhenBlocking() throws Exception {
+        ConcurrentHashMap<Integer, Boolean> received = new ConcurrentHashMap<>();
+        AsyncLogDispatcher<Integer> dispatcher = new AsyncLogDispatcher<>("test", 64,
+                AsyncLogDispatcher.OverflowPolicy.BLOCK, 1, event -> received.put(event, true));
+        ExecutorService producers = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            int base = t * 10_000;
+            producers.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    dispatcher.publish(base + i);
+                }
+            });
+        }
+        producers.shutdown();
+        assertTrue(producers.awaitTermination(30, TimeUnit.SECONDS));
+        dispatcher.close();
+
+        assertEquals(40_000, received.size());
+    }
+
+    @Test
+    void testKeepsConsumingAfterHandlerError() throws Exception {
+        List<Integer> received = new ArrayList<>();
+        AsyncLogDispatcher<Integer> dispatcher = new AsyncLogDispatcher<>("test", 4,
+                AsyncLogDispatcher.OverflowPolicy.BLOCK, 1, event -> {
+                    if (event == 0) {
+                        throw new StackOverflowError();
+                    }
+                    received.add(event);
+                });
+        // More than the buffer holds, so publishers would block for good without a consumer
+        for (int i = 0; i < 100; i++) {
+            assertTrue(dispatcher.publish(i));
+        }
+        dispatcher.close();
+
+        assertEquals(99, received.size());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
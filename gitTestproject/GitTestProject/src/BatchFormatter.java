@@ -0,0 +1,193 @@
+package com.example.util;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * Formats many values with one call. A batch reuses a single scratch buffer for all of its
+ * values and writes the results into a caller-supplied array; the output for every value is
+ * exactly what the matching single-value formatter method returns. Null values stay null,
+ * including for the postal code and country operations whose single-value methods reject them.
+ */
+public class BatchFormatter {
+
+    // Batches smaller than this are never split
+    private static final int PARALLEL_THRESHOLD = 4096;
+
+    /**
+     * The formatter methods available in batch.
+     */
+    public enum Operation {
+        FIRST_NAME(ClientNameFormatter::formatFirstName),
+        LAST_NAME(ClientNameFormatter::formatLastName),
+        LEGAL_ENTITY_NAME(LegalEntityNameFormatter::formatLegalEntityName),
+        ADDRESS_INFO(AddressInfoFormatter::formatAddress),
+        NAME(StringFormatter::formatName),
+        ADDRESS(StringFormatter::formatAddress),
+        CITY_NAME(StringFormatter::formatCityName),
+        POSTAL_CODE(StringFormatter::formatPostalCode),
+        COUNTRY(StringFormatter::formatCountry);
+
+        private final AppendingFormat format;
+
+        Operation(AppendingFormat format) {
+            this.format = format;
+        }
+
+        // Every formatter returns null and blank values unchanged, so those skip the buffer entirely
+        String format(String input, StringBuilder buffer) {
+            if (input == null || input.isBlank()) {
+                return input;
+            }
+            buffer.setLength(0);
+            format.format(input, buffer);
+            return buffer.toString();
+        }
+    }
+
+    @FunctionalInterface
+    private interface AppendingFormat {
+        void format(CharSequence input, StringBuilder out);
+    }
+
+    /**
+     * Format every value of an array.
+     *
+     * @param operation the formatter method to apply
+     * @param input     the raw values
+     * @param output    receives the formatted values at the same indexes, at least as long as the input
+     */
+    public static void format(Operation operation, String[] input, String[] output) {
+        checkCapacity(input.length, output);
+        formatRange(operation, input, output, 0, input.length);
+    }
+
+    /**
+     * Format every value of a list.
+     *
+     * @param operation the formatter method to apply
+     * @param input     the raw values
+     * @param output    receives the formatted values at the same indexes, at least as long as the input
+     */
+    public static void format(Operation operation, List<String> input, String[] output) {
+        checkCapacity(input.size(), output);
+        StringBuilder buffer = new StringBuilder();
+        int i = 0;
+        for (String value : input) {
+            output[i++] = operation.format(value, buffer);
+        }
+    }
+
+    /**
+     * Format every value of a stream, in encounter order.
+     *
+     * @param operation the formatter method to apply
+     * @param input     the raw values
+     * @param output    receives the formatted values in encounter order
+     * @return the number of values written
+     * @throws IllegalArgumentException if the stream has more values than the output can hold
+     */
+    public static int format(Operation operation, Stream<String> input, String[] output) {
+        StringBuilder buffer = new StringBuilder();
+        int count = 0;
+        Iterator<String> values = input.iterator();
+        while (values.hasNext()) {
+            if (count == output.length) {
+                throw new IllegalArgumentException("Output array holds only " + output.length + " values");
+            }
+            output[count++] = operation.format(values.next(), buffer);
+        }
+        return count;
+    }
+
+    /**
+     * Format every value of an array, splitting large batches across the common fork/join pool.
+     *
+     * @param operation the formatter method to apply
+     * @param input     the raw values
+     * @param output    receives the formatted values at the same indexes, at least as long as the input
+     */
+    public static void formatParallel(Operation operation, String[] input, String[] output) {
+        formatParallel(operation, input, output, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Format every value of an array, splitting large batches across the given pool.
+     *
+     * @param operation the formatter method to apply
+     * @param input     the raw values
+     * @param output    receives the formatted values at the same indexes, at least as long as the input
+     * @param pool      the pool the batch is split across
+     */
+    public static void formatParallel(Operation operation, String[] input, String[] output, ForkJoinPool pool) {
+        checkCapacity(input.length, output);
+        if (input.length < PARALLEL_THRESHOLD) {
+            formatRange(operation, input, output, 0, input.length);
+            return;
+        }
+        pool.invoke(new FormatTask(operation, input, output, 0, input.length));
+    }
+
+    /**
+     * Format every value of a list, splitting large batches across the common fork/join pool.
+     * Large lists are copied to an array before they are split.
+     *
+     * @param operation the formatter method to apply
+     * @param input     the raw values
+     * @param output    receives the formatted values at the same indexes, at least as long as the input
+     */
+    public static void formatParallel(Operation operation, List<String> input, String[] output) {
+        if (input.size() < PARALLEL_THRESHOLD) {
+            format(operation, input, output);
+            return;
+        }
+        formatParallel(operation, input.toArray(new String[0]), output);
+    }
+
+    private static void formatRange(Operation operation, String[] input, String[] output, int from, int to) {
+        StringBuilder buffer = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            output[i] = operation.format(input[i], buffer);
+        }
+    }
+
+    private static void checkCapacity(int size, String[] output) {
+        if (output.length < size) {
+            throw new IllegalArgumentException("Output array holds only " + output.length + " of " + size + " values");
+        }
+    }
+
+    // Splits in halves down to PARALLEL_THRESHOLD, each leaf formats its range with its own buffer
+    private static class FormatTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Operation operation;
+        private final String[] input;
+        private final String[] output;
+        private final int from;
+        private final int to;
+
+        FormatTask(Operation operation, String[] input, String[] output, int from, int to) {
+            this.operation = operation;
+            this.input = input;
+            this.output = output;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                formatRange(operation, input, output, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FormatTask(operation, input, output, from, middle),
+                    new FormatTask(operation, input, output, middle, to));
+        }
+    }
+}
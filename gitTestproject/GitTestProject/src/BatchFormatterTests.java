@@ -0,0 +1,66 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchFormatterTests {
+
+    private static final String[] NAMES = {
+            "CATHERINE", "O'SHEA", "MCDONALD", "DE LA CRUZ", "  JEAN-PAUL  ", "", "   ", null, "peÑA"
+    };
+
+    @Test
+    void testArrayMatchesSingleCalls() {
+        String[] output = new String[NAMES.length];
+        BatchFormatter.format(BatchFormatter.Operation.LAST_NAME, NAMES, output);
+
+        for (int i = 0; i < NAMES.length; i++) {
+            assertEquals(ClientNameFormatter.formatLastName(NAMES[i]), output[i]);
+        }
+    }
+
+    @Test
+    void testListAndStreamMatchSingleCalls() {
+        List<String> addresses = List.of("123 MAIN STREET, TORONTO, ON, M5W1E6, CANADA", "456 BROADWAY AVE, NEW YORK, NY, 10001, USA");
+        String[] fromList = new String[2];
+        String[] fromStream = new String[3];
+
+        BatchFormatter.format(BatchFormatter.Operation.ADDRESS, addresses, fromList);
+        int count = BatchFormatter.format(BatchFormatter.Operation.ADDRESS, addresses.stream(), fromStream);
+
+        assertEquals(2, count);
+        assertEquals("123 Main Street, Toronto, ON, M5W 1E6, Canada", fromList[0]);
+        assertEquals("456 Broadway Ave, New York, NY, 10001, USA", fromList[1]);
+        assertArrayEquals(fromList, Arrays.copyOf(fromStream, 2));
+        assertNull(fromStream[2]);
+    }
+
+    @Test
+    void testParallelMatchesSingleCalls() {
+        Random random = new Random(7);
+        String[] input = new String[20_000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = NAMES[random.nextInt(NAMES.length)] + " " + NAMES[random.nextInt(NAMES.length)];
+        }
+        String[] output = new String[input.length];
+
+        BatchFormatter.formatParallel(BatchFormatter.Operation.LEGAL_ENTITY_NAME, input, output);
+
+        for (int i = 0; i < input.length; i++) {
+            assertEquals(LegalEntityNameFormatter.formatLegalEntityName(input[i]), output[i]);
+        }
+    }
+
+    @Test
+    void testOutputTooSmall() {
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchFormatter.format(BatchFormatter.Operation.NAME, NAMES, new String[1]));
+        assertThrows(IllegalArgumentException.class,
+                () -> BatchFormatter.format(BatchFormatter.Operation.NAME, Arrays.stream(NAMES), new String[1]));
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A stored response, with when it stops being fresh. Freshness follows the rules for a shared
+ * cache, since one cache serves every caller in the process: {@code s-maxage} over
+ * {@code max-age} over {@code Expires}, else a tenth of the time since {@code Last-Modified}, up
+ * to a day. {@code private} and {@code no-store} responses are never stored, and responses to
+ * requests with {@code Authorization} only when the response allows it explicitly.
+ */
+final class CachedResponse {
+
+    private static final long MAX_HEURISTIC_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private final int status;
+    private final HttpHeaders headers;
+    private final byte[] body;
+    private final long storedAt;
+    private final long freshUntil;
+    // Request header values the response varies on, by lowercase header name
+    private final Map<String, String> vary;
+
+    private CachedResponse(int status, HttpHeaders headers, byte[] body, long storedAt, long freshUntil,
+                           Map<String, String> vary) {
+        this.status = status;
+        this.headers = headers;
+        this.body = body;
+        this.storedAt = storedAt;
+        this.freshUntil = freshUntil;
+        this.vary = vary;
+    }
+
+    /**
+     * @return true if a response with this status and headers may be stored for the request
+     */
+    static boolean storable(HttpRequest request, int status, HttpHeaders headers, long now) {
+        if (status != 200) {
+            return false;
+        }
+        Map<String, String> directives = directives(headers.get(HttpHeaders.CACHE_CONTROL));
+        if (directives.containsKey("no-store") || directives.containsKey("private")) {
+            return false;
+        }
+        if (request.getHeaders().containsKey(HttpHeaders.AUTHORIZATION) && !directives.containsKey("public")
+                && !directives.containsKey("s-maxage") && !directives.containsKey("must-revalidate")) {
+            return false;
+        }
+        List<String> vary = headers.getVary();
+        if (vary.contains("*")) {
+            return false;
+        }
+        // Useless without either a lifetime or something to revalidate with
+        return lifetimeMillis(headers, directives, now) > 0
+                || headers.getETag() != null || headers.getLastModified() != -1;
+    }
+
+    static CachedResponse of(HttpRequest request, int status, HttpHeaders headers, byte[] body, long now) {
+        HttpHeaders copy = new HttpHeaders();
+        headers.forEach((name, values) -> copy.put(name, new ArrayList<>(values)));
+        Map<String, String> vary = null;
+        for (String name : headers.getVary()) {
+            if (vary == null) {
+                vary = new LinkedHashMap<>();
+            }
+            vary.put(name.toLowerCase(Locale.ROOT), joined(request.getHeaders().get(name)));
+        }
+        return new CachedResponse(status, copy, body, now, freshUntil(copy, now), vary);
+    }
+
+    private static long freshUntil(HttpHeaders headers, long now) {
+        Map<String, String> directives = directives(headers.get(HttpHeaders.CACHE_CONTROL));
+        if (directives.containsKey("no-cache")) {
+            return now;
+        }
+        long age = seconds(headers.getFirst(HttpHeaders.AGE));
+        return now + lifetimeMillis(headers, directives, now) - Math.max(age, 0) * 1000;
+    }
+
+    private static long lifetimeMillis(HttpHeaders headers, Map<String, String> directives, long now) {
+        long seconds = seconds(directives.get("s-maxage"));
+        if (seconds < 0) {
+            seconds = seconds(directives.get("max-age"));
+        }
+        if (seconds >= 0) {
+            return seconds * 1000;
+        }
+        long date = headers.getDate() != -1 ? headers.getDate() : now;
+        if (headers.getFirst(HttpHeaders.EXPIRES) != null) {
+            // An invalid date means already expired
+            long expires = headers.getExpires();
+            return expires != -1 ? Math.max(expires - date, 0) : 0;
+        }
+        long lastModified = headers.getLastModified();
+        return lastModified != -1 && lastModified < date ? Math.min((date - lastModified) / 10, MAX_HEURISTIC_MILLIS) : 0;
+    }
+
+    /**
+     * @return the directives of Cache-Control header values, by lowercase name, with an empty
+     * value for directives without one
+     */
+    static Map<String, String> directives(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> directives = new LinkedHashMap<>();
+        for (String value : values) {
+            for (String directive : value.split(",")) {
+                int equals = directive.indexOf('=');
+                String name = (equals < 0 ? directive : directive.substring(0, equals)).trim().toLowerCase(Locale.ROOT);
+                String argument = equals < 0 ? "" : directive.substring(equals + 1).trim();
+                if (argument.length() >= 2 && argument.charAt(0) == '"' && argument.charAt(argument.length() - 1) == '"') {
+                    argument = argument.substring(1, argument.length() - 1);
+                }
+                if (!name.isEmpty()) {
+                    directives.putIfAbsent(name, argument);
+                }
+            }
+        }
+        return directives;
+    }
+
+    private static long seconds(String value) {
+        if (value == null || value.isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String joined(List<String> values) {
+        return values == null ? null : String.join(",", values);
+    }
+
+    /**
+     * @return true if the response was stored for a request like this one, as far as its
+     * {@code Vary} header tells
+     */
+    boolean matches(HttpRequest request) {
+        if (vary == null) {
+            return true;
+        }
+        for (Map.Entry<String, String> entry : vary.entrySet()) {
+            if (!Objects.equals(entry.getValue(), joined(request.getHeaders().get(entry.getKey())))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isFresh(long now) {
+        return now < freshUntil;
+    }
+
+    String getETag() {
+        return headers.getETag();
+    }
+
+    long getLastModified() {
+        return headers.getLastModified();
+    }
+
+    int getBodyLength() {
+        return body.length;
+    }
+
+    /**
+     * @return this response updated with the headers of a 304 answering its revalidation
+     */
+    CachedResponse revalidated(HttpHeaders notModified, long now) {
+        HttpHeaders merged = new HttpHeaders();
+        headers.forEach((name, values) -> merged.put(name, new ArrayList<>(values)));
+        notModified.forEach((name, values) -> {
+            // Describes the 304's own empty body
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)) {
+                merged.put(name, new ArrayList<>(values));
+            }
+        });
+        return new CachedResponse(status, merged, body, now, freshUntil(merged, now), vary);
+    }
+
+    ClientHttpResponse toResponse(long now) {
+        HttpHeaders served = new HttpHeaders();
+        headers.forEach((name, values) -> served.put(name, new ArrayList<>(values)));
+        served.set(HttpHeaders.AGE, Long.toString(Math.max(now - storedAt, 0) / 1000));
+        return new StoredResponse(HttpStatusCode.valueOf(status), served, body);
+    }
+
+    /**
+     * @return roughly the memory the response takes
+     */
+    int size() {
+        int size = body.length + 64;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            size += header.getKey().length();
+            for (String value : header.getValue()) {
+                size += value.length();
+            }
+        }
+        return size;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeShort(status);
+        out.writeLong(storedAt);
+        out.writeLong(freshUntil);
+        out.writeShort(headers.size());
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            out.writeUTF(header.getKey());
+            out.writeShort(header.getValue().size());
+            for (String value : header.getValue()) {
+                out.writeUTF(value);
+            }
+        }
+        out.writeShort(vary == null ? -1 : vary.size());
+        if (vary != null) {
+            for (Map.Entry<String, String> entry : vary.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    out.writeUTF(entry.getValue());
+                }
+            }
+        }
+        out.writeInt(body.length);
+        out.write(body);
+    }
+
+    static CachedResponse readFrom(DataInputStream in) throws IOException {
+        int status = in.readUnsignedShort();
+        long storedAt = in.readLong();
+        long freshUntil = in.readLong();
+        HttpHeaders headers = new HttpHeaders();
+        int headerCount = in.readUnsignedShort();
+        for (int i = 0; i < headerCount; i++) {
+            String name = in.readUTF();
+            int valueCount = in.readUnsignedShort();
+            List<String> values = new ArrayList<>(valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                values.add(in.readUTF());
+            }
+            headers.put(name, values);
+        }
+        Map<String, String> vary = null;
+        int varyCount = in.readShort();
+        if (varyCount >= 0) {
+            vary = new LinkedHashMap<>();
+            for (int i = 0; i < varyCount; i++) {
+                String name = in.readUTF();
+                vary.put(name, in.readBoolean() ? in.readUTF() : null);
+            }
+        }
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        return new CachedResponse(status, headers, body, storedAt, freshUntil, vary);
+    }
+
+    private static final class StoredResponse implements ClientHttpResponse {
+        private final HttpStatusCode status;
+        private final HttpHeaders headers;
+        private final byte[] body;
+
+        StoredResponse(HttpStatusCode status, HttpHeaders headers, byte[] body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return status;
+        }
+
+        @Override
+        public String getStatusText() {
+            return "";
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() {
+            return new ByteArrayInputStream(body);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Answers GET requests from a {@link ResponseCache} while the stored response is fresh, and
+ * revalidates it with {@code If-None-Match} or {@code If-Modified-Since} once it is not.
+ *
+ * <p>Identical requests in flight at the same time share one call: the first goes to the
+ * network and the others wait for its response. Requests are identical when they have the same
+ * URI, {@code Accept} and {@code Authorization}, so callers with different credentials never
+ * share a response. A response that cannot be stored is not shared either, nor one that varies on
+ * a header the waiting request has a different value of; the waiting requests then make their own
+ * calls.
+ *
+ * <p>Requests with {@code Cache-Control: no-store} or conditional headers of their own go
+ * straight through; {@code no-cache} forces revalidation.
+ */
+public class CachingInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+
+    private final ResponseCache cache;
+    private final int maxEntryBytes;
+    private final LongSupplier clock;
+    private final ConcurrentHashMap<String, CompletableFuture<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder revalidated = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bytesSaved = new LongAdder();
+
+    CachingInterceptor(ResponseCache cache, int maxEntryBytes, LongSupplier clock) {
+        this.cache = cache;
+        this.maxEntryBytes = maxEntryBytes;
+        this.clock = clock;
+    }
+
+    public static CachingInterceptor of(RestClientProperties.Cache properties) throws IOException {
+        ResponseCache cache = new ResponseCache(properties.getMaxBytes(), properties.getDiskPath(),
+                properties.getDiskMaxBytes());
+        return new CachingInterceptor(cache, properties.getMaxEntryBytes(), System::currentTimeMillis);
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        HttpHeaders headers = request.getHeaders();
+        Map<String, String> directives = CachedResponse.directives(headers.get(HttpHeaders.CACHE_CONTROL));
+        if (request.getMethod() != HttpMethod.GET || directives.containsKey("no-store")
+                || headers.getIfNoneMatch().size() > 0 || headers.getIfModifiedSince() != -1) {
+            return execution.execute(request, body);
+        }
+        boolean noCache = directives.containsKey("no-cache") || "no-cache".equals(headers.getPragma());
+
+        String key = request.getURI().toString();
+        long now = clock.getAsLong();
+        CachedResponse cached = cache.get(key);
+        if (cached != null && !cached.matches(request)) {
+            cached = null;
+        }
+        if (cached != null && !noCache && cached.isFresh(now)) {
+            hits.increment();
+            bytesSaved.add(cached.getBodyLength());
+            return cached.toResponse(now);
+        }
+
+        String flightKey = key + '\n' + headers.getFirst(HttpHeaders.ACCEPT) + '\n'
+                + headers.getFirst(HttpHeaders.AUTHORIZATION);
+        CompletableFuture<CachedResponse> call = new CompletableFuture<>();
+        CompletableFuture<CachedResponse> leader = inFlight.putIfAbsent(flightKey, call);
+        if (leader != null) {
+            CachedResponse shared = await(leader);
+            // The leader may have got a variant for other values of the headers it varies on
+            if (shared == null || !shared.matches(request)) {
+                return execution.execute(request, body);
+            }
+            coalesced.increment();
+            bytesSaved.add(shared.getBodyLength());
+            return shared.toResponse(clock.getAsLong());
+        }
+        try {
+            return fetch(key, cached, request, body, execution, call);
+        } catch (IOException | RuntimeException | Error e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(flightKey, call);
+            // Not shared if nothing else completed it
+            call.complete(null);
+        }
+    }
+
+    private ClientHttpResponse fetch(String key, CachedResponse cached, HttpRequest request, byte[] body,
+                                     ClientHttpRequestExecution execution, CompletableFuture<CachedResponse> call)
+            throws IOException {
+        if (cached != null) {
+            if (cached.getETag() != null) {
+                request.getHeaders().setIfNoneMatch(cached.getETag());
+            }
+            if (cached.getLastModified() != -1) {
+                request.getHeaders().setIfModifiedSince(cached.getLastModified());
+            }
+        }
+        ClientHttpResponse response = execution.execute(request, body);
+        long now = clock.getAsLong();
+        int status = response.getStatusCode().value();
+
+        if (status == 304 && cached != null) {
+            CachedResponse refreshed = cached.revalidated(response.getHeaders(), now);
+            response.close();
+            cache.put(key, refreshed);
+            revalidated.increment();
+            bytesSaved.add(refreshed.getBodyLength());
+            call.complete(refreshed);
+            return refreshed.toResponse(now);
+        }
+        misses.increment();
+        if (!CachedResponse.storable(request, status, response.getHeaders(), now)
+                || response.getHeaders().getContentLength() > maxEntryBytes) {
+            return response;
+        }
+
+        InputStream in = response.getBody();
+        byte[] read = in.readNBytes(maxEntryBytes + 1);
+        if (read.length > maxEntryBytes) {
+            // Too big to keep after all, hand over what was read and the rest
+            return new PrefixedResponse(response, read, in);
+        }
+        response.close();
+        CachedResponse stored = CachedResponse.of(request, status, response.getHeaders(), read, now);
+        cache.put(key, stored);
+        call.complete(stored);
+        return stored.toResponse(now);
+    }
+
+    private static CachedResponse await(CompletableFuture<CachedResponse> leader) throws IOException {
+        try {
+            return leader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for an identical request in flight", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException(cause.getMessage(), cause);
+            }
+            throw new IOException("Identical request in flight failed", cause);
+        }
+    }
+
+    /**
+     * @return the share of cacheable requests answered without a full response from the network
+     */
+    public double getHitRatio() {
+        long answered = hits.sum() + revalidated.sum() + coalesced.sum();
+        long total = answered + misses.sum();
+        return total == 0 ? 0 : (double) answered / total;
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        register(registry, "hit", hits);
+        register(registry, "miss", misses);
+        register(registry, "revalidated", revalidated);
+        register(registry, "coalesced", coalesced);
+        FunctionCounter.builder("http.client.cache.bytes.saved", bytesSaved, LongAdder::sum)
+                .description("Response body bytes not transferred thanks to the cache")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("http.client.cache.hit.ratio", this, CachingInterceptor::getHitRatio)
+                .register(registry);
+        Gauge.builder("http.client.cache.size", cache, ResponseCache::getMemoryBytes)
+                .tag("tier", "memory")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("http.client.cache.size", cache, ResponseCache::getDiskBytes)
+                .tag("tier", "disk")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static void register(MeterRegistry registry, String result, LongAdder counter) {
+        FunctionCounter.builder("http.client.cache.requests", counter, LongAdder::sum)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private static final class PrefixedResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final InputStream body;
+
+        PrefixedResponse(ClientHttpResponse delegate, byte[] prefix, InputStream rest) {
+            this.delegate = delegate;
+            this.body = new SequenceInputStream(new ByteArrayInputStream(prefix), rest);
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() {
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.http;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingInterceptorTests {
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+    private final AtomicInteger calls = new AtomicInteger();
+    private final List<HttpHeaders> sent = new ArrayList<>();
+
+    private CachingInterceptor interceptor() throws IOException {
+        return new CachingInterceptor(new ResponseCache(1024 * 1024, null, 0), 1024, now::get);
+    }
+
+    private ClientHttpRequestExecution respond(int status, String body, String... headers) {
+        return (request, requestBody) -> {
+            calls.incrementAndGet();
+            sent.add(request.getHeaders());
+            MockClientHttpResponse response = new MockClientHttpResponse(body.getBytes(StandardCharsets.UTF_8),
+                    HttpStatus.valueOf(status));
+            for (int i = 0; i < headers.length; i += 2) {
+                response.getHeaders().add(headers[i], headers[i + 1]);
+            }
+            return response;
+        };
+    }
+
+    private static MockClientHttpRequest get(String uri) {
+        return new MockClientHttpRequest(HttpMethod.GET, URI.create(uri));
+    }
+
+    private static String body(ClientHttpResponse response) throws IOException {
+        try (response) {
+            return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void testServesFreshResponseFromCache() throws IOException {
+        CachingInterceptor interceptor = interceptor();
+        ClientHttpRequestExecution execution = respond(200, "countries", "Cache-Control", "max-age=60");
+
+        assertEquals("countries", body(interceptor.intercept(get("https://api.example.com/countries"), new byte[0], execution)));
+        now.addAndGet(30_000);
+        ClientHttpResponse cached = interceptor.intercept(get("https://api.example.com/countries"), new byte[0], execution);
+
+        assertEquals("30", cached.getHeaders().getFirst(HttpHeaders.AGE));
+        assertEquals("countries", body(cached));
+        assertEquals(1, calls.get());
+        assertEquals(9L, interceptor.getBytesSaved());
+        assertEquals(0.5, interceptor.getHitRatio());
+
+        now.addAndGet(30_000);
+        interceptor.intercept(get("https://api.example.com/countries"), new byte[0], execution).close();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testRevalidatesStaleResponse() throws IOException {
+        CachingInterceptor interceptor = interceptor();
+        interceptor.intercept(get("https://api.example.com/rates"), new byte[0],
+                respond(200, "rates", "ETag", "\"v1\"", "Cache-Control", "no-cache")).close();
+
+        ClientHttpResponse revalidated = interceptor.intercept(get("https://api.example.com/rates"), new byte[0],
+                respond(304, "", "ETag", "\"v1\"", "Cache-Control", "max-age=10"));
+
+        assertEquals("\"v1\"", sent.get(1).getFirst(HttpHeaders.IF_NONE_MATCH));
+        assertEquals(200, revalidated.getStatusCode().value());
+        assertEquals("rates", body(revalidated));
+        // Fresh now, from the 304's headers
+        interceptor.intercept(get("https://api.example.com/rates"), new byte[0], respond(500, "")).close();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void testDoesNotStoreWhatTheServerForbids() throws IOException {
+        CachingInterceptor interceptor = interceptor();
+        for (String cacheControl : new String[]{"no-store", "private, max-age=60"}) {
+            for (int i = 0; i < 2; i++) {
+                interceptor.intercept(get("https://api.example.com/" + cacheControl.length()), new byte[0],
+                        respond(200, "x", "Cache-Control", cacheControl)).close();
+            }
+        }
+        MockClientHttpRequest authorized = get("https://api.example.com/me");
+        authorized.getHeaders().setBearerAuth("token");
+        for (int i = 0; i < 2; i++) {
+            interceptor.intercept(authorized, new byte[0], respond(200, "me", "Cache-Control", "max-age=60")).close();
+        }
+
+        assertEquals(6, calls.get());
+    }
+
+    @Test
+    void testCoalescesIdenticalRequestsInFlight() throws Exception {
+        CachingInterceptor interceptor = interceptor();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ClientHttpRequestExecution slow = (request, body) -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            return respond(200, "currencies", "Cache-Control", "max-age=0", "ETag", "\"c\"").execute(request, body);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(
+                    () -> body(interceptor.intercept(get("https://api.example.com/currencies"), new byte[0], slow)));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            List<Future<String>> followers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                followers.add(executor.submit(
+                        () -> body(interceptor.intercept(get("https://api.example.com/currencies"), new byte[0], slow))));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("currencies", first.get(5, TimeUnit.SECONDS));
+            for (Future<String> follower : followers) {
+                assertEquals("currencies", follower.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, calls.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDoesNotShareVariantForOtherVaryValues() throws Exception {
+        CachingInterceptor interceptor = interceptor();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ClientHttpRequestExecution byLanguage = (request, body) -> {
+            String language = request.getHeaders().getFirst(HttpHeaders.ACCEPT_LANGUAGE);
+            if ("en".equals(language)) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return respond(200, language, "Cache-Control", "max-age=60", "Vary", "Accept-Language")
+                    .execute(request, body);
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> english = executor.submit(() -> {
+                MockClientHttpRequest request = get("https://api.example.com/countries");
+                request.getHeaders().set(HttpHeaders.ACCEPT_LANGUAGE, "en");
+                return body(interceptor.intercept(request, new byte[0], byLanguage));
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<String> german = executor.submit(() -> {
+                MockClientHttpRequest request = get("https://api.example.com/countries");
+                request.getHeaders().set(HttpHeaders.ACCEPT_LANGUAGE, "de");
+                return body(interceptor.intercept(request, new byte[0], byLanguage));
+            });
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("en", english.get(5, TimeUnit.SECONDS));
+            assertEquals("de", german.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDiskTierOutlivesMemory() throws IOException {
+        ClientHttpRequestExecution execution = respond(200, "holidays", "Cache-Control", "max-age=3600");
+        new CachingInterceptor(new ResponseCache(1024, directory, 1024 * 1024), 1024, now::get)
+                .intercept(get("https://api.example.com/holidays"), new byte[0], execution).close();
+
+        CachingInterceptor restarted = new CachingInterceptor(new ResponseCache(1024, directory, 1024 * 1024), 1024, now::get);
+
+        assertEquals("holidays", body(restarted.intercept(get("https://api.example.com/holidays"), new byte[0], execution)));
+        assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,55 @@
+package com.yourpackage.aspect;
+
+import java.util.Collection;
+
+/**
+ * Immutable set of names matched ignoring case, built once so that lookups neither lowercase
+ * nor allocate. Names are kept in an open-addressing table hashed on their case-folded
+ * characters and compared with {@link String#regionMatches(boolean, int, String, int, int)}.
+ */
+final class CaseInsensitiveNames {
+
+    private final String[] table;
+    private final int mask;
+
+    CaseInsensitiveNames(Collection<String> names) {
+        // At most a quarter full, so probe sequences stay short
+        int capacity = Integer.highestOneBit(Math.max(names.size(), 1) * 4 - 1) << 1;
+        this.table = new String[capacity];
+        this.mask = capacity - 1;
+        for (String name : names) {
+            if (name != null) {
+                table[slot(name)] = name;
+            }
+        }
+    }
+
+    /**
+     * @return true if the name equals one of the names, ignoring case
+     */
+    boolean contains(String name) {
+        return name != null && table[slot(name)] != null;
+    }
+
+    // The slot holding the name, or the empty slot where it would go
+    private int slot(String name) {
+        int index = hash(name) & mask;
+        while (true) {
+            String entry = table[index];
+            if (entry == null
+                    || entry.length() == name.length() && entry.regionMatches(true, 0, name, 0, name.length())) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    // Characters equal ignoring case fold to the same character, as in String.equalsIgnoreCase
+    private static int hash(String name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+        return h ^ (h >>> 16);
+    }
+}
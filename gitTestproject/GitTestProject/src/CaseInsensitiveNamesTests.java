@@ -0,0 +1,42 @@
+package com.yourpackage.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CaseInsensitiveNamesTests {
+
+    @Test
+    void testMatchesIgnoringCase() {
+        CaseInsensitiveNames names = new CaseInsensitiveNames(List.of("ssn", "password", "cardNumber", "pin"));
+
+        assertTrue(names.contains("ssn"));
+        assertTrue(names.contains("SSN"));
+        assertTrue(names.contains("PassWord"));
+        assertTrue(names.contains("cardnumber"));
+        assertFalse(names.contains("passwords"));
+        assertFalse(names.contains("pi"));
+        assertFalse(names.contains(""));
+        assertFalse(names.contains(null));
+    }
+
+    @Test
+    void testEmpty() {
+        CaseInsensitiveNames names = new CaseInsensitiveNames(List.of());
+
+        assertFalse(names.contains("ssn"));
+    }
+
+    @Test
+    void testManyNames() {
+        List<String> all = List.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "aa", "bb");
+        CaseInsensitiveNames names = new CaseInsensitiveNames(all);
+
+        for (String name : all) {
+            assertTrue(names.contains(name.toUpperCase()));
+        }
+        assertFalse(names.contains("n"));
+    }
+}
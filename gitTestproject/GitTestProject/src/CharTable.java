@@ -0,0 +1,28 @@
+package com.example.util;
+
+/**
+ * 128-entry lookup table for a set of ASCII characters. Characters outside ASCII are never members.
+ */
+final class CharTable {
+
+    private final boolean[] members = new boolean[128];
+
+    /**
+     * Compile a table from the given characters.
+     *
+     * @param characters the ASCII characters that are members of the table
+     */
+    CharTable(String characters) {
+        for (int i = 0; i < characters.length(); i++) {
+            char c = characters.charAt(i);
+            if (c >= 128) {
+                throw new IllegalArgumentException("Not an ASCII character: " + c);
+            }
+            members[c] = true;
+        }
+    }
+
+    boolean contains(char c) {
+        return c < 128 && members[c];
+    }
+}
@@ -1,20 +1,11 @@
 package com.example.util;
 
-import java.util.Arrays;
-import java.util.Set;
-
 public class ClientNameFormatter {
 
-    // Predefined list of special characters
-    private static final Set<Character> SPECIAL_CHARACTERS = Set.of(
-            '\'', '-', '/', '+', '&', '(', ')', '[', ']', '"', ',', '.', '!'
-    );
-
-    // Special Name Prefixes
-    private static final String[] NAME_PREFIXES = {
-            "Mc", "Mac", "O'", "D'", "De", "Van", "Von", "Le", "La", "Da", "Di", "Du", "Del",
-            "De La", "Van Der", "De Los", "St.", "San", "Dos"
-    };
+    // Prefix-aware capitalization, special characters from FormatterRules.NAME_SPECIAL_CHARACTERS
+    private static final FormatterProfile PROFILE = FormatterProfile
+            .capitalizeLetters(FormatterRules.NAME_PREFIX_TRIE, FormatterRules.NAME_SPECIAL_CHARACTER_TABLE)
+            .trimmingWords();
 
     /**
      * Format the first name.
@@ -29,6 +20,17 @@ public class ClientNameFormatter {
         return formatName(firstName);
     }
 
+    /**
+     * Format the first name into the given output without creating intermediate objects.
+     * A blank name is copied unchanged and a null name appends nothing.
+     *
+     * @param firstName the raw first name
+     * @param out       receives the formatted first name
+     */
+    public static void formatFirstName(CharSequence firstName, Appendable out) {
+        FormatterEngine.formatTo(firstName, out, ClientNameFormatter::appendName);
+    }
+
     /**
      * Format the last name.
      *
@@ -43,62 +45,33 @@ public class ClientNameFormatter {
     }
 
     /**
-     * Format a name based on the rules for capitalization and special characters.
+     * Format the last name into the given output without creating intermediate objects.
+     * A blank name is copied unchanged and a null name appends nothing.
      *
-     * @param name the raw name
-     * @return the formatted name
+     * @param lastName the raw last name
+     * @param out      receives the formatted last name
      */
-    private static String formatName(String name) {
-        String[] parts = name.split("\\s+");
-        return Arrays.stream(parts)
-                .map(ClientNameFormatter::capitalizeNamePart)
-                .reduce("", (a, b) -> a + " " + b).trim();
+    public static void formatLastName(CharSequence lastName, Appendable out) {
+        FormatterEngine.formatTo(lastName, out, ClientNameFormatter::appendName);
     }
 
     /**
-     * Capitalize a single name part.
+     * Format a name based on the rules for capitalization and special characters.
      *
-     * @param part the raw name part
-     * @return the formatted name part
+     * @param name the raw name
+     * @return the formatted name
      */
-    private static String capitalizeNamePart(String part) {
-        if (part.isBlank()) {
-            return part;
-        }
-
-        for (String prefix : NAME_PREFIXES) {
-            if (part.toUpperCase().startsWith(prefix.toUpperCase()) && part.length() > prefix.length()) {
-                return prefix + capitalizeRest(part.substring(prefix.length()));
-            }
-        }
-
-        return capitalizeRest(part);
+    private static String formatName(String name) {
+        StringBuilder formatted = new StringBuilder(name.length());
+        FormatterEngine.formatWords(name, PROFILE, formatted);
+        return formatted.toString();
     }
 
-    /**
-     * Capitalize the first letter and format the rest of the word, preserving special characters.
-     *
-     * @param part the raw name part
-     * @return the formatted name part
-     */
-    private static String capitalizeRest(String part) {
-        StringBuilder formatted = new StringBuilder();
-        boolean capitalizeNext = true; // Start by capitalizing the first letter
-
-        for (char c : part.toCharArray()) {
-            if (Character.isLetter(c)) {
-                formatted.append(capitalizeNext ? Character.toUpperCase(c) : Character.toLowerCase(c));
-                capitalizeNext = false; // Reset after processing a letter
-            } else if (SPECIAL_CHARACTERS.contains(c)) {
-                formatted.append(c); // Append special characters as-is
-                capitalizeNext = true; // Capitalize next letter after a special character
-            } else if (Character.isDigit(c)) {
-                formatted.append(c); // Preserve numbers
-            } else {
-                formatted.append(c); // Append any other characters as-is
-            }
+    private static void appendName(CharSequence name, StringBuilder out) {
+        if (FormatterEngine.isBlank(name)) {
+            out.append(name);
+            return;
         }
-
-        return formatted.toString().replaceAll("\\s+", " ").trim(); // Normalize spaces
+        FormatterEngine.formatWords(name, PROFILE, out);
     }
 }
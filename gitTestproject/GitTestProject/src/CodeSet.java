@@ -0,0 +1,156 @@
+package com.example.util;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Immutable, case-insensitive set of short ASCII codes (provinces, states, designators, ...)
+ * stored in a collision-free hash table. The table and its hash multiplier are chosen once
+ * at construction, so a lookup hashes the probe in place, checks a single slot and never
+ * creates an uppercase or lowercase copy of the input.
+ */
+final class CodeSet {
+
+    /**
+     * How a probe containing non-ASCII characters is compared, matching the {@code Set} lookup
+     * the codes replace.
+     */
+    enum Fold {
+        /** {@code set.contains(probe.toUpperCase())} */
+        UPPER,
+        /** {@code set.contains(probe.toLowerCase())} */
+        LOWER,
+        /** {@code code.equalsIgnoreCase(probe)} */
+        IGNORE_CASE
+    }
+
+    private static final int MAX_MULTIPLIER = 1 << 16;
+
+    private final Fold fold;
+    private final String[] codes;
+    private final int maxLength;
+    private final String[] slots;
+    private final int multiplier;
+    private final int shift;
+
+    /**
+     * Compile a code set.
+     *
+     * @param fold   how non-ASCII probes are folded before comparison
+     * @param groups the codes, possibly spread over several rule arrays
+     */
+    CodeSet(Fold fold, String[]... groups) {
+        Set<String> unique = new LinkedHashSet<>();
+        int maxLength = 0;
+        for (String[] group : groups) {
+            for (String code : group) {
+                for (int i = 0; i < code.length(); i++) {
+                    if (code.charAt(i) >= 0x80) {
+                        throw new IllegalArgumentException("Not an ASCII code: " + code);
+                    }
+                }
+                unique.add(code);
+                maxLength = Math.max(maxLength, code.length());
+            }
+        }
+        this.fold = fold;
+        this.codes = unique.toArray(new String[0]);
+        this.maxLength = maxLength;
+
+        // Smallest power-of-two table, at least twice the code count, for which some multiplier is collision-free
+        int bits = 1;
+        while ((1 << bits) < codes.length * 2) {
+            bits++;
+        }
+        while (true) {
+            for (int candidate = 31; candidate < MAX_MULTIPLIER; candidate += 2) {
+                String[] table = place(codes, candidate, 32 - bits);
+                if (table != null) {
+                    this.slots = table;
+                    this.multiplier = candidate;
+                    this.shift = 32 - bits;
+                    return;
+                }
+            }
+            bits++;
+        }
+    }
+
+    private static String[] place(String[] codes, int multiplier, int shift) {
+        String[] table = new String[1 << (32 - shift)];
+        for (String code : codes) {
+            int slot = slot(hash(code, 0, code.length(), multiplier), shift);
+            if (table[slot] != null) {
+                return null;
+            }
+            table[slot] = code;
+        }
+        return table;
+    }
+
+    // Only called with ASCII input
+    private static int hash(CharSequence input, int start, int end, int multiplier) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash * multiplier + toUpperAscii(input.charAt(i));
+        }
+        return hash;
+    }
+
+    private static int slot(int hash, int shift) {
+        return (hash * 0x9E3779B9) >>> shift;
+    }
+
+    private static char toUpperAscii(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+
+    boolean contains(CharSequence input) {
+        return find(input, 0, input.length()) != null;
+    }
+
+    /**
+     * Look up a range of the input.
+     *
+     * @return the code as declared in the rule set, or {@code null} if the range is not a member
+     */
+    String find(CharSequence input, int start, int end) {
+        if (end - start > maxLength) {
+            // Case mappings never shorten a string, so longer probes cannot match
+            return null;
+        }
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c >= 0x80) {
+                return findFolded(input.subSequence(start, end).toString());
+            }
+            hash = hash * multiplier + toUpperAscii(c);
+        }
+        String code = slots[slot(hash, shift)];
+        return code != null && regionMatchesIgnoreCase(code, input, start, end) ? code : null;
+    }
+
+    private static boolean regionMatchesIgnoreCase(String code, CharSequence input, int start, int end) {
+        if (code.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < code.length(); i++) {
+            if (toUpperAscii(code.charAt(i)) != toUpperAscii(input.charAt(start + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Rare path for non-ASCII probes, e.g. a dotless i that uppercases to I
+    private String findFolded(String probe) {
+        String folded = fold == Fold.UPPER ? probe.toUpperCase() : fold == Fold.LOWER ? probe.toLowerCase() : probe;
+        for (String code : codes) {
+            if (fold == Fold.IGNORE_CASE ? code.equalsIgnoreCase(folded) : code.equals(folded)) {
+                return code;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the requests in flight, in total and per route, and reports how full the caps are.
+ *
+ * <p>The JDK client opens a connection whenever none is idle and has no limits of its own, so
+ * this is what bounds its pool: over HTTP/1.1 each request in flight holds one connection. A
+ * request holds its permits until its response is closed, and waits for them up to the acquire
+ * timeout before failing with an {@link IOException}. Register it as the last interceptor, so
+ * nothing answered before the network takes a permit.
+ */
+public class ConnectionLimiter implements ClientHttpRequestInterceptor, MeterBinder {
+
+    private final int maxTotal;
+    private final int maxPerRoute;
+    private final long acquireTimeoutNanos;
+    private final Semaphore total;
+    private final ConcurrentHashMap<String, Route> routes = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    public ConnectionLimiter(int maxTotal, int maxPerRoute, Duration acquireTimeout) {
+        if (maxTotal <= 0 || maxPerRoute <= 0) {
+            throw new IllegalArgumentException("Connection limits must be positive: " + maxTotal + ", " + maxPerRoute);
+        }
+        this.maxTotal = maxTotal;
+        this.maxPerRoute = maxPerRoute;
+        this.acquireTimeoutNanos = acquireTimeout.toNanos();
+        this.total = new Semaphore(maxTotal);
+    }
+
+    public static ConnectionLimiter of(RestClientProperties.Pool pool) {
+        return new ConnectionLimiter(pool.getMaxTotal(), pool.getMaxPerRoute(), pool.getAcquireTimeout());
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Route route = route(request.getURI());
+        acquire(route);
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                route.permits.release();
+                total.release();
+            }
+        };
+        try {
+            return new ReleasingResponse(execution.execute(request, body), release);
+        } catch (IOException | RuntimeException | Error e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    private void acquire(Route route) throws IOException {
+        long start = System.nanoTime();
+        route.pending.incrementAndGet();
+        boolean routeAcquired = false;
+        try {
+            if (!route.permits.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw timeout(route);
+            }
+            routeAcquired = true;
+            long remaining = acquireTimeoutNanos - (System.nanoTime() - start);
+            if (!total.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                route.permits.release();
+                throw timeout(route);
+            }
+        } catch (InterruptedException e) {
+            // A cancelled caller, the route permit must not leak with it
+            if (routeAcquired) {
+                route.permits.release();
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection to " + route.name, e);
+        } finally {
+            route.pending.decrementAndGet();
+            route.waits.increment();
+            route.waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private IOException timeout(Route route) {
+        route.timeouts.increment();
+        return new IOException("Timed out after " + Duration.ofNanos(acquireTimeoutNanos)
+                + " waiting for a connection to " + route.name);
+    }
+
+    private Route route(URI uri) {
+        int port = uri.getPort() != -1 ? uri.getPort() : "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        String name = uri.getScheme() + "://" + uri.getHost() + ":" + port;
+        Route route = routes.get(name);
+        if (route != null) {
+            return route;
+        }
+        Route created = new Route(name, maxPerRoute);
+        route = routes.putIfAbsent(name, created);
+        if (route != null) {
+            return route;
+        }
+        // Read after publishing, so either this thread or bindTo registers the new route
+        MeterRegistry current = registry;
+        if (current != null) {
+            register(current, created);
+        }
+        return created;
+    }
+
+    /**
+     * @return the requests in flight across all routes
+     */
+    public int getActive() {
+        return maxTotal - total.availablePermits();
+    }
+
+    /**
+     * @return the state of every route used so far, by route
+     */
+    public Map<String, RouteStats> snapshot() {
+        Map<String, RouteStats> snapshot = new TreeMap<>();
+        routes.forEach((name, route) -> snapshot.put(name, route.stats()));
+        return snapshot;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("http.client.pool.active", this, ConnectionLimiter::getActive)
+                .description("Requests in flight on all routes")
+                .register(registry);
+        Gauge.builder("http.client.pool.max", this, limiter -> limiter.maxTotal)
+                .register(registry);
+        this.registry = registry;
+        routes.values().forEach(route -> register(registry, route));
+    }
+
+    private void register(MeterRegistry registry, Route route) {
+        Gauge.builder("http.client.pool.route.active", route, r -> r.maxPerRoute - r.permits.availablePermits())
+                .tag("route", route.name)
+                .description("Requests in flight on the route")
+                .register(registry);
+        Gauge.builder("http.client.pool.route.pending", route, r -> r.pending.get())
+                .tag("route", route.name)
+                .description("Requests waiting for a connection to the route")
+                .register(registry);
+        Gauge.builder("http.client.pool.route.max", route, r -> r.maxPerRoute)
+                .tag("route", route.name)
+                .register(registry);
+        FunctionTimer.builder("http.client.pool.route.wait", route,
+                        r -> r.waits.sum(), r -> r.waitNanos.sum(), TimeUnit.NANOSECONDS)
+                .tag("route", route.name)
+                .description("Time spent waiting for a connection to the route")
+                .register(registry);
+        FunctionCounter.builder("http.client.pool.route.timeouts", route, r -> r.timeouts.sum())
+                .tag("route", route.name)
+                .register(registry);
+    }
+
+    private static final class Route {
+        final String name;
+        final int maxPerRoute;
+        final Semaphore permits;
+        final AtomicInteger pending = new AtomicInteger();
+        final LongAdder waits = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder timeouts = new LongAdder();
+
+        Route(String name, int maxPerRoute) {
+            this.name = name;
+            this.maxPerRoute = maxPerRoute;
+            this.permits = new Semaphore(maxPerRoute);
+        }
+
+        RouteStats stats() {
+            return new RouteStats(maxPerRoute - permits.availablePermits(), pending.get(), maxPerRoute,
+                    waits.sum(), waitNanos.sum(), timeouts.sum());
+        }
+    }
+
+    /**
+     * How full one route is.
+     */
+    public static final class RouteStats {
+        private final int active;
+        private final int pending;
+        private final int max;
+        private final long requests;
+        private final long waitNanos;
+        private final long timeouts;
+
+        RouteStats(int active, int pending, int max, long requests, long waitNanos, long timeouts) {
+            this.active = active;
+            this.pending = pending;
+            this.max = max;
+            this.requests = requests;
+            this.waitNanos = waitNanos;
+            this.timeouts = timeouts;
+        }
+
+        public int getActive() {
+            return active;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public int getMax() {
+            return max;
+        }
+
+        /**
+         * @return the requests that asked for a connection, including those that timed out
+         */
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        public long getTimeouts() {
+            return timeouts;
+        }
+
+        @Override
+        public String toString() {
+            return active + "/" + max + " active, " + pending + " pending, " + timeouts + " timeouts";
+        }
+    }
+
+    // Gives the permits back when the response is closed, which RestClient does once it has read it
+    static final class ReleasingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Runnable release;
+
+        ReleasingResponse(ClientHttpResponse delegate, Runnable release) {
+            this.delegate = delegate;
+            this.release = release;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                delegate.close();
+            } finally {
+                release.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimiterTests {
+
+    private static final ClientHttpRequestExecution OK =
+            (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+
+    private static MockClientHttpRequest request(String uri) {
+        return new MockClientHttpRequest(HttpMethod.GET, URI.create(uri));
+    }
+
+    @Test
+    void testHoldsPermitUntilResponseClosed() throws IOException {
+        ConnectionLimiter limiter = new ConnectionLimiter(10, 2, Duration.ofMillis(50));
+
+        ClientHttpResponse first = limiter.intercept(request("https://api.example.com/a"), new byte[0], OK);
+        ClientHttpResponse second = limiter.intercept(request("https://api.example.com:443/b"), new byte[0], OK);
+        assertEquals(2, limiter.getActive());
+
+        IOException timeout = assertThrows(IOException.class,
+                () -> limiter.intercept(request("https://api.example.com/c"), new byte[0], OK));
+        assertTrue(timeout.getMessage().contains("https://api.example.com:443"));
+        // Another route has its own permits
+        limiter.intercept(request("http://other.example.com/a"), new byte[0], OK).close();
+
+        first.close();
+        first.close();
+        limiter.intercept(request("https://api.example.com/c"), new byte[0], OK).close();
+        second.close();
+
+        assertEquals(0, limiter.getActive());
+        ConnectionLimiter.RouteStats stats = limiter.snapshot().get("https://api.example.com:443");
+        assertEquals(0, stats.getActive());
+        assertEquals(4L, stats.getRequests());
+        assertEquals(1L, stats.getTimeouts());
+    }
+
+    @Test
+    void testTotalLimitSpansRoutes() throws IOException {
+        ConnectionLimiter limiter = new ConnectionLimiter(1, 5, Duration.ofMillis(20));
+
+        ClientHttpResponse response = limiter.intercept(request("http://a.example.com/"), new byte[0], OK);
+
+        assertThrows(IOException.class, () -> limiter.intercept(request("http://b.example.com/"), new byte[0], OK));
+        // The route permit taken before the total one ran out is given back
+        assertEquals(0, limiter.snapshot().get("http://b.example.com:80").getActive());
+        response.close();
+    }
+
+    @Test
+    void testReleasesRoutePermitWhenInterrupted() throws Exception {
+        ConnectionLimiter limiter = new ConnectionLimiter(1, 1, Duration.ofSeconds(10));
+        ClientHttpResponse response = limiter.intercept(request("http://a.example.com/"), new byte[0], OK);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.intercept(request("http://b.example.com/"), new byte[0], OK).close();
+            } catch (Throwable e) {
+                failure.set(e);
+            }
+        });
+        waiter.start();
+        // Holding the route permit, waiting for the total one
+        while (limiter.snapshot().get("http://b.example.com:80") == null
+                || limiter.snapshot().get("http://b.example.com:80").getActive() == 0) {
+            Thread.sleep(1);
+        }
+
+        waiter.interrupt();
+        waiter.join(5_000);
+
+        assertTrue(failure.get() instanceof IOException, String.valueOf(failure.get()));
+        assertEquals(0, limiter.snapshot().get("http://b.example.com:80").getActive());
+        response.close();
+        limiter.intercept(request("http://b.example.com/"), new byte[0], OK).close();
+    }
+
+    @Test
+    void testReleasesWhenRequestFails() {
+        ConnectionLimiter limiter = new ConnectionLimiter(1, 1, Duration.ofMillis(20));
+
+        assertThrows(IOException.class, () -> limiter.intercept(request("http://a.example.com/"), new byte[0],
+                (request, body) -> {
+                    throw new IOException("Connection refused");
+                }));
+
+        assertEquals(0, limiter.getActive());
+    }
+}
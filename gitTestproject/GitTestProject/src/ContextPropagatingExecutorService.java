@@ -0,0 +1,122 @@
+package com.example.tracing;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs every task with the trace ids and MDC of the thread that submitted it, see
+ * {@link TraceContext#capture()}. Works with any executor, including one that starts a virtual
+ * thread per task, and with {@code CompletableFuture}'s async methods when passed as their
+ * executor. A submitting thread without ids or MDC hands its tasks over unwrapped.
+ */
+public class ContextPropagatingExecutorService implements ExecutorService {
+
+    private final ExecutorService delegate;
+
+    public ContextPropagatingExecutorService(ExecutorService delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return an executor running tasks with the submitting thread's trace context
+     */
+    public static Executor wrap(Executor executor) {
+        if (executor instanceof ExecutorService) {
+            return wrap((ExecutorService) executor);
+        }
+        return task -> executor.execute(TraceContext.capture().wrap(task));
+    }
+
+    /**
+     * @return an executor service running tasks with the submitting thread's trace context
+     */
+    public static ExecutorService wrap(ExecutorService executor) {
+        return executor instanceof ContextPropagatingExecutorService
+                ? executor
+                : new ContextPropagatingExecutorService(executor);
+    }
+
+    private static <T> List<Callable<T>> wrapAll(Collection<? extends Callable<T>> tasks) {
+        TraceContext.Snapshot snapshot = TraceContext.capture();
+        List<Callable<T>> wrapped = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            wrapped.add(snapshot.wrap(task));
+        }
+        return wrapped;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        delegate.execute(TraceContext.capture().wrap(command));
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        return delegate.submit(TraceContext.capture().wrap(task));
+    }
+
+    @Override
+    public <T> Future<T> submit(Runnable task, T result) {
+        return delegate.submit(TraceContext.capture().wrap(task), result);
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        return delegate.submit(TraceContext.capture().wrap(task));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+        return delegate.invokeAll(wrapAll(tasks));
+    }
+
+    @Override
+    public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        return delegate.invokeAll(wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        return delegate.invokeAny(wrapAll(tasks));
+    }
+
+    @Override
+    public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return delegate.invokeAny(wrapAll(tasks), timeout, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
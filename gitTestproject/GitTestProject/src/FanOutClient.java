@@ -0,0 +1,348 @@
+package com.example.http;
+
+import com.example.tracing.ContextPropagatingExecutorService;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs independent calls through the external provider's {@code RestClient} at the same time,
+ * so a batch takes about as long as its slowest call instead of the sum of them.
+ *
+ * <p>Each call runs on a virtual thread where the runtime has them, else on a pool of
+ * {@code max-concurrency} platform threads, with the trace context of the caller. Results come
+ * back in the order of the calls. At most {@code max-concurrency} requests of all batches are in
+ * flight at once, and at most {@code max-per-host} to one host; a request holds its turn from
+ * being sent until its response is closed, and waits for it within the batch's deadline before
+ * it asks the {@link ConnectionLimiter} for a connection. Only requests count, not the code of a
+ * call around them, so a call may start a batch of its own.
+ *
+ * <p>The first call to fail fails the batch: the calls still running are interrupted, which
+ * aborts their requests, and the caller gets that call's exception. So does the caller when the
+ * deadline passes. A batch started from within a call keeps the deadline of the outer batch if
+ * it is sooner, and runs calls no thread has picked up yet on its own thread, so outer calls
+ * occupying the pool cannot starve it. With {@code deadline-header} set every request carries
+ * the milliseconds left.
+ */
+public class FanOutClient implements ClientHttpRequestInterceptor, DisposableBean {
+
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private final RestClient client;
+    private final ExecutorService executor;
+    private final int maxPerHost;
+    private final Duration timeout;
+    private final String deadlineHeader;
+    private final Semaphore total;
+    private final ConcurrentHashMap<String, Semaphore> hosts = new ConcurrentHashMap<>();
+
+    FanOutClient(RestClient client, ExecutorService executor, int maxConcurrency, int maxPerHost, Duration timeout,
+                 String deadlineHeader) {
+        if (maxConcurrency <= 0 || maxPerHost <= 0) {
+            throw new IllegalArgumentException("Fan-out limits must be positive: " + maxConcurrency + ", " + maxPerHost);
+        }
+        this.client = client != null
+                ? client.mutate().requestInterceptors(interceptors -> insertBeforeLimiter(interceptors, this)).build()
+                : null;
+        this.executor = ContextPropagatingExecutorService.wrap(executor);
+        this.maxPerHost = maxPerHost;
+        this.timeout = timeout;
+        this.deadlineHeader = deadlineHeader;
+        this.total = new Semaphore(maxConcurrency);
+    }
+
+    public static FanOutClient of(RestClient client, RestClientProperties.FanOut fanOut) {
+        return new FanOutClient(client, newExecutor(fanOut.getMaxConcurrency()), fanOut.getMaxConcurrency(),
+                fanOut.getMaxPerHost(), fanOut.getTimeout(), fanOut.getDeadlineHeader());
+    }
+
+    /**
+     * Adds the interceptor ahead of the {@link ConnectionLimiter}, or last without one, so a
+     * request waiting for its fan-out turn holds no connection permits meanwhile.
+     */
+    static void insertBeforeLimiter(List<ClientHttpRequestInterceptor> interceptors,
+                                    ClientHttpRequestInterceptor interceptor) {
+        for (int i = 0; i < interceptors.size(); i++) {
+            if (interceptors.get(i) instanceof ConnectionLimiter) {
+                interceptors.add(i, interceptor);
+                return;
+            }
+        }
+        interceptors.add(interceptor);
+    }
+
+    /**
+     * @return an executor starting a virtual thread per task where the runtime has them, else a
+     * pool of the given number of threads
+     */
+    static ExecutorService newExecutor(int threads) {
+        try {
+            return (ExecutorService) MethodHandles.publicLookup()
+                    .findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class))
+                    .invoke();
+        } catch (Throwable e) {
+            // Older runtime, or virtual threads still a preview feature
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, "fan-out-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * @return the time left of the batch the current thread runs a call of, null outside one
+     */
+    public static Duration remaining() {
+        Long until = deadline.get();
+        return until == null ? null : Duration.ofNanos(Math.max(until - System.nanoTime(), 0));
+    }
+
+    /**
+     * @return the bodies of GET requests to the uris, in the same order, within the default timeout
+     */
+    public <T> List<T> getAll(List<String> uris, Class<T> type) {
+        List<Call<T>> calls = new ArrayList<>(uris.size());
+        for (String uri : uris) {
+            calls.add(Call.get(uri, type));
+        }
+        return invokeAll(calls, timeout);
+    }
+
+    public <T> List<T> invokeAll(List<? extends Call<? extends T>> calls) {
+        return invokeAll(calls, timeout);
+    }
+
+    /**
+     * @return the results of the calls, in the same order
+     * @throws ResourceAccessException if the calls do not all finish within the timeout, or the
+     *                                 caller is interrupted waiting for them
+     */
+    public <T> List<T> invokeAll(List<? extends Call<? extends T>> calls, Duration timeout) {
+        if (calls.isEmpty()) {
+            return List.of();
+        }
+        long until = System.nanoTime() + timeout.toNanos();
+        Long outer = deadline.get();
+        if (outer != null && outer - until < 0) {
+            until = outer;
+        }
+        long batchDeadline = until;
+
+        Object[] results = new Object[calls.size()];
+        BlockingQueue<Future<?>> completed = new LinkedBlockingQueue<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        List<FutureTask<Void>> futures = new ArrayList<>(calls.size());
+        boolean succeeded = false;
+        try {
+            for (int i = 0; i < calls.size(); i++) {
+                int index = i;
+                Call<? extends T> call = calls.get(i);
+                FutureTask<Void> task = new FutureTask<>(() -> {
+                    results[index] = run(call, batchDeadline);
+                    return null;
+                }) {
+                    @Override
+                    protected void done() {
+                        if (!isCancelled() && outcome(this) != null) {
+                            failed.set(true);
+                        }
+                        completed.add(this);
+                    }
+                };
+                futures.add(task);
+                executor.execute(task);
+            }
+            if (outer != null) {
+                // Already started ones return at once, and the pool skips those run here
+                for (FutureTask<Void> task : futures) {
+                    if (failed.get() || batchDeadline - System.nanoTime() <= 0) {
+                        break;
+                    }
+                    task.run();
+                }
+            }
+            for (int outstanding = calls.size(); outstanding > 0; outstanding--) {
+                long remaining = batchDeadline - System.nanoTime();
+                Future<?> next = remaining > 0 ? completed.poll(remaining, TimeUnit.NANOSECONDS) : completed.poll();
+                if (next == null) {
+                    throw new ResourceAccessException(outstanding + " of " + calls.size()
+                            + " calls still running at the deadline", new HttpTimeoutException("Deadline exceeded"));
+                }
+                Throwable failure = outcome(next);
+                if (failure != null) {
+                    throw rethrown(failure);
+                }
+            }
+            succeeded = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResourceAccessException("Interrupted waiting for " + calls.size() + " calls",
+                    new InterruptedIOException());
+        } finally {
+            if (!succeeded) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+        @SuppressWarnings("unchecked")
+        List<T> ordered = (List<T>) Arrays.asList(results);
+        return Collections.unmodifiableList(ordered);
+    }
+
+    // The failure of a completed call, null if it succeeded
+    private static Throwable outcome(Future<?> done) {
+        try {
+            done.get();
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return e;
+        }
+    }
+
+    private <T> T run(Call<T> call, long until) throws Exception {
+        Long outer = deadline.get();
+        deadline.set(until);
+        try {
+            return call.exchange.exchange(client, call.uri, Duration.ofNanos(Math.max(until - System.nanoTime(), 0)));
+        } finally {
+            if (outer != null) {
+                deadline.set(outer);
+            } else {
+                deadline.remove();
+            }
+        }
+    }
+
+    /**
+     * Holds a turn of the request's host and of all hosts from sending the request until its
+     * response is closed, waiting for them up to the deadline of the current batch.
+     */
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Long batchDeadline = deadline.get();
+        long until = batchDeadline != null ? batchDeadline : System.nanoTime() + timeout.toNanos();
+        String name = request.getURI().getHost();
+        Semaphore host = hosts.computeIfAbsent(name != null ? name : "", key -> new Semaphore(maxPerHost));
+        acquire(host, until);
+        try {
+            acquire(total, until);
+        } catch (IOException e) {
+            host.release();
+            throw e;
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        Runnable release = () -> {
+            if (released.compareAndSet(false, true)) {
+                total.release();
+                host.release();
+            }
+        };
+        try {
+            if (deadlineHeader != null) {
+                long left = TimeUnit.NANOSECONDS.toMillis(Math.max(until - System.nanoTime(), 0));
+                request.getHeaders().set(deadlineHeader, Long.toString(left));
+            }
+            return new ConnectionLimiter.ReleasingResponse(execution.execute(request, body), release);
+        } catch (IOException | RuntimeException | Error e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    private static void acquire(Semaphore permits, long until) throws IOException {
+        try {
+            if (!permits.tryAcquire(until - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                throw new HttpTimeoutException("Deadline exceeded waiting for a turn to send the request");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a turn to send the request");
+        }
+    }
+
+    private static RuntimeException rethrown(Throwable failure) {
+        if (failure instanceof RuntimeException) {
+            return (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure instanceof IOException) {
+            return new ResourceAccessException(failure.getMessage(), (IOException) failure);
+        }
+        return new ResourceAccessException(failure.toString(), new IOException(failure));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * What one call of a batch does with the client, given its uri and the time left.
+     */
+    @FunctionalInterface
+    public interface Exchange<T> {
+        T exchange(RestClient client, String uri, Duration remaining) throws Exception;
+    }
+
+    /**
+     * One call of a batch.
+     */
+    public static final class Call<T> {
+        private final String uri;
+        private final Exchange<T> exchange;
+
+        private Call(String uri, Exchange<T> exchange) {
+            this.uri = uri;
+            this.exchange = exchange;
+        }
+
+        public static <T> Call<T> of(String uri, Exchange<T> exchange) {
+            return new Call<>(uri, exchange);
+        }
+
+        /**
+         * @return a call reading the body of a GET request to the uri
+         */
+        public static <T> Call<T> get(String uri, Class<T> type) {
+            return new Call<>(uri, (client, target, remaining) -> client.get().uri(target).retrieve().body(type));
+        }
+    }
+}
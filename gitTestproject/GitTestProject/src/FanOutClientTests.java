@@ -0,0 +1,165 @@
+package com.example.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanOutClientTests {
+
+    private final FanOutClient client = new FanOutClient(null, FanOutClient.newExecutor(8), 8, 2,
+            Duration.ofSeconds(5), null);
+
+    @AfterEach
+    void tearDown() {
+        client.destroy();
+    }
+
+    private static FanOutClient.Call<Integer> sleeping(String uri, int value, long millis) {
+        return FanOutClient.Call.of(uri, (restClient, target, remaining) -> {
+            Thread.sleep(millis);
+            return value;
+        });
+    }
+
+    // A call sending one request through the client's limits
+    private static FanOutClient.Call<Integer> request(FanOutClient client, String uri, ClientHttpRequestExecution execution) {
+        return FanOutClient.Call.of(uri, (restClient, target, remaining) -> {
+            client.intercept(new MockClientHttpRequest(HttpMethod.GET, URI.create(target)), new byte[0], execution)
+                    .close();
+            return 0;
+        });
+    }
+
+    @Test
+    void testReturnsResultsInOrderAfterSlowestCall() {
+        List<FanOutClient.Call<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(sleeping("https://host" + i + ".example.com/", i, 200 - i * 30));
+        }
+
+        long start = System.nanoTime();
+        List<Integer> results = client.invokeAll(calls);
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), results);
+        // Far less than the 750 ms the calls take one after another
+        assertTrue(elapsed < 500, "took " + elapsed + " ms");
+    }
+
+    @Test
+    void testLimitsRequestsPerHost() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger mostRunning = new AtomicInteger();
+        ClientHttpRequestExecution slow = (request, body) -> {
+            mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(30);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            running.decrementAndGet();
+            return new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+        };
+        List<FanOutClient.Call<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            calls.add(request(client, "https://api.example.com/items/" + i, slow));
+        }
+
+        client.invokeAll(calls);
+
+        assertEquals(2, mostRunning.get());
+    }
+
+    @Test
+    void testNestedBatchOnSameHostCompletes() {
+        // Every thread of the pool and every turn of the host taken by outer calls
+        FanOutClient pooled = new FanOutClient(null, Executors.newFixedThreadPool(2), 2, 2, Duration.ofSeconds(2), null);
+        ClientHttpRequestExecution ok = (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+        try {
+            List<FanOutClient.Call<Integer>> outer = new ArrayList<>();
+            for (int i = 0; i < 2; i++) {
+                outer.add(FanOutClient.Call.of("https://api.example.com/orders/" + i, (restClient, target, remaining) -> {
+                    List<Integer> inner = pooled.invokeAll(List.of(
+                            request(pooled, target + "/lines", ok), request(pooled, target + "/customer", ok)));
+                    return inner.size();
+                }));
+            }
+
+            assertEquals(List.of(2, 2), pooled.invokeAll(outer));
+        } finally {
+            pooled.destroy();
+        }
+    }
+
+    @Test
+    void testFirstFailureCancelsRemainingCalls() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<FanOutClient.Call<Integer>> calls = List.of(
+                FanOutClient.Call.of("https://a.example.com/", (restClient, target, remaining) -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                    return 0;
+                }),
+                FanOutClient.Call.of("https://b.example.com/", (restClient, target, remaining) -> {
+                    Thread.sleep(20);
+                    throw new IllegalStateException("Lookup failed");
+                }));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class, () -> client.invokeAll(calls));
+
+        assertEquals("Lookup failed", failure.getMessage());
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testNestedBatchKeepsOuterDeadline() {
+        List<FanOutClient.Call<Long>> outer = List.of(FanOutClient.Call.of("https://a.example.com/",
+                (restClient, target, remaining) -> {
+                    assertTrue(remaining.toMillis() <= 100);
+                    List<Long> inner = client.invokeAll(List.of(FanOutClient.Call.of("https://b.example.com/",
+                            (c, t, left) -> left.toMillis())), Duration.ofMinutes(1));
+                    return inner.get(0);
+                }));
+
+        long left = client.invokeAll(outer, Duration.ofMillis(100)).get(0);
+
+        assertTrue(left <= 100, "inner batch had " + left + " ms");
+        assertThrows(ResourceAccessException.class,
+                () -> client.invokeAll(List.of(sleeping("https://a.example.com/", 0, 2000)), Duration.ofMillis(50)));
+    }
+
+    @Test
+    void testRunsBeforeConnectionLimiter() {
+        ConnectionLimiter limiter = new ConnectionLimiter(1, 1, Duration.ofSeconds(1));
+        ClientHttpRequestInterceptor logging = (request, body, execution) -> execution.execute(request, body);
+        List<ClientHttpRequestInterceptor> interceptors = new ArrayList<>(List.of(logging, limiter));
+
+        FanOutClient.insertBeforeLimiter(interceptors, client);
+
+        assertEquals(List.of(logging, client, limiter), interceptors);
+        List<ClientHttpRequestInterceptor> withoutLimiter = new ArrayList<>(List.of(logging));
+        FanOutClient.insertBeforeLimiter(withoutLimiter, client);
+        assertEquals(List.of(logging, client), withoutLimiter);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput and average time of every public formatter method over generated corpora.
+ * Each invocation formats a whole corpus, so scores are per formatted value. Run through
+ * {@link FormatterBenchmarkRunner} to also get allocation rates and a baseline comparison.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatterBenchmark {
+
+    static final int CORPUS_SIZE = 1024;
+
+    @Param({"MAINFRAME", "MIXED_CASE", "UNICODE"})
+    public FormatterCorpus.Style style;
+
+    private String[] firstNames;
+    private String[] lastNames;
+    private String[] legalEntityNames;
+    private String[] addresses;
+    private String[] cities;
+    private String[] postalCodes;
+    private String[] countries;
+
+    @Setup
+    public void setUp() {
+        firstNames = corpus(FormatterCorpus.Field.FIRST_NAME);
+        lastNames = corpus(FormatterCorpus.Field.LAST_NAME);
+        legalEntityNames = corpus(FormatterCorpus.Field.LEGAL_ENTITY_NAME);
+        addresses = corpus(FormatterCorpus.Field.ADDRESS);
+        cities = corpus(FormatterCorpus.Field.CITY);
+        postalCodes = corpus(FormatterCorpus.Field.POSTAL_CODE);
+        countries = corpus(FormatterCorpus.Field.COUNTRY);
+    }
+
+    private String[] corpus(FormatterCorpus.Field field) {
+        return FormatterCorpus.generate(field, style, CORPUS_SIZE, field.ordinal());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void clientFirstName(Blackhole blackhole) {
+        for (String value : firstNames) {
+            blackhole.consume(ClientNameFormatter.formatFirstName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void clientLastName(Blackhole blackhole) {
+        for (String value : lastNames) {
+            blackhole.consume(ClientNameFormatter.formatLastName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void legalEntityName(Blackhole blackhole) {
+        for (String value : legalEntityNames) {
+            blackhole.consume(LegalEntityNameFormatter.formatLegalEntityName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void addressInfo(Blackhole blackhole) {
+        for (String value : addresses) {
+            blackhole.consume(AddressInfoFormatter.formatAddress(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void name(Blackhole blackhole) {
+        for (String value : lastNames) {
+            blackhole.consume(StringFormatter.formatName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void address(Blackhole blackhole) {
+        for (String value : addresses) {
+            blackhole.consume(StringFormatter.formatAddress(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void cityName(Blackhole blackhole) {
+        for (String value : cities) {
+            blackhole.consume(StringFormatter.formatCityName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void postalCode(Blackhole blackhole) {
+        for (String value : postalCodes) {
+            blackhole.consume(StringFormatter.formatPostalCode(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void country(Blackhole blackhole) {
+        for (String value : countries) {
+            blackhole.consume(StringFormatter.formatCountry(value));
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs the formatter benchmarks with the GC profiler and optionally checks them against a saved
+ * baseline.
+ *
+ * <pre>
+ * FormatterBenchmarkRunner [--include REGEX] [--save FILE] [--baseline FILE] [--threshold PERCENT]
+ * </pre>
+ *
+ * {@code --save} writes the scores of this run as the new baseline. {@code --baseline} compares
+ * against an earlier run and exits with status 1 when any score, including the allocated bytes per
+ * operation, is worse than the baseline by more than the threshold (10% by default).
+ */
+public class FormatterBenchmarkRunner {
+
+    private static final String DEFAULT_INCLUDE = FormatterBenchmark.class.getName();
+    private static final double DEFAULT_THRESHOLD = 10.0;
+
+    // Allocation below this is treated as noise when comparing
+    private static final double ALLOCATION_NOISE_BYTES = 8.0;
+
+    private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String include = DEFAULT_INCLUDE;
+        Path save = null;
+        Path baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--include":
+                    include = args[++i];
+                    break;
+                case "--save":
+                    save = Paths.get(args[++i]);
+                    break;
+                case "--baseline":
+                    baseline = Paths.get(args[++i]);
+                    break;
+                case "--threshold":
+                    threshold = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .build();
+        Properties scores = scores(new Runner(options).run());
+
+        if (save != null) {
+            try (Writer writer = Files.newBufferedWriter(save)) {
+                scores.store(writer, "Formatter benchmark baseline");
+            }
+        }
+        if (baseline != null) {
+            Properties expected = new Properties();
+            try (Reader reader = Files.newBufferedReader(baseline)) {
+                expected.load(reader);
+            }
+            List<String> regressions = compare(expected, scores, threshold / 100);
+            if (!regressions.isEmpty()) {
+                System.err.println("Regressions against " + baseline + ":");
+                regressions.forEach(System.err::println);
+                System.exit(1);
+            }
+            System.out.println("No regression against " + baseline);
+        }
+    }
+
+    /**
+     * Flatten run results into {@code benchmark[params]:mode} (and {@code ...:gc.alloc.rate.norm})
+     * keys mapped to scores.
+     */
+    static Properties scores(Collection<RunResult> results) {
+        Properties scores = new Properties();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String key = key(params);
+            scores.setProperty(key + ":" + params.getMode().shortLabel(),
+                    Double.toString(result.getPrimaryResult().getScore()));
+
+            Result<?> allocation = result.getSecondaryResults().get(ALLOCATION);
+            if (allocation != null) {
+                scores.setProperty(key + ":" + ALLOCATION, Double.toString(allocation.getScore()));
+            }
+        }
+        return scores;
+    }
+
+    private static String key(BenchmarkParams params) {
+        StringBuilder key = new StringBuilder(params.getBenchmark());
+        for (String name : params.getParamsKeys()) {
+            key.append('[').append(name).append('=').append(params.getParam(name)).append(']');
+        }
+        return key.toString();
+    }
+
+    /**
+     * Compare scores against a baseline. Throughput must not drop, every other metric must not rise,
+     * by more than the threshold ratio. Scores missing from either side are ignored.
+     *
+     * @return one line per regression, empty if there is none
+     */
+    static List<String> compare(Properties baseline, Properties current, double threshold) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(current.stringPropertyNames())) {
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                continue;
+            }
+            double before = Double.parseDouble(expected);
+            double after = Double.parseDouble(current.getProperty(key));
+
+            boolean regressed;
+            if (key.endsWith(":" + Mode.Throughput.shortLabel())) {
+                regressed = after < before * (1 - threshold);
+            } else if (key.endsWith(":" + ALLOCATION)) {
+                regressed = after > before * (1 + threshold) && after - before > ALLOCATION_NOISE_BYTES;
+            } else {
+                regressed = after > before * (1 + threshold);
+            }
+            if (regressed) {
+                regressions.add(String.format("  %s: %.3f -> %.3f (%+.1f%%)", key, before, after,
+                        (after - before) * 100 / before));
+            }
+        }
+        return regressions;
+    }
+}
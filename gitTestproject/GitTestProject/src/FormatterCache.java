@@ -0,0 +1,145 @@
+package com.example.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * A size-bounded memo in front of a formatter method, for input where the same raw values come
+ * back again and again (city names, designators, common surnames).
+ *
+ * <pre>
+ * FormatterCache cities = new FormatterCache(10_000, StringFormatter::formatCityName);
+ * String city = cities.format("TORONTO");
+ * </pre>
+ *
+ * Lookups are lock-free. Entries are evicted with the CLOCK policy: every hit sets a reference
+ * bit, and when the cache is full the clock hand clears set bits until it finds an entry that
+ * was not used since its last pass. Misses are formatted outside of any lock, so two threads
+ * missing on the same value may both format it; the formatters are pure, so either result is
+ * kept. Null values are passed straight to the formatter.
+ */
+public class FormatterCache {
+
+    private final UnaryOperator<String> formatter;
+    private final ConcurrentHashMap<String, Entry> entries;
+
+    // The clock, guarded by lock. Slots fill up in order, then the hand goes round.
+    private final Entry[] clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private int size;
+    private int hand;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private static final class Entry {
+        final String key;
+        final String value;
+        volatile boolean referenced;
+
+        Entry(String key, String value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * @param capacity  the maximum number of cached values
+     * @param formatter the formatter method whose results are cached
+     */
+    public FormatterCache(int capacity, UnaryOperator<String> formatter) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.formatter = formatter;
+        this.entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+        this.clock = new Entry[capacity];
+    }
+
+    /**
+     * Format a value, returning the cached result when there is one.
+     *
+     * @param input the raw value
+     * @return exactly what the formatter returns for the value
+     */
+    public String format(String input) {
+        if (input == null) {
+            return formatter.apply(null);
+        }
+        Entry entry = entries.get(input);
+        if (entry != null) {
+            // Skip the volatile write when the bit is already set, so hot entries stay read-only
+            if (!entry.referenced) {
+                entry.referenced = true;
+            }
+            hits.increment();
+            return entry.value;
+        }
+
+        misses.increment();
+        String value = formatter.apply(input);
+        add(new Entry(input, value));
+        return value;
+    }
+
+    private void add(Entry entry) {
+        lock.lock();
+        try {
+            if (entries.containsKey(entry.key)) {
+                return;
+            }
+            if (size < clock.length) {
+                clock[size++] = entry;
+            } else {
+                while (clock[hand].referenced) {
+                    clock[hand].referenced = false;
+                    hand = (hand + 1) % clock.length;
+                }
+                entries.remove(clock[hand].key);
+                evictions.increment();
+                clock[hand] = entry;
+                hand = (hand + 1) % clock.length;
+            }
+            entries.put(entry.key, entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of cached values
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the number of lookups answered from the cache
+     */
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of lookups that had to call the formatter
+     */
+    public long missCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the number of values dropped to make room for new ones
+     */
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "FormatterCache[size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount()
+                + ", evictions=" + evictionCount() + "]";
+    }
+}
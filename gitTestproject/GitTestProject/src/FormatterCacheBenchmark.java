@@ -0,0 +1,86 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Formatting through a {@link FormatterCache} against formatting every value, on Zipf-skewed
+ * legal entity names and surnames, from several threads sharing one cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class FormatterCacheBenchmark {
+
+    static final int CORPUS_SIZE = 4096;
+
+    @State(Scope.Benchmark)
+    public static class Caches {
+
+        @Param({"1024"})
+        public int capacity;
+
+        FormatterCache legalEntityNames;
+        FormatterCache lastNames;
+
+        @Setup
+        public void setUp() {
+            legalEntityNames = new FormatterCache(capacity, LegalEntityNameFormatter::formatLegalEntityName);
+            lastNames = new FormatterCache(capacity, ClientNameFormatter::formatLastName);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Corpus {
+
+        String[] legalEntityNames;
+        String[] lastNames;
+
+        @Setup
+        public void setUp() {
+            long seed = Thread.currentThread().getId();
+            legalEntityNames = FormatterCorpus.generateSkewed(FormatterCorpus.Field.LEGAL_ENTITY_NAME,
+                    FormatterCorpus.Style.MIXED_CASE, CORPUS_SIZE, 10_000, seed);
+            // The same surname written differently is a different key, so draw on a mainframe extract
+            lastNames = FormatterCorpus.generateSkewed(FormatterCorpus.Field.LAST_NAME,
+                    FormatterCorpus.Style.MAINFRAME, CORPUS_SIZE, 10_000, seed);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void legalEntityName(Corpus corpus, Blackhole blackhole) {
+        for (String value : corpus.legalEntityNames) {
+            blackhole.consume(LegalEntityNameFormatter.formatLegalEntityName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void cachedLegalEntityName(Caches caches, Corpus corpus, Blackhole blackhole) {
+        for (String value : corpus.legalEntityNames) {
+            blackhole.consume(caches.legalEntityNames.format(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void lastName(Corpus corpus, Blackhole blackhole) {
+        for (String value : corpus.lastNames) {
+            blackhole.consume(ClientNameFormatter.formatLastName(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void cachedLastName(Caches caches, Corpus corpus, Blackhole blackhole) {
+        for (String value : corpus.lastNames) {
+            blackhole.consume(caches.lastNames.format(value));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatterCacheTests {
+
+    @Test
+    void testHitsAndMisses() {
+        FormatterCache cache = new FormatterCache(10, StringFormatter::formatCityName);
+
+        assertEquals("Toronto", cache.format("TORONTO"));
+        assertEquals("Toronto", cache.format("TORONTO"));
+        assertEquals("Saint John", cache.format("SAINT JOHN"));
+
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+        assertEquals(0, cache.evictionCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testNullIsNotCached() {
+        FormatterCache cache = new FormatterCache(10, ClientNameFormatter::formatLastName);
+
+        assertNull(cache.format(null));
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.missCount());
+    }
+
+    @Test
+    void testEvictsUnreferencedEntryFirst() {
+        FormatterCache cache = new FormatterCache(2, ClientNameFormatter::formatLastName);
+        cache.format("SMITH");
+        cache.format("MCDONALD");
+        cache.format("SMITH");
+
+        // SMITH was used since it was added, so MCDONALD goes
+        cache.format("O'BRIEN");
+        assertEquals(1, cache.evictionCount());
+        assertEquals(2, cache.size());
+
+        long misses = cache.missCount();
+        cache.format("SMITH");
+        assertEquals(misses, cache.missCount());
+        cache.format("MCDONALD");
+        assertEquals(misses + 1, cache.missCount());
+    }
+
+    @Test
+    void testConcurrentLookupsStayBoundedAndCorrect() throws Exception {
+        FormatterCache cache = new FormatterCache(64, LegalEntityNameFormatter::formatLegalEntityName);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                long seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    for (int i = 0; i < 20_000; i++) {
+                        String input = "ACME " + random.nextInt(200) + " HOLDINGS OF CANADA LTD.";
+                        assertEquals(LegalEntityNameFormatter.formatLegalEntityName(input), cache.format(input));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(cache.size() <= 64);
+        assertEquals(8 * 20_000, cache.hitCount() + cache.missCount());
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates reproducible benchmark input for the formatters, shaped like the extracts we
+ * receive: fixed-width uppercase mainframe records, hand-keyed mixed-case data and names
+ * carrying accents.
+ */
+final class FormatterCorpus {
+
+    /**
+     * The kind of input a formatter sees.
+     */
+    enum Field {
+        FIRST_NAME, LAST_NAME, LEGAL_ENTITY_NAME, ADDRESS, CITY, POSTAL_CODE, COUNTRY
+    }
+
+    /**
+     * How the input is written.
+     */
+    enum Style {
+        /** Uppercase, space padded to a fixed width */
+        MAINFRAME,
+        /** Randomly mixed case, irregular spacing */
+        MIXED_CASE,
+        /** Mixed case with accented and other non-ASCII letters */
+        UNICODE
+    }
+
+    private static final String[] FIRST_NAMES = {
+            "JAMES", "MARY", "JOHN", "PATRICIA", "ROBERT", "JENNIFER", "MICHAEL", "LINDA", "WILLIAM",
+            "ELIZABETH", "DAVID", "BARBARA", "MARIE-ANNE", "JEAN-PAUL", "CATHERINE", "MOHAMMED", "WEI", "PRIYA"
+    };
+
+    private static final String[] LAST_NAMES = {
+            "SMITH", "JOHNSON", "WILLIAMS", "BROWN", "TREMBLAY", "GAGNON", "ROY", "NGUYEN", "PATEL", "MARTIN",
+            "MCDONALD", "MACLEOD", "O'BRIEN", "D'ARCY", "DELGADO", "VANDERBILT", "LEBLANC", "DASILVA",
+            "DUBOIS", "ST.PIERRE", "SANCHEZ", "SMITH-JONES", "VAN DER MEER", "DE LA CRUZ"
+    };
+
+    private static final String[] UNICODE_NAMES = {
+            "JOSÉ", "FRANÇOIS", "MÜLLER", "PEÑA", "ÉMILIE", "GRÀCIA", "SÃO", "ŁUKASZ", "ØSTERGAARD",
+            "ÇELIK", "DVOŘÁK", "BJÖRK", "NUÑEZ", "CÔTÉ", "LÉVESQUE", "RENÉE"
+    };
+
+    private static final String[] LEGAL_WORDS = {
+            "ALPHA", "OMEGA", "DELTA", "ACME", "NORTHERN", "MAPLE", "HOLDINGS", "CONSULTING", "ENTERPRISES",
+            "GROUP", "OF", "AND", "THE", "FOR", "TECHNOLOGY", "&", "SMITH/JONES", "DELTA+GAMMA"
+    };
+
+    private static final String[] DESIGNATORS = {"INC.", "LTD.", "LLC", "CORP.", "CO.", "GMBH", "SARL", "PLC"};
+
+    private static final String[] STREETS = {
+            "MAIN STREET", "FRONT ST", "BROADWAY AVE", "ARBOUR-HALL ROAD", "O'SHAUNESSY AVE", "KING ST W",
+            "RUE SAINT-DENIS", "ELM STREET", "QUEEN ST E", "YONGE STREET"
+    };
+
+    private static final String[] UNITS = {"", "", "APT 987", "SUITE 123", "PO BOX 500", "FLOOR 2"};
+
+    private static final String[] CITIES = {
+            "TORONTO", "VANCOUVER", "SAINT JOHN", "PEGGY'S COVE", "OTTAWA-GATINEAU", "NEW YORK",
+            "SAN FRANCISCO", "LA PAZ", "MONTRÉAL", "QUÉBEC", "TROIS-RIVIÈRES"
+    };
+
+    private static final String[] REGIONS = {"ON", "BC", "QC", "NS", "NY", "CA", "TX", "DC"};
+
+    private static final String[] COUNTRIES = {
+            "CANADA", "USA", "CAN", "US", "UNITED STATES", "UNITED KINGDOM", "FRANCE", "GERMANY"
+    };
+
+    // Fixed record width of the mainframe extracts
+    private static final int MAINFRAME_WIDTH = 40;
+
+    /**
+     * Generate a corpus.
+     *
+     * @param field the kind of value
+     * @param style how values are written
+     * @param size  the number of values
+     * @param seed  random seed, the same seed always gives the same corpus
+     * @return the generated values
+     */
+    static String[] generate(Field field, Style style, int size, long seed) {
+        Random random = new Random(seed);
+        String[] corpus = new String[size];
+        for (int i = 0; i < size; i++) {
+            corpus[i] = style(raw(field, style, random), style, random);
+        }
+        return corpus;
+    }
+
+    /**
+     * Generate a corpus where a few values repeat most of the time, the way surnames and city
+     * names do in real extracts. Values are drawn from {@code distinct} generated ones with a
+     * Zipf distribution, so the k-th most common value appears about 1/k as often as the first.
+     *
+     * @param field    the kind of value
+     * @param style    how values are written
+     * @param size     the number of values
+     * @param distinct the number of different values
+     * @param seed     random seed, the same seed always gives the same corpus
+     * @return the generated values
+     */
+    static String[] generateSkewed(Field field, Style style, int size, int distinct, long seed) {
+        String[] values = generate(field, style, distinct, seed);
+        double[] cumulative = new double[distinct];
+        double total = 0;
+        for (int k = 0; k < distinct; k++) {
+            total += 1.0 / (k + 1);
+            cumulative[k] = total;
+        }
+
+        Random random = new Random(seed);
+        String[] corpus = new String[size];
+        for (int i = 0; i < size; i++) {
+            int k = Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            corpus[i] = values[Math.min(k < 0 ? -k - 1 : k, distinct - 1)];
+        }
+        return corpus;
+    }
+
+    private static String raw(Field field, Style style, Random random) {
+        switch (field) {
+            case FIRST_NAME:
+                return style == Style.UNICODE && random.nextBoolean() ? pick(UNICODE_NAMES, random) : pick(FIRST_NAMES, random);
+            case LAST_NAME:
+                return style == Style.UNICODE && random.nextBoolean() ? pick(UNICODE_NAMES, random) : pick(LAST_NAMES, random);
+            case LEGAL_ENTITY_NAME:
+                return legalEntityName(style, random);
+            case ADDRESS:
+                return address(style, random);
+            case CITY:
+                return pick(CITIES, random);
+            case POSTAL_CODE:
+                return postalCode(random);
+            case COUNTRY:
+                return pick(COUNTRIES, random);
+            default:
+                throw new IllegalArgumentException("Unknown field: " + field);
+        }
+    }
+
+    private static String legalEntityName(Style style, Random random) {
+        StringBuilder name = new StringBuilder();
+        name.append(style == Style.UNICODE ? pick(UNICODE_NAMES, random) : pick(LAST_NAMES, random));
+        int words = 1 + random.nextInt(3);
+        for (int i = 0; i < words; i++) {
+            name.append(' ').append(pick(LEGAL_WORDS, random));
+        }
+        return name.append(' ').append(pick(DESIGNATORS, random)).toString();
+    }
+
+    private static String address(Style style, Random random) {
+        StringBuilder address = new StringBuilder();
+        address.append(1 + random.nextInt(9999)).append(' ').append(pick(STREETS, random));
+        String unit = pick(UNITS, random);
+        if (!unit.isEmpty()) {
+            address.append(", ").append(unit);
+        }
+        address.append(", ").append(pick(CITIES, random))
+                .append(", ").append(pick(REGIONS, random))
+                .append(", ").append(postalCode(random));
+        if (random.nextBoolean()) {
+            address.append(", ").append(pick(COUNTRIES, random));
+        }
+        return address.toString();
+    }
+
+    private static String postalCode(Random random) {
+        if (random.nextBoolean()) {
+            return String.format("%05d", random.nextInt(100_000));
+        }
+        return new StringBuilder()
+                .append((char) ('A' + random.nextInt(26))).append(random.nextInt(10))
+                .append((char) ('A' + random.nextInt(26))).append(random.nextInt(10))
+                .append((char) ('A' + random.nextInt(26))).append(random.nextInt(10))
+                .toString();
+    }
+
+    private static String style(String value, Style style, Random random) {
+        switch (style) {
+            case MAINFRAME:
+                return value.length() >= MAINFRAME_WIDTH ? value : value + " ".repeat(MAINFRAME_WIDTH - value.length());
+            case MIXED_CASE:
+            case UNICODE:
+                return mixCase(value, random);
+            default:
+                throw new IllegalArgumentException("Unknown style: " + style);
+        }
+    }
+
+    private static String mixCase(String value, Random random) {
+        int mode = random.nextInt(3);
+        if (mode == 0) {
+            return value.toLowerCase();
+        }
+        if (mode == 1) {
+            return value;
+        }
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (random.nextBoolean()) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+        }
+        return new String(chars).replace(" ", random.nextInt(4) == 0 ? "  " : " ");
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Formatting primitives shared by all formatters. Everything here scans its input once and
+ * appends straight to the caller's buffer; ASCII text is handled without any allocation and
+ * only non-ASCII text falls back to the {@code String} case mappings. When the JVM runs with
+ * {@code --add-modules jdk.incubator.vector}, long spans are case-mapped with {@code VectorCase},
+ * which is built separately from {@code src-vector} and loaded only if it is on the class path.
+ */
+final class FormatterEngine {
+
+    // Formatting buffer for Appendables other than StringBuilder, one per thread
+    private static final ThreadLocal<StringBuilder> SCRATCH = ThreadLocal.withInitial(StringBuilder::new);
+
+    // SIMD case mappings, null unless the JVM runs with jdk.incubator.vector
+    private static final BulkCase BULK_CASE = loadBulkCase();
+
+    // Shorter spans are mapped one character at a time; the crossover measured by VectorCaseBenchmark
+    private static final int BULK_CASE_THRESHOLD = 32;
+
+    // Character buffer for the bulk case mappings, one per thread
+    private static final ThreadLocal<char[]> BULK_BUFFER = ThreadLocal.withInitial(() -> new char[64]);
+
+    // Longer spans get a buffer of their own, so one huge input does not stay alive per pooled thread
+    private static final int MAX_BULK_BUFFER = 8192;
+
+    /**
+     * Case mappings over a whole character array, for spans long enough to be worth vectorizing.
+     * Every method gives exactly the result of the matching one-character-at-a-time code.
+     */
+    interface BulkCase {
+
+        /**
+         * Lowercase ASCII text in place.
+         *
+         * @return false, with the array partly mapped, if the text is not all ASCII
+         */
+        boolean toLowerCase(char[] chars, int length);
+
+        /**
+         * Uppercase ASCII text in place.
+         *
+         * @return false, with the array partly mapped, if the text is not all ASCII
+         */
+        boolean toUpperCase(char[] chars, int length);
+
+        /**
+         * {@link FormatterEngine#capitalizeLetters} in place.
+         */
+        void capitalizeLetters(char[] chars, int length, CharTable specialCharacters);
+    }
+
+    private static BulkCase loadBulkCase() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (BulkCase) Class.forName(FormatterEngine.class.getPackageName() + ".VectorCase")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            // src-vector was not built
+            return null;
+        }
+    }
+
+    /**
+     * Copy a span into the calling thread's bulk buffer, or return null when it is too short to
+     * be worth it or the vector module is missing.
+     */
+    private static char[] bulkBuffer(CharSequence input, int start, int end) {
+        int length = end - start;
+        if (BULK_CASE == null || length < BULK_CASE_THRESHOLD) {
+            return null;
+        }
+        char[] chars = BULK_BUFFER.get();
+        if (length > MAX_BULK_BUFFER) {
+            chars = new char[length];
+        } else if (chars.length < length) {
+            chars = new char[Math.min(Math.max(length, chars.length * 2), MAX_BULK_BUFFER)];
+            BULK_BUFFER.set(chars);
+        }
+        if (input instanceof String) {
+            ((String) input).getChars(start, end, chars, 0);
+        } else if (input instanceof StringBuilder) {
+            ((StringBuilder) input).getChars(start, end, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = input.charAt(start + i);
+            }
+        }
+        return chars;
+    }
+
+    /**
+     * A formatter that appends its result to a buffer.
+     */
+    @FunctionalInterface
+    interface AppendingFormat {
+        void format(CharSequence input, StringBuilder out);
+    }
+
+    /**
+     * Run a formatter against any {@link Appendable}. A {@link StringBuilder} is written to directly;
+     * anything else is filled from a per-thread buffer one character at a time, which keeps targets
+     * such as {@link java.nio.CharBuffer} from copying the text into a String. A null input appends
+     * nothing.
+     *
+     * @throws UncheckedIOException if the Appendable fails
+     */
+    static void formatTo(CharSequence input, Appendable out, AppendingFormat format) {
+        if (input == null) {
+            return;
+        }
+        if (out instanceof StringBuilder) {
+            format.format(input, (StringBuilder) out);
+            return;
+        }
+
+        StringBuilder scratch = SCRATCH.get();
+        scratch.setLength(0);
+        format.format(input, scratch);
+        try {
+            for (int i = 0; i < scratch.length(); i++) {
+                out.append(scratch.charAt(i));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Format whitespace-separated words according to a profile. Words are joined with single
+     * spaces and the appended text is trimmed.
+     *
+     * @param input   the raw text
+     * @param profile the rules applied to each word
+     * @param out     the buffer the formatted text is appended to
+     */
+    static void formatWords(CharSequence input, FormatterProfile profile, StringBuilder out) {
+        int base = out.length();
+        int length = input.length();
+        int start = 0;
+
+        // A leading separator counts as an empty first word, like String.split does
+        int index = length > 0 && isSeparator(input.charAt(0)) ? 1 : 0;
+        while (true) {
+            while (start < length && isSeparator(input.charAt(start))) {
+                start++;
+            }
+            if (start == length) {
+                break;
+            }
+            int end = start + 1;
+            while (end < length && !isSeparator(input.charAt(end))) {
+                end++;
+            }
+            if (index > 0) {
+                out.append(' ');
+            }
+            formatWord(input, start, end, index++, profile, out);
+            start = end;
+        }
+        trim(out, base);
+    }
+
+    // The characters matched by \s
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static void formatWord(CharSequence input, int start, int end, int index, FormatterProfile profile,
+                                   StringBuilder out) {
+        String word;
+        if (profile.upperCaseWords != null && (word = profile.upperCaseWords.find(input, start, end)) != null) {
+            out.append(word);
+            return;
+        }
+        if (index != 0 && profile.lowerCaseWords != null
+                && (word = profile.lowerCaseWords.find(input, start, end)) != null) {
+            out.append(word);
+            return;
+        }
+        if (profile.trimWords && isBlank(input, start, end)) {
+            out.append(input, start, end);
+            return;
+        }
+
+        String prefix = profile.prefixes.match(input, start, end);
+        if (prefix != null) {
+            out.append(prefix);
+            start += prefix.length();
+        }
+        if (profile.trimWords) {
+            while (start < end && input.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && input.charAt(end - 1) <= ' ') {
+                end--;
+            }
+        }
+        if (profile.specialCharacters == null) {
+            capitalizeFirstCharacter(input, start, end, out);
+        } else {
+            capitalizeLetters(input, start, end, profile.specialCharacters, out);
+        }
+    }
+
+    /**
+     * Capitalize the first letter and every letter following a special character, lowercase the
+     * other letters and copy everything else as-is.
+     */
+    static void capitalizeLetters(CharSequence input, int start, int end, CharTable specialCharacters,
+                                  StringBuilder out) {
+        char[] chars = bulkBuffer(input, start, end);
+        if (chars != null) {
+            BULK_CASE.capitalizeLetters(chars, end - start, specialCharacters);
+            out.append(chars, 0, end - start);
+            return;
+        }
+
+        boolean capitalizeNext = true;
+        for (int i = start; i < end; i++) {
+            char c = input.charAt(i);
+            if (c < 0x80) {
+                if (isAsciiLetter(c)) {
+                    out.append(capitalizeNext ? toUpperAscii(c) : toLowerAscii(c));
+                    capitalizeNext = false;
+                } else {
+                    out.append(c);
+                    if (specialCharacters.contains(c)) {
+                        capitalizeNext = true;
+                    }
+                }
+            } else if (Character.isLetter(c)) {
+                out.append(capitalizeNext ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                capitalizeNext = false;
+            } else {
+                out.append(c);
+            }
+        }
+    }
+
+    /**
+     * Uppercase the first character and lowercase the rest. Does nothing for an empty range.
+     */
+    static void capitalizeFirstCharacter(CharSequence input, int start, int end, StringBuilder out) {
+        if (start == end) {
+            return;
+        }
+        out.append(Character.toUpperCase(input.charAt(start)));
+        appendLowerCase(input, start + 1, end, out);
+    }
+
+    static String capitalizeFirstCharacter(String word) {
+        StringBuilder out = new StringBuilder(word.length());
+        capitalizeFirstCharacter(word, 0, word.length(), out);
+        return out.toString();
+    }
+
+    static void appendUpperCase(CharSequence input, int start, int end, StringBuilder out) {
+        char[] chars = bulkBuffer(input, start, end);
+        if (chars != null && BULK_CASE.toUpperCase(chars, end - start)) {
+            out.append(chars, 0, end - start);
+            return;
+        }
+        if (!isAscii(input, start, end)) {
+            out.append(input.subSequence(start, end).toString().toUpperCase());
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            out.append(toUpperAscii(input.charAt(i)));
+        }
+    }
+
+    static void appendLowerCase(CharSequence input, int start, int end, StringBuilder out) {
+        char[] chars = bulkBuffer(input, start, end);
+        if (chars != null && BULK_CASE.toLowerCase(chars, end - start)) {
+            out.append(chars, 0, end - start);
+            return;
+        }
+        if (!isAscii(input, start, end)) {
+            // String.toLowerCase handles context-sensitive mappings such as the final sigma
+            out.append(input.subSequence(start, end).toString().toLowerCase());
+            return;
+        }
+        for (int i = start; i < end; i++) {
+            out.append(toLowerAscii(input.charAt(i)));
+        }
+    }
+
+    /**
+     * Remove leading and trailing characters up to and including space, like {@link String#trim()},
+     * from the text appended after {@code base}.
+     */
+    static void trim(StringBuilder out, int base) {
+        int end = out.length();
+        while (end > base && out.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        out.setLength(end);
+        int start = base;
+        while (start < end && out.charAt(start) <= ' ') {
+            start++;
+        }
+        if (start > base) {
+            out.delete(base, start);
+        }
+    }
+
+    static boolean isBlank(CharSequence input) {
+        return isBlank(input, 0, input.length());
+    }
+
+    static boolean isBlank(CharSequence input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isAscii(CharSequence input, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (input.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isAsciiLetter(char c) {
+        char lower = (char) (c | 0x20);
+        return lower >= 'a' && lower <= 'z';
+    }
+
+    static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    static char toUpperAscii(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+
+    static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Formats selected columns of a CSV or fixed-width file and writes the result to another file.
+ *
+ * <pre>
+ * long records = FormatterPipeline.csv(',')
+ *         .withHeader()
+ *         .withColumn(0, BatchFormatter.Operation.LAST_NAME)
+ *         .withColumn(3, BatchFormatter.Operation.ADDRESS)
+ *         .format(input, output);
+ * </pre>
+ *
+ * The input is memory-mapped a window at a time and cut into chunks of whole records, which a
+ * pool of workers formats while the calling thread writes finished chunks out in input order.
+ * Only a few chunks per worker are in memory at once, whatever the file size. Columns without
+ * a formatter, line endings and the rest of each record are copied unchanged.
+ *
+ * <p>The charset must encode {@code '\n'} and {@code '"'} as single bytes that never occur
+ * inside another character, which holds for UTF-8, ISO-8859-1 and the other ASCII-based charsets.
+ */
+public class FormatterPipeline {
+
+    // Bytes of input per formatting task
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // Bytes of input mapped at once, also the longest record supported
+    private static final int WINDOW_SIZE = 1 << 28;
+
+    // Marks the end of the input in the queue of pending chunks
+    private static final Future<Chunk> END = CompletableFuture.completedFuture(null);
+
+    private final char delimiter;
+    // Field widths of a fixed-width layout, null for CSV
+    private final int[] widths;
+    private final BatchFormatter.Operation[] columns;
+    private final boolean header;
+    private final int workers;
+    private final Charset charset;
+
+    private FormatterPipeline(char delimiter, int[] widths, BatchFormatter.Operation[] columns, boolean header,
+                              int workers, Charset charset) {
+        this.delimiter = delimiter;
+        this.widths = widths;
+        this.columns = columns;
+        this.header = header;
+        this.workers = workers;
+        this.charset = charset;
+    }
+
+    /**
+     * A pipeline for delimited files. Fields may be quoted with {@code "}, quotes inside a quoted
+     * field are doubled, and quoted fields may span lines. A field that was quoted stays quoted.
+     *
+     * @param delimiter the field separator
+     */
+    public static FormatterPipeline csv(char delimiter) {
+        return new FormatterPipeline(delimiter, null, new BatchFormatter.Operation[0], false,
+                Runtime.getRuntime().availableProcessors(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A pipeline for fixed-width files. Trailing spaces are taken as padding and left out of the
+     * value passed to the formatter; the formatted value is padded back to the width of its field.
+     * A value that no longer fits its field after formatting is copied unchanged instead.
+     *
+     * @param widths the width of each field in characters; text past the last field is copied as-is
+     */
+    public static FormatterPipeline fixedWidth(int... widths) {
+        for (int width : widths) {
+            if (width <= 0) {
+                throw new IllegalArgumentException("Field widths must be positive: " + Arrays.toString(widths));
+            }
+        }
+        return new FormatterPipeline('\0', widths.clone(), new BatchFormatter.Operation[0], false,
+                Runtime.getRuntime().availableProcessors(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Format a column with the given formatter method.
+     *
+     * @param column    the zero-based column index
+     * @param operation the formatter method
+     */
+    public FormatterPipeline withColumn(int column, BatchFormatter.Operation operation) {
+        if (column < 0 || widths != null && column >= widths.length) {
+            throw new IllegalArgumentException("No such column: " + column);
+        }
+        BatchFormatter.Operation[] copy = Arrays.copyOf(columns, Math.max(columns.length, column + 1));
+        copy[column] = operation;
+        return new FormatterPipeline(delimiter, widths, copy, header, workers, charset);
+    }
+
+    /**
+     * Copy the first record unchanged.
+     */
+    public FormatterPipeline withHeader() {
+        return new FormatterPipeline(delimiter, widths, columns, true, workers, charset);
+    }
+
+    /**
+     * Format with the given number of worker threads, the number of processors by default.
+     */
+    public FormatterPipeline withWorkers(int workers) {
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Worker count must be positive: " + workers);
+        }
+        return new FormatterPipeline(delimiter, widths, columns, header, workers, charset);
+    }
+
+    /**
+     * Read and write files in the given charset, UTF-8 by default.
+     */
+    public FormatterPipeline withCharset(Charset charset) {
+        return new FormatterPipeline(delimiter, widths, columns, header, workers, charset);
+    }
+
+    /**
+     * Format a file.
+     *
+     * @param input  the file to read
+     * @param output the file to write, replaced if it exists
+     * @return the number of records read
+     * @throws IOException if either file cannot be read or written, or a record is longer than 256 MB
+     */
+    public long format(Path input, Path output) throws IOException {
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            ExecutorService pool = Executors.newFixedThreadPool(workers);
+            BlockingQueue<Future<Chunk>> pending = new ArrayBlockingQueue<>(workers * 2);
+            Thread reader = new Thread(() -> read(in, pool, pending), "formatter-pipeline-reader");
+            reader.setDaemon(true);
+            reader.start();
+            try {
+                return write(pending, out);
+            } finally {
+                reader.interrupt();
+                pool.shutdownNow();
+                joinUninterruptibly(reader);
+            }
+        }
+    }
+
+    // Runs on the reader thread: cuts the input into chunks, queueing their results in input order
+    private void read(FileChannel in, ExecutorService pool, BlockingQueue<Future<Chunk>> pending) {
+        try {
+            long size = in.size();
+            long position = 0;
+            boolean first = true;
+            while (position < size) {
+                int length = (int) Math.min(WINDOW_SIZE, size - position);
+                boolean last = position + length == size;
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+                // Windows always start on a record, so they always start outside quotes
+                boolean quoted = false;
+                int chunkStart = 0;
+                int recordEnd = 0;
+                for (int i = 0; i < length; i++) {
+                    byte b = window.get(i);
+                    if (b == '"' && widths == null) {
+                        quoted = !quoted;
+                    } else if (b == '\n' && !quoted) {
+                        recordEnd = i + 1;
+                        if (recordEnd - chunkStart >= CHUNK_SIZE) {
+                            submit(slice(window, chunkStart, recordEnd), first, pool, pending);
+                            first = false;
+                            chunkStart = recordEnd;
+                        }
+                    }
+                }
+                if (last) {
+                    recordEnd = length;
+                } else if (recordEnd == 0) {
+                    throw new IOException("Record at byte " + position + " is longer than " + WINDOW_SIZE + " bytes");
+                }
+                if (recordEnd > chunkStart) {
+                    submit(slice(window, chunkStart, recordEnd), first, pool, pending);
+                    first = false;
+                }
+                position += recordEnd;
+            }
+            pending.put(END);
+        } catch (InterruptedException e) {
+            // The writer gave up
+        } catch (IOException | RuntimeException e) {
+            try {
+                pending.put(CompletableFuture.failedFuture(e));
+            } catch (InterruptedException ignored) {
+                // The writer gave up
+            }
+        }
+    }
+
+    private static ByteBuffer slice(ByteBuffer window, int start, int end) {
+        ByteBuffer slice = window.duplicate();
+        slice.position(start).limit(end);
+        return slice.slice();
+    }
+
+    private void submit(ByteBuffer bytes, boolean first, ExecutorService pool, BlockingQueue<Future<Chunk>> pending)
+            throws InterruptedException {
+        pending.put(pool.submit(() -> formatChunk(bytes, first)));
+    }
+
+    // Runs on the calling thread: writes formatted chunks as they come due
+    private static long write(BlockingQueue<Future<Chunk>> pending, FileChannel out) throws IOException {
+        long records = 0;
+        try {
+            while (true) {
+                Chunk chunk = pending.take().get();
+                if (chunk == null) {
+                    return records;
+                }
+                while (chunk.bytes.hasRemaining()) {
+                    out.write(chunk.bytes);
+                }
+                records += chunk.records;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while formatting");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The formatted text of a chunk, encoded and ready to be written.
+     */
+    private static final class Chunk {
+        final ByteBuffer bytes;
+        final int records;
+
+        Chunk(ByteBuffer bytes, int records) {
+            this.bytes = bytes;
+            this.records = records;
+        }
+    }
+
+    // Runs on a worker
+    private Chunk formatChunk(ByteBuffer bytes, boolean first) {
+        CharBuffer text = charset.decode(bytes);
+        StringBuilder out = new StringBuilder(text.length() + text.length() / 8);
+        StringBuilder scratch = new StringBuilder();
+        // The CSV field being read, scratch then takes its formatted value
+        StringBuilder field = widths == null ? new StringBuilder() : null;
+        int length = text.length();
+        int records = 0;
+        int position = 0;
+        if (first && header && length > 0) {
+            int start = position;
+            position = widths == null ? skipCsvRecord(text, position) : skipLine(text, position);
+            out.append(text, start, position);
+            records++;
+        }
+        while (position < length) {
+            position = widths == null
+                    ? formatCsvRecord(text, position, out, field, scratch)
+                    : formatFixedWidthRecord(text, position, out, scratch);
+            records++;
+        }
+        return new Chunk(charset.encode(CharBuffer.wrap(out)), records);
+    }
+
+    private BatchFormatter.Operation operation(int column) {
+        return column < columns.length ? columns[column] : null;
+    }
+
+    private int formatCsvRecord(CharSequence text, int position, StringBuilder out, StringBuilder field,
+                                StringBuilder scratch) {
+        int length = text.length();
+        int column = 0;
+        while (true) {
+            field.setLength(0);
+            boolean quoted = position < length && text.charAt(position) == '"';
+            if (quoted) {
+                position++;
+                while (position < length) {
+                    char c = text.charAt(position++);
+                    if (c != '"') {
+                        field.append(c);
+                    } else if (position < length && text.charAt(position) == '"') {
+                        field.append('"');
+                        position++;
+                    } else {
+                        break;
+                    }
+                }
+            }
+            // Anything between a closing quote and the next delimiter is kept as part of the field
+            int end = position;
+            while (end < length && text.charAt(end) != delimiter && !isRecordEnd(text, end)) {
+                end++;
+            }
+            field.append(text, position, end);
+            position = end;
+
+            appendCsvField(field, quoted, operation(column), out, scratch);
+            if (position == length) {
+                return position;
+            }
+            if (text.charAt(position) == delimiter) {
+                out.append(delimiter);
+                position++;
+                column++;
+                continue;
+            }
+            if (text.charAt(position) == '\r') {
+                out.append('\r');
+                position++;
+                if (position == length) {
+                    return position;
+                }
+            }
+            out.append('\n');
+            return position + 1;
+        }
+    }
+
+    private void appendCsvField(StringBuilder field, boolean quoted, BatchFormatter.Operation operation,
+                                StringBuilder out, StringBuilder scratch) {
+        CharSequence value = field;
+        if (operation != null) {
+            value = operation.format(field.toString(), scratch);
+        }
+        if (!quoted && !needsQuotes(value)) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    private boolean needsQuotes(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A '\r' ends a record before a '\n', and on its own at the end of the input
+    private static boolean isRecordEnd(CharSequence text, int position) {
+        char c = text.charAt(position);
+        return c == '\n' || c == '\r' && (position + 1 == text.length() || text.charAt(position + 1) == '\n');
+    }
+
+    // The position after the record starting at position
+    private static int skipCsvRecord(CharSequence text, int position) {
+        boolean quoted = false;
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '\n' && !quoted) {
+                break;
+            }
+        }
+        return position;
+    }
+
+    private static int skipLine(CharSequence text, int position) {
+        while (position < text.length() && text.charAt(position++) != '\n') {
+            // advance past the newline
+        }
+        return position;
+    }
+
+    private int formatFixedWidthRecord(CharSequence text, int position, StringBuilder out, StringBuilder scratch) {
+        int end = skipLine(text, position);
+        int lineEnd = end;
+        if (lineEnd > position && text.charAt(lineEnd - 1) == '\n') {
+            lineEnd--;
+        }
+        // Before the '\n', or on its own at the end of the input
+        if (lineEnd > position && text.charAt(lineEnd - 1) == '\r') {
+            lineEnd--;
+        }
+
+        int start = position;
+        for (int column = 0; column < widths.length && start < lineEnd; column++) {
+            int fieldEnd = Math.min(start + widths[column], lineEnd);
+            BatchFormatter.Operation operation = operation(column);
+            if (operation == null) {
+                out.append(text, start, fieldEnd);
+            } else {
+                int valueEnd = fieldEnd;
+                while (valueEnd > start && text.charAt(valueEnd - 1) == ' ') {
+                    valueEnd--;
+                }
+                String value = operation.format(text.subSequence(start, valueEnd).toString(), scratch);
+                int width = fieldEnd - start;
+                if (value.length() > width) {
+                    out.append(text, start, fieldEnd);
+                } else {
+                    out.append(value);
+                    for (int i = value.length(); i < width; i++) {
+                        out.append(' ');
+                    }
+                }
+            }
+            start = fieldEnd;
+        }
+        out.append(text, start, end);
+        return end;
+    }
+
+    /**
+     * Command line entry point.
+     *
+     * <pre>
+     * FormatterPipeline (--csv [--delimiter C] | --fixed-width W1,W2,...) [--header]
+     *                   --column INDEX=OPERATION ... [--workers N] [--charset NAME] INPUT OUTPUT
+     * </pre>
+     *
+     * OPERATION is one of the {@link BatchFormatter.Operation} names, for example
+     * {@code --column 0=LAST_NAME --column 4=POSTAL_CODE}.
+     */
+    public static void main(String[] args) throws IOException {
+        char delimiter = ',';
+        int[] widths = null;
+        boolean header = false;
+        int workers = Runtime.getRuntime().availableProcessors();
+        Charset charset = StandardCharsets.UTF_8;
+        List<String> columns = new ArrayList<>();
+        Path input = null;
+        Path output = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--csv":
+                    widths = null;
+                    break;
+                case "--delimiter":
+                    delimiter = args[++i].equals("\\t") ? '\t' : args[i].charAt(0);
+                    break;
+                case "--fixed-width":
+                    widths = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--header":
+                    header = true;
+                    break;
+                case "--column":
+                    columns.add(args[++i]);
+                    break;
+                case "--workers":
+                    workers = Integer.parseInt(args[++i]);
+                    break;
+                case "--charset":
+                    charset = Charset.forName(args[++i]);
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    if (input == null) {
+                        input = Paths.get(args[i]);
+                    } else if (output == null) {
+                        output = Paths.get(args[i]);
+                    } else {
+                        throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+                    }
+            }
+        }
+        if (input == null || output == null) {
+            throw new IllegalArgumentException("Usage: FormatterPipeline (--csv [--delimiter C] | --fixed-width W1,W2,...)"
+                    + " [--header] --column INDEX=OPERATION ... [--workers N] [--charset NAME] INPUT OUTPUT");
+        }
+
+        FormatterPipeline pipeline = widths == null ? csv(delimiter) : fixedWidth(widths);
+        for (String column : columns) {
+            int separator = column.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Expected INDEX=OPERATION: " + column);
+            }
+            pipeline = pipeline.withColumn(Integer.parseInt(column.substring(0, separator)),
+                    BatchFormatter.Operation.valueOf(column.substring(separator + 1)));
+        }
+        if (header) {
+            pipeline = pipeline.withHeader();
+        }
+        long start = System.nanoTime();
+        long records = pipeline.withWorkers(workers).withCharset(charset).format(input, output);
+        System.out.printf("Formatted %d records in %d ms%n", records, (System.nanoTime() - start) / 1_000_000);
+    }
+}
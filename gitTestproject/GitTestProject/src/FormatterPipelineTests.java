@@ -0,0 +1,103 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FormatterPipelineTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testCsv() throws IOException {
+        Path input = directory.resolve("input.csv");
+        Path output = directory.resolve("output.csv");
+        Files.writeString(input, "last,company,address\r\n"
+                + "SMITH,\"ACME, INC.\",\"123 MAIN STREET, TORONTO, ON, M5W1E6\"\r\n"
+                + "\"O'BRIEN\",\"ALPHA \"\"AND\"\" OMEGA LTD\",\"1 FRONT ST\nAPT 2\"\n"
+                + "PEÑA,,\n");
+
+        long records = FormatterPipeline.csv(',')
+                .withHeader()
+                .withColumn(0, BatchFormatter.Operation.LAST_NAME)
+                .withColumn(1, BatchFormatter.Operation.LEGAL_ENTITY_NAME)
+                .withColumn(2, BatchFormatter.Operation.ADDRESS)
+                .format(input, output);
+
+        assertEquals(4, records);
+        assertEquals("last,company,address\r\n"
+                + "Smith,\"Acme, INC.\",\"123 Main Street, Toronto, ON, M5W 1E6\"\r\n"
+                + "\"O'Brien\",\"Alpha \"\"And\"\" Omega Ltd\",\"1 Front St\napt 2\"\n"
+                + "Peña,,\n", Files.readString(output));
+    }
+
+    @Test
+    void testCsvEndingInCarriageReturn() throws IOException {
+        Path input = directory.resolve("input.csv");
+        Path output = directory.resolve("output.csv");
+        Files.writeString(input, "SMITH,M5W1E6\r\nJONES,\"K1A0B1\"\r");
+
+        long records = FormatterPipeline.csv(',')
+                .withColumn(0, BatchFormatter.Operation.LAST_NAME)
+                .withColumn(1, BatchFormatter.Operation.POSTAL_CODE)
+                .format(input, output);
+
+        assertEquals(2, records);
+        assertEquals("Smith,M5W 1E6\r\nJones,\"K1A 0B1\"\r", Files.readString(output));
+    }
+
+    @Test
+    void testFixedWidth() throws IOException {
+        Path input = directory.resolve("input.txt");
+        Path output = directory.resolve("output.txt");
+        Files.writeString(input, "SMITH     MCDONALD  M5W1E6    rest\nJONES     O'SHEA    K1A0B1\n\nDE LA CRUZ");
+
+        long records = FormatterPipeline.fixedWidth(10, 10, 10)
+                .withColumn(0, BatchFormatter.Operation.FIRST_NAME)
+                .withColumn(1, BatchFormatter.Operation.LAST_NAME)
+                .withColumn(2, BatchFormatter.Operation.POSTAL_CODE)
+                .format(input, output);
+
+        assertEquals(4, records);
+        // K1A0B1 is cut short by the end of its line, so "K1A 0B1" would not fit
+        assertEquals("Smith     McDonald  M5W 1E6   rest\nJones     O'Shea    K1A0B1\n\nDe La Cruz",
+                Files.readString(output));
+    }
+
+    @Test
+    void testLargeFileKeepsRowOrder() throws IOException {
+        String[] names = {"SMITH", "MCDONALD", "O'BRIEN", "DE LA CRUZ", "PEÑA"};
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            String name = names[random.nextInt(names.length)];
+            input.append(i).append(',').append(name).append('\n');
+            expected.append(i).append(',').append(ClientNameFormatter.formatLastName(name)).append('\n');
+        }
+        Path inputFile = directory.resolve("input.csv");
+        Path outputFile = directory.resolve("output.csv");
+        Files.writeString(inputFile, input);
+
+        long records = FormatterPipeline.csv(',')
+                .withWorkers(4)
+                .withColumn(1, BatchFormatter.Operation.LAST_NAME)
+                .format(inputFile, outputFile);
+
+        assertEquals(200_000, records);
+        assertEquals(expected.toString(), Files.readString(outputFile));
+    }
+
+    @Test
+    void testUnknownColumn() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FormatterPipeline.fixedWidth(10, 10).withColumn(2, BatchFormatter.Operation.CITY_NAME));
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.util;
+
+/**
+ * The rules a formatter applies to each whitespace-separated word. Profiles are immutable and
+ * built once per formatter; {@link FormatterEngine} does the actual work.
+ */
+final class FormatterProfile {
+
+    // Null when words are capitalized on their first character only
+    final CharTable specialCharacters;
+    final PrefixTrie prefixes;
+    final CodeSet upperCaseWords;
+    final CodeSet lowerCaseWords;
+    final boolean trimWords;
+
+    private FormatterProfile(CharTable specialCharacters, PrefixTrie prefixes, CodeSet upperCaseWords,
+                             CodeSet lowerCaseWords, boolean trimWords) {
+        this.specialCharacters = specialCharacters;
+        this.prefixes = prefixes;
+        this.upperCaseWords = upperCaseWords;
+        this.lowerCaseWords = lowerCaseWords;
+        this.trimWords = trimWords;
+    }
+
+    /**
+     * Capitalize the first letter of a word and every letter following a special character,
+     * lowercasing the rest.
+     */
+    static FormatterProfile capitalizeLetters(PrefixTrie prefixes, CharTable specialCharacters) {
+        return new FormatterProfile(specialCharacters, prefixes, null, null, false);
+    }
+
+    /**
+     * Uppercase the first character of a word and lowercase the rest.
+     */
+    static FormatterProfile capitalizeFirstCharacter(PrefixTrie prefixes) {
+        return new FormatterProfile(null, prefixes, null, null, false);
+    }
+
+    /**
+     * Words found in the given set are written fully uppercase, as declared in the set.
+     */
+    FormatterProfile withUpperCaseWords(CodeSet words) {
+        return new FormatterProfile(specialCharacters, prefixes, words, lowerCaseWords, trimWords);
+    }
+
+    /**
+     * Words found in the given set are written lowercase unless they start the name.
+     */
+    FormatterProfile withLowerCaseWords(CodeSet words) {
+        return new FormatterProfile(specialCharacters, prefixes, upperCaseWords, words, trimWords);
+    }
+
+    /**
+     * Strip control characters around each word; words made only of whitespace are kept as-is.
+     */
+    FormatterProfile trimmingWords() {
+        return new FormatterProfile(specialCharacters, prefixes, upperCaseWords, lowerCaseWords, true);
+    }
+}
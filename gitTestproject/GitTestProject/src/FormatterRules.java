@@ -0,0 +1,40 @@
+package com.example.util;
+
+/**
+ * Rule sets shared by the formatters. Each formatter compiles the rules it needs into
+ * lookup tables once, when its class is loaded, so the hot path never touches these arrays.
+ */
+final class FormatterRules {
+
+    // Special Name Prefixes, the longest match wins
+    static final String[] NAME_PREFIXES = {
+            "Mc", "Mac", "O'", "D'", "De", "Van", "Von", "Le", "La", "Da", "Di", "Du", "Del",
+            "De La", "Van Der", "De Los", "St.", "San", "Dos"
+    };
+
+    // Characters after which the next letter of a personal name is capitalized
+    static final String NAME_SPECIAL_CHARACTERS = "'-/+&()[]\",.!";
+
+    // Characters after which the next letter of a legal entity name is capitalized
+    static final String LEGAL_ENTITY_SPECIAL_CHARACTERS = "'-/+&(),.";
+
+    // Canadian Provinces and Territories
+    static final String[] CANADIAN_PROVINCES = {
+            "AB", "BC", "MB", "NB", "NL", "NT", "NS", "NU", "ON", "PE", "QC", "SK", "YT"
+    };
+
+    // U.S. States
+    static final String[] US_STATES = {
+            "AL", "AK", "AZ", "AR", "CA", "CO", "CT", "DE", "FL", "GA", "HI", "ID", "IL",
+            "IN", "IA", "KS", "KY", "LA", "ME", "MD", "MA", "MI", "MN", "MS", "MO", "MT",
+            "NE", "NV", "NH", "NJ", "NM", "NY", "NC", "ND", "OH", "OK", "OR", "PA", "RI",
+            "SC", "SD", "TN", "TX", "UT", "VT", "VA", "WA", "WV", "WI", "WY"
+    };
+
+    // Compiled name prefixes, shared by every name formatter
+    static final PrefixTrie NAME_PREFIX_TRIE = new PrefixTrie(NAME_PREFIXES);
+
+    static final CharTable NAME_SPECIAL_CHARACTER_TABLE = new CharTable(NAME_SPECIAL_CHARACTERS);
+
+    static final CharTable LEGAL_ENTITY_SPECIAL_CHARACTER_TABLE = new CharTable(LEGAL_ENTITY_SPECIAL_CHARACTERS);
+}
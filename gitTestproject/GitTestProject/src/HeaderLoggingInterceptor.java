@@ -0,0 +1,294 @@
+package com.example.http;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Logs outbound requests and their responses at debug level, and records their sizes and
+ * latency per host.
+ *
+ * <p>Nothing is formatted unless debug is enabled and the request is sampled: one in
+ * {@code sample-rate}. Headers are written one by one into a single builder, with the values of
+ * redacted headers replaced. The per-host numbers are kept for every request, in adders, and
+ * published once bound to a registry; response bodies are counted as the caller reads them.
+ */
+public class HeaderLoggingInterceptor implements ClientHttpRequestInterceptor, MeterBinder {
+
+    static final String REDACTED = "[redacted]";
+
+    private static final Logger logger = LoggerFactory.getLogger(HeaderLoggingInterceptor.class);
+
+    private final int sampleRate;
+    private final Set<String> redacted;
+    private final AtomicLong requests = new AtomicLong();
+    private final ConcurrentHashMap<String, Host> hosts = new ConcurrentHashMap<>();
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param sampleRate     logs one request in this many, 0 for none
+     * @param redactedHeaders names of headers whose values are never logged, in any case
+     */
+    public HeaderLoggingInterceptor(int sampleRate, Collection<String> redactedHeaders) {
+        this.sampleRate = sampleRate;
+        this.redacted = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        this.redacted.addAll(redactedHeaders);
+    }
+
+    public static HeaderLoggingInterceptor of(RestClientProperties.Logging logging) {
+        return new HeaderLoggingInterceptor(logging.getSampleRate(), logging.getRedactedHeaders());
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        Host host = host(request.getURI().getHost());
+        boolean logged = sampleRate > 0 && logger.isDebugEnabled() && requests.getAndIncrement() % sampleRate == 0;
+        if (logged) {
+            logger.debug("{} {} headers {}", request.getMethod(), request.getURI(), format(request.getHeaders()));
+        }
+        long start = System.nanoTime();
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            host.record(System.nanoTime() - start, body.length, true);
+            throw e;
+        }
+        long latency = System.nanoTime() - start;
+        int status = response.getStatusCode().value();
+        host.record(latency, body.length, status >= 500);
+        if (logged) {
+            logger.debug("{} {} answered {} in {} ms, sent {} bytes, headers {}", request.getMethod(), request.getURI(),
+                    status, TimeUnit.NANOSECONDS.toMillis(latency), body.length, format(response.getHeaders()));
+        }
+        return new CountingResponse(response, host);
+    }
+
+    /**
+     * @return the headers as {@code name: value, value; name: value}, with redacted values replaced
+     */
+    String format(HttpHeaders headers) {
+        StringBuilder formatted = new StringBuilder(128);
+        headers.forEach((name, values) -> {
+            if (formatted.length() > 0) {
+                formatted.append("; ");
+            }
+            formatted.append(name).append(": ");
+            if (redacted.contains(name)) {
+                formatted.append(REDACTED);
+                return;
+            }
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    formatted.append(", ");
+                }
+                formatted.append(values.get(i));
+            }
+        });
+        return formatted.toString();
+    }
+
+    private Host host(String name) {
+        String key = name != null ? name : "unknown";
+        Host host = hosts.get(key);
+        if (host != null) {
+            return host;
+        }
+        Host created = new Host(key);
+        host = hosts.putIfAbsent(key, created);
+        if (host != null) {
+            return host;
+        }
+        // Read after publishing, so either this thread or bindTo registers the new host
+        MeterRegistry current = registry;
+        if (current != null) {
+            register(current, created);
+        }
+        return created;
+    }
+
+    /**
+     * @return the numbers of every host called so far, by host
+     */
+    public Map<String, HostStats> snapshot() {
+        Map<String, HostStats> snapshot = new TreeMap<>();
+        hosts.forEach((name, host) -> snapshot.put(name, host.stats()));
+        return snapshot;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        hosts.values().forEach(host -> register(registry, host));
+    }
+
+    private static void register(MeterRegistry registry, Host host) {
+        FunctionTimer.builder("http.client.host.requests", host,
+                        h -> h.requests.sum(), h -> h.latencyNanos.sum(), TimeUnit.NANOSECONDS)
+                .tag("host", host.name)
+                .description("Time until the response headers of requests to the host")
+                .register(registry);
+        FunctionCounter.builder("http.client.host.errors", host, h -> h.errors.sum())
+                .tag("host", host.name)
+                .description("Requests to the host that failed or answered 5xx")
+                .register(registry);
+        FunctionCounter.builder("http.client.host.sent", host, h -> h.sentBytes.sum())
+                .tag("host", host.name)
+                .baseUnit("bytes")
+                .register(registry);
+        FunctionCounter.builder("http.client.host.received", host, h -> h.receivedBytes.sum())
+                .tag("host", host.name)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static final class Host {
+        final String name;
+        final LongAdder requests = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAdder latencyNanos = new LongAdder();
+        final LongAdder sentBytes = new LongAdder();
+        final LongAdder receivedBytes = new LongAdder();
+
+        Host(String name) {
+            this.name = name;
+        }
+
+        void record(long latency, int sent, boolean error) {
+            requests.increment();
+            latencyNanos.add(latency);
+            sentBytes.add(sent);
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        HostStats stats() {
+            return new HostStats(requests.sum(), errors.sum(), latencyNanos.sum(), sentBytes.sum(),
+                    receivedBytes.sum());
+        }
+    }
+
+    /**
+     * Totals of the requests to one host.
+     */
+    public static final class HostStats {
+        private final long requests;
+        private final long errors;
+        private final long latencyNanos;
+        private final long sentBytes;
+        private final long receivedBytes;
+
+        HostStats(long requests, long errors, long latencyNanos, long sentBytes, long receivedBytes) {
+            this.requests = requests;
+            this.errors = errors;
+            this.latencyNanos = latencyNanos;
+            this.sentBytes = sentBytes;
+            this.receivedBytes = receivedBytes;
+        }
+
+        public long getRequests() {
+            return requests;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        public long getLatencyNanos() {
+            return latencyNanos;
+        }
+
+        public long getSentBytes() {
+            return sentBytes;
+        }
+
+        /**
+         * @return the response body bytes read by callers so far
+         */
+        public long getReceivedBytes() {
+            return receivedBytes;
+        }
+    }
+
+    // Counts the body bytes as they are read, so nothing is buffered for the count
+    private static final class CountingResponse implements ClientHttpResponse {
+        private final ClientHttpResponse delegate;
+        private final Host host;
+        private InputStream body;
+
+        CountingResponse(ClientHttpResponse delegate, Host host) {
+            this.delegate = delegate;
+            this.host = host;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = new FilterInputStream(delegate.getBody()) {
+                    @Override
+                    public int read() throws IOException {
+                        int b = super.read();
+                        if (b != -1) {
+                            host.receivedBytes.increment();
+                        }
+                        return b;
+                    }
+
+                    @Override
+                    public int read(byte[] buffer, int offset, int length) throws IOException {
+                        int read = super.read(buffer, offset, length);
+                        if (read > 0) {
+                            host.receivedBytes.add(read);
+                        }
+                        return read;
+                    }
+                };
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeaderLoggingInterceptorTests {
+
+    private final HeaderLoggingInterceptor interceptor =
+            new HeaderLoggingInterceptor(1, List.of("Authorization", "X-Api-Key"));
+
+    @Test
+    void testRedactsConfiguredHeadersInAnyCase() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("accept", "application/json");
+        headers.add("authorization", "Bearer secret");
+        headers.add("X-API-KEY", "key");
+        headers.add("X-Trace", "a");
+        headers.add("X-Trace", "b");
+
+        String formatted = interceptor.format(headers);
+
+        assertEquals("accept: application/json; authorization: [redacted]; X-API-KEY: [redacted]; X-Trace: a, b",
+                formatted);
+        assertFalse(formatted.contains("secret"));
+    }
+
+    @Test
+    void testRecordsSizesAndLatencyPerHost() throws IOException {
+        MockClientHttpRequest request = new MockClientHttpRequest(HttpMethod.POST, URI.create("https://api.example.com/a"));
+
+        try (ClientHttpResponse response = interceptor.intercept(request, new byte[12],
+                (r, body) -> new MockClientHttpResponse(new byte[100], HttpStatus.OK))) {
+            assertEquals(100, response.getBody().readAllBytes().length);
+        }
+        assertThrows(IOException.class, () -> interceptor.intercept(request, new byte[3], (r, body) -> {
+            throw new IOException("Connection reset");
+        }));
+        interceptor.intercept(request, new byte[0],
+                (r, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.BAD_GATEWAY)).close();
+
+        HeaderLoggingInterceptor.HostStats stats = interceptor.snapshot().get("api.example.com");
+        assertEquals(3L, stats.getRequests());
+        assertEquals(2L, stats.getErrors());
+        assertEquals(15L, stats.getSentBytes());
+        assertEquals(100L, stats.getReceivedBytes());
+        assertTrue(stats.getLatencyNanos() > 0);
+    }
+}
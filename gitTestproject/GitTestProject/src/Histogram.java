@@ -0,0 +1,158 @@
+package com.yourpackage.aspect;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative longs in the style of HdrHistogram. Values below 64 get a
+ * bucket each; above that every power of two is split into 32 linear buckets, so a recorded
+ * value is known to within about 3% across the whole long range, in a fixed 15 KB of counts.
+ *
+ * <p>Recording is a single atomic increment plus a few striped adders and never blocks. Counts
+ * only ever grow; intervals are taken by subtracting an earlier {@link Snapshot}.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below this have a bucket each
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Record a value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts.getAndIncrement(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * @return the number of values recorded, without copying the counts
+     */
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return the sum of the values recorded, without copying the counts
+     */
+    public long sum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return a copy of the counts so far
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.sum(), max.get());
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    // The highest value that falls into the bucket
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR_LIMIT) {
+            return bucket;
+        }
+        int exponent = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        long subBucket = (bucket - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * Immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return the values recorded after {@code earlier} was taken. The exact maximum cannot
+         * be subtracted, so it is the top of the highest bucket used in the interval, within the
+         * histogram's precision.
+         */
+        public Snapshot since(Snapshot earlier) {
+            long[] difference = new long[BUCKETS];
+            long total = 0;
+            long highest = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                difference[i] = counts[i] - earlier.counts[i];
+                total += difference[i];
+                if (difference[i] > 0) {
+                    highest = Math.min(highestValue(i), max);
+                }
+            }
+            return new Snapshot(difference, total, sum - earlier.sum, highest);
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return a value at least as large as that percentage of the recorded values, within
+         * the histogram's precision, or 0 if nothing was recorded
+         */
+        public long valueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100) / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
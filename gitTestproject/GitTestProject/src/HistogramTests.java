@@ -0,0 +1,83 @@
+package com.yourpackage.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTests {
+
+    @Test
+    void testBucketsCoverEveryValue() {
+        Random random = new Random(15);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = Histogram.bucket(value);
+            assertTrue(value <= Histogram.highestValue(bucket));
+            assertTrue(bucket == 0 || value > Histogram.highestValue(bucket - 1));
+            // Within 1/32 of the value
+            assertTrue(Histogram.highestValue(bucket) - value <= value / 32, "value " + value);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.highestValue(Histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testPercentiles() {
+        Histogram histogram = new Histogram();
+        long[] values = new Random(15).longs(10_000, 0, 5_000_000).toArray();
+        for (long value : values) {
+            histogram.record(value);
+        }
+        Arrays.sort(values);
+
+        Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_000, snapshot.count());
+        assertEquals(values[values.length - 1], snapshot.max());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = snapshot.valueAtPercentile(percentile);
+            assertTrue(estimate >= exact && estimate - exact <= exact / 32, percentile + ": " + estimate);
+        }
+        assertEquals(snapshot.max(), snapshot.valueAtPercentile(100));
+        assertEquals(0, new Histogram().snapshot().valueAtPercentile(99));
+    }
+
+    @Test
+    void testSince() {
+        Histogram histogram = new Histogram();
+        histogram.record(1_000_000);
+        Histogram.Snapshot earlier = histogram.snapshot();
+        histogram.record(10);
+        histogram.record(20);
+
+        Histogram.Snapshot interval = histogram.snapshot().since(earlier);
+        assertEquals(2, interval.count());
+        assertEquals(30, interval.sum());
+        assertEquals(20, interval.max());
+        assertEquals(20, interval.valueAtPercentile(99));
+    }
+
+    @Test
+    void testConcurrentRecording() throws Exception {
+        Histogram histogram = new Histogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    histogram.record(i);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(400_000, histogram.count());
+        assertEquals(400_000, histogram.snapshot().count());
+        assertEquals(4L * 99_999 * 100_000 / 2, histogram.sum());
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+/**
+ * Builds JDK {@link HttpClient}s from {@link RestClientProperties}. Each client keeps its
+ * connections open between requests and multiplexes HTTP/2 streams over them; TLS is set up on
+ * the client, leaving the JVM's defaults alone. The JDK's JVM-wide keep-alive timeout is left as
+ * it is too; {@link IdleEvictingRequestFactory} drops idle connections sooner.
+ */
+public final class HttpClients {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClients.class);
+
+    private HttpClients() {
+    }
+
+    public static HttpClient create(RestClientProperties properties) throws GeneralSecurityException, IOException {
+        RestClientProperties.Tls tls = properties.getTls();
+        return HttpClient.newBuilder()
+                .version(properties.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .sslContext(sslContext(tls))
+                .sslParameters(new SSLParameters(null, tls.getProtocols().toArray(new String[0])))
+                .build();
+    }
+
+    /**
+     * @return a context trusting the configured trust store, or the JDK's certificates without
+     * one, and presenting the key store's certificate if there is one
+     */
+    static SSLContext sslContext(RestClientProperties.Tls tls) throws GeneralSecurityException, IOException {
+        TrustManager[] trustManagers;
+        if (tls.isTrustAll()) {
+            logger.warn("Certificate validation is disabled for this client; use a trust store outside tests");
+            trustManagers = new TrustManager[]{new TrustAllManager()};
+        } else {
+            TrustManagerFactory factory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            factory.init(tls.getTrustStore() != null
+                    ? load(tls.getTrustStore(), tls.getTrustStoreType(), tls.getTrustStorePassword())
+                    : null);
+            trustManagers = factory.getTrustManagers();
+        }
+        KeyManager[] keyManagers = null;
+        if (tls.getKeyStore() != null) {
+            KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            factory.init(load(tls.getKeyStore(), tls.getKeyStoreType(), tls.getKeyStorePassword()),
+                    password(tls.getKeyStorePassword()));
+            keyManagers = factory.getKeyManagers();
+        }
+        SSLContext context = SSLContext.getInstance("TLS");
+        context.init(keyManagers, trustManagers, null);
+        return context;
+    }
+
+    private static KeyStore load(Path path, String type, String password) throws GeneralSecurityException, IOException {
+        KeyStore store = KeyStore.getInstance(type);
+        try (InputStream in = Files.newInputStream(path)) {
+            store.load(in, password(password));
+        }
+        return store;
+    }
+
+    private static char[] password(String password) {
+        return password != null ? password.toCharArray() : null;
+    }
+
+    private static final class TrustAllManager implements X509TrustManager {
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.http;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Sends requests through a JDK {@link HttpClient}, and replaces the client with a new one once
+ * no request has been sent for the idle timeout, which drops its connections.
+ *
+ * <p>The JDK client only closes idle connections after its JVM-wide keep-alive timeout and has
+ * no per-client setting, so this evicts the whole client rather than single connections: a
+ * connection left idle on one route while another route stays busy is kept until the JDK's
+ * timeout. The replaced client is shut down, letting requests still in flight finish, on
+ * runtimes that can; on older ones its connections close once it is garbage collected.
+ */
+public class IdleEvictingRequestFactory implements ClientHttpRequestFactory {
+
+    // HttpClient.shutdown, from Java 21
+    private static final MethodHandle SHUTDOWN = shutdownHandle();
+
+    private final Clients clients;
+    private final Duration readTimeout;
+    private final long idleTimeoutNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong lastUsed;
+    private volatile Delegate delegate;
+    private volatile long evictions;
+
+    IdleEvictingRequestFactory(HttpClient client, Clients clients, Duration readTimeout, Duration idleTimeout,
+                               LongSupplier nanoClock) {
+        if (idleTimeout.isZero() || idleTimeout.isNegative()) {
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeout);
+        }
+        this.clients = clients;
+        this.readTimeout = readTimeout;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.lastUsed = new AtomicLong(nanoClock.getAsLong());
+        this.delegate = new Delegate(client, readTimeout);
+    }
+
+    /**
+     * @param client the client to start with, replaced by new ones from
+     *               {@link HttpClients#create} after the pool's idle timeout
+     */
+    public static IdleEvictingRequestFactory of(HttpClient client, RestClientProperties properties) {
+        return new IdleEvictingRequestFactory(client, () -> HttpClients.create(properties), properties.getReadTimeout(),
+                properties.getPool().getIdleTimeout(), System::nanoTime);
+    }
+
+    @Override
+    public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+        long now = nanoClock.getAsLong();
+        // Only the first request after an idle spell sees the old time
+        long last = lastUsed.getAndSet(now);
+        Delegate current = delegate;
+        if (now - last >= idleTimeoutNanos) {
+            current = replace(current);
+        }
+        return current.factory.createRequest(uri, httpMethod);
+    }
+
+    private synchronized Delegate replace(Delegate idle) throws IOException {
+        if (delegate != idle) {
+            return delegate;
+        }
+        HttpClient client;
+        try {
+            client = clients.create();
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot create a client to replace the idle one", e);
+        }
+        delegate = new Delegate(client, readTimeout);
+        evictions++;
+        shutdown(idle.client);
+        return delegate;
+    }
+
+    private static void shutdown(HttpClient client) {
+        if (SHUTDOWN == null) {
+            return;
+        }
+        try {
+            SHUTDOWN.invoke(client);
+        } catch (Throwable e) {
+            // Its connections still close once it is collected
+        }
+    }
+
+    private static MethodHandle shutdownHandle() {
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(HttpClient.class, "shutdown", MethodType.methodType(void.class));
+        } catch (ReflectiveOperationException e) {
+            // Older runtime
+            return null;
+        }
+    }
+
+    /**
+     * @return the client requests are sent through now
+     */
+    HttpClient getClient() {
+        return delegate.client;
+    }
+
+    /**
+     * @return how many times the client was replaced after being idle
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Creates the clients replacing idle ones.
+     */
+    @FunctionalInterface
+    interface Clients {
+        HttpClient create() throws GeneralSecurityException, IOException;
+    }
+
+    private static final class Delegate {
+        final HttpClient client;
+        final JdkClientHttpRequestFactory factory;
+
+        Delegate(HttpClient client, Duration readTimeout) {
+            this.client = client;
+            this.factory = new JdkClientHttpRequestFactory(client);
+            factory.setReadTimeout(readTimeout);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.http;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdleEvictingRequestFactoryTests {
+
+    private static final URI TARGET = URI.create("http://localhost:1/");
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicInteger created = new AtomicInteger();
+
+    private IdleEvictingRequestFactory factory(HttpClient first) {
+        return new IdleEvictingRequestFactory(first, () -> {
+            created.incrementAndGet();
+            return HttpClient.newHttpClient();
+        }, Duration.ofSeconds(5), Duration.ofMinutes(1), now::get);
+    }
+
+    @Test
+    void testKeepsClientWhileRequestsKeepComing() throws IOException {
+        HttpClient first = HttpClient.newHttpClient();
+        IdleEvictingRequestFactory factory = factory(first);
+
+        for (int i = 0; i < 10; i++) {
+            now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+            factory.createRequest(TARGET, HttpMethod.GET);
+        }
+
+        assertSame(first, factory.getClient());
+        assertEquals(0, created.get());
+        assertEquals(0, factory.getEvictions());
+    }
+
+    @Test
+    void testReplacesClientAfterIdleTimeout() throws IOException {
+        HttpClient first = HttpClient.newHttpClient();
+        IdleEvictingRequestFactory factory = factory(first);
+        factory.createRequest(TARGET, HttpMethod.GET);
+
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        factory.createRequest(TARGET, HttpMethod.GET);
+        HttpClient second = factory.getClient();
+        factory.createRequest(TARGET, HttpMethod.GET);
+
+        assertNotSame(first, second);
+        assertSame(second, factory.getClient());
+        assertEquals(1, created.get());
+        assertEquals(1, factory.getEvictions());
+    }
+}
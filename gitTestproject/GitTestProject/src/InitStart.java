@@ -1,17 +0,0 @@
-import org.springframework.http.HttpRequest;
-import org.springframework.http.client.ClientHttpRequestExecution;
-import org.springframework.http.client.ClientHttpRequestInterceptor;
-import org.springframework.http.client.ClientHttpResponse;
-import java.io.IOException;
-
-public class HeaderLoggingInterceptor implements ClientHttpRequestInterceptor {
-
-	@Override
-	public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
-		// Log the request headers
-		System.out.println("Request Headers: " + request.getHeaders());
-
-		// Proceed with the execution of the request
-		return execution.execute(request, body);
-	}
-}
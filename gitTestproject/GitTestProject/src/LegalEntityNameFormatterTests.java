@@ -80,4 +80,13 @@ class LegalEntityNameFormatterTests {
         assertEquals("McDonald's, St. John's, & Partners LLC", LegalEntityNameFormatter.formatLegalEntityName("MCDONALD'S, ST. JOHN'S, & PARTNERS LLC"));
         assertEquals("Delta+Gamma/Rho Enterprises Corp.", LegalEntityNameFormatter.formatLegalEntityName("DELTA+GAMMA/RHO ENTERPRISES CORP."));
     }
+
+    @Test
+    void testFormatIntoAppendable() {
+        StringBuilder builder = new StringBuilder();
+        LegalEntityNameFormatter.formatLegalEntityName("ACADEMY OF ARTS AND SCIENCES", builder);
+        builder.append(" / ");
+        LegalEntityNameFormatter.formatLegalEntityName("  SMITH   &   SONS,   INC.  ", builder);
+        assertEquals("Academy of Arts and Sciences / Smith & Sons, INC.", builder.toString());
+    }
 }
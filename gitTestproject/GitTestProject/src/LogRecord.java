@@ -0,0 +1,96 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * A logged call or return of an advised method, as handed to a {@link LogSink}. The payload is
+ * the masked JSON of the arguments, by parameter name, or of the return value; it is always
+ * valid JSON, values cut by the size limit are included as strings.
+ */
+public final class LogRecord {
+
+    public enum Type {
+        CALL, RETURN
+    }
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final long timestamp;
+    private final Type type;
+    private final String method;
+    private final String traceId;
+    private final long durationNanos;
+    private final String payload;
+
+    /**
+     * @param timestamp     epoch milliseconds of the call or return
+     * @param type          whether this is a call or a return
+     * @param method        the short name of the method
+     * @param traceId       the trace id of the calling thread, or null
+     * @param durationNanos how long the call took, -1 for calls
+     * @param payload       the masked JSON of the arguments or return value
+     */
+    public LogRecord(long timestamp, Type type, String method, String traceId, long durationNanos, String payload) {
+        this.timestamp = timestamp;
+        this.type = type;
+        this.method = method;
+        this.traceId = traceId;
+        this.durationNanos = durationNanos;
+        this.payload = payload;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Write the record as one object. Text formats get the payload as-is, binary ones such as
+     * Smile or CBOR get it re-encoded so that it is stored in their own compact form.
+     */
+    public void writeTo(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("timestamp", timestamp);
+        generator.writeStringField("type", type.name());
+        generator.writeStringField("method", method);
+        if (traceId != null) {
+            generator.writeStringField("traceId", traceId);
+        }
+        if (durationNanos >= 0) {
+            generator.writeNumberField("durationNanos", durationNanos);
+        }
+        generator.writeFieldName("payload");
+        if (generator.canWriteBinaryNatively()) {
+            try (JsonParser parser = JSON.createParser(payload)) {
+                parser.nextToken();
+                generator.copyCurrentStructure(parser);
+            }
+        } else {
+            generator.writeRawValue(payload);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,78 @@
+package com.yourpackage.aspect;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides which calls of a method get logged. A rate of n logs the first call and then every
+ * n-th; 1 logs everything and 0 nothing. Rates are looked up by the longest configured prefix of
+ * the method's short name, so {@code OrderService} covers the whole class and
+ * {@code OrderService.find} only the find methods.
+ */
+final class LogSampler {
+
+    private final int defaultRate;
+    private final Map<String, Integer> rates;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultRate the rate of methods not matching any prefix
+     * @param rates       rates by method name prefix
+     */
+    LogSampler(int defaultRate, Map<String, Integer> rates) {
+        this.defaultRate = defaultRate;
+        this.rates = Map.copyOf(rates);
+    }
+
+    /**
+     * @param methodName the short name of the called method, such as {@code OrderService.find(..)}
+     * @return true if this call should be logged
+     */
+    boolean sample(String methodName) {
+        return counter(methodName).next();
+    }
+
+    /**
+     * @return the counter sampling calls of the method, to be kept by callers that look it up often
+     */
+    Counter counter(String methodName) {
+        Counter counter = counters.get(methodName);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(methodName, name -> new Counter(rateOf(name)));
+        }
+        return counter;
+    }
+
+    int rateOf(String methodName) {
+        int rate = defaultRate;
+        int matched = -1;
+        for (Map.Entry<String, Integer> entry : rates.entrySet()) {
+            String prefix = entry.getKey();
+            if (prefix.length() > matched && methodName.startsWith(prefix)) {
+                rate = entry.getValue();
+                matched = prefix.length();
+            }
+        }
+        return rate;
+    }
+
+    static final class Counter {
+        private final int rate;
+        private final AtomicLong calls = new AtomicLong();
+
+        Counter(int rate) {
+            this.rate = rate;
+        }
+
+        /**
+         * @return true if this call should be logged
+         */
+        boolean next() {
+            if (rate <= 1) {
+                return rate == 1;
+            }
+            return calls.getAndIncrement() % rate == 0;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.yourpackage.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTests {
+
+    private final LogSampler sampler = new LogSampler(1, Map.of(
+            "OrderService", 3,
+            "OrderService.find", 0,
+            "AuditService.record", 1));
+
+    @Test
+    void testLongestPrefixWins() {
+        assertEquals(1, sampler.rateOf("CustomerService.get(..)"));
+        assertEquals(3, sampler.rateOf("OrderService.save(..)"));
+        assertEquals(0, sampler.rateOf("OrderService.findAll(..)"));
+        assertEquals(1, sampler.rateOf("AuditService.record(..)"));
+    }
+
+    @Test
+    void testSamplesOneCallInRate() {
+        int logged = 0;
+        for (int i = 0; i < 30; i++) {
+            if (sampler.sample("OrderService.save(..)")) {
+                logged++;
+            }
+        }
+        assertEquals(10, logged);
+        assertTrue(sampler.sample("CustomerService.get(..)"));
+        assertFalse(sampler.sample("OrderService.findAll(..)"));
+    }
+}
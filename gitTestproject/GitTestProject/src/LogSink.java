@@ -0,0 +1,16 @@
+package com.yourpackage.aspect;
+
+import java.io.IOException;
+
+/**
+ * Destination of the structured records written by {@link LoggingAspect} instead of text log
+ * messages. Records may arrive from many threads at once.
+ */
+public interface LogSink extends AutoCloseable {
+
+    void write(LogRecord record) throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+}
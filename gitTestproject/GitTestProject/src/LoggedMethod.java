@@ -0,0 +1,40 @@
+package com.yourpackage.aspect;
+
+import org.aspectj.lang.reflect.MethodSignature;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+/**
+ * What {@link LoggingAspect} needs to know about an advised method, worked out on its first call
+ * instead of on every call.
+ */
+final class LoggedMethod {
+
+    final String shortName;
+    final String[] paramNames;
+    // Per parameter, whether its declared type can hold sensitive fields
+    final boolean[] maskArgs;
+    final boolean maskReturn;
+    final LogSampler.Counter sampleCounter;
+    // Null unless metrics are enabled
+    final MethodMetrics metrics;
+
+    LoggedMethod(MethodSignature signature, MaskingJsonWriter maskingJsonWriter, LogSampler sampler,
+                 LoggingAspectMetrics metrics) {
+        Method method = signature.getMethod();
+        Type[] paramTypes = method.getGenericParameterTypes();
+        String[] names = signature.getParameterNames();
+
+        this.shortName = signature.toShortString();
+        this.paramNames = new String[paramTypes.length];
+        this.maskArgs = new boolean[paramTypes.length];
+        for (int i = 0; i < paramTypes.length; i++) {
+            paramNames[i] = names != null && i < names.length ? names[i] : "arg" + i;
+            maskArgs[i] = maskingJsonWriter.mayContainSensitive(paramTypes[i]);
+        }
+        this.maskReturn = maskingJsonWriter.mayContainSensitive(method.getGenericReturnType());
+        this.sampleCounter = sampler.counter(shortName);
+        this.metrics = metrics != null ? metrics.forMethod(shortName) : null;
+    }
+}
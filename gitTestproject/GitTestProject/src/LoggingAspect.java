@@ -1,29 +1,102 @@
 package com.yourpackage.aspect;
 
-import com.fasterxml.jackson.databind.*;
-import com.fasterxml.jackson.databind.node.*;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yourpackage.config.LoggingAspectProperties;
 import com.yourpackage.config.LoggingProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.*;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.*;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Component;
 
-import java.util.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Aspect
 @Component
-public class LoggingAspect {
+public class LoggingAspect implements DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(LoggingAspect.class);
-    private final Set<String> sensitiveFields;
-    private final ObjectMapper objectMapper;
+    // Set by TracingFilter
+    private static final String TRACE_ID_KEY = "b3-traceid";
+    private static final String SERIALIZATION_ERROR = "[ERROR serializing: ";
 
-    public LoggingAspect(LoggingProperties loggingProperties) {
-        this.sensitiveFields = loggingProperties.getSensitiveFieldSet();
+    private final MaskingJsonWriter maskingJsonWriter;
+    private final LogSampler sampler;
+    private final Map<Method, LoggedMethod> loggedMethods = new ConcurrentHashMap<>();
 
-        this.objectMapper = new ObjectMapper();
-        this.objectMapper.enable(SerializationFeature.INDENT_OUTPUT); // Enable pretty print
+    // Null unless async logging is enabled
+    private final AsyncLogDispatcher<LogEvent> dispatcher;
+    // Null unless metrics are enabled
+    private final LoggingAspectMetrics metrics;
+    // Null when logging text messages
+    private final LogSink sink;
+    // False for sinks writing files of their own, which the logger's level does not apply to
+    private final boolean levelGated;
+
+    public LoggingAspect(LoggingProperties loggingProperties, LoggingAspectProperties aspectProperties,
+                         ObjectProvider<MeterRegistry> meterRegistry, ObjectProvider<LogSink> customSink) {
+        // Compact output, sensitive values are masked and limits applied while the JSON is written
+        LoggingAspectProperties.Payload payload = aspectProperties.getPayload();
+        this.maskingJsonWriter = new MaskingJsonWriter(new ObjectMapper(), loggingProperties.getSensitiveFieldSet(),
+                payload.getMaxBytes(), payload.getMaxCollectionElements(), payload.getMaxDepth());
+        this.sampler = new LogSampler(aspectProperties.getSampling().getRate(),
+                aspectProperties.getSampling().getRates());
+
+        // A LogSink bean replaces the configured sink
+        this.sink = customSink.getIfAvailable(() -> createSink(aspectProperties.getSink()));
+        this.levelGated = sink == null || sink instanceof Slf4jKeyValueSink;
+
+        LoggingAspectProperties.Async async = aspectProperties.getAsync();
+        this.dispatcher = async.isEnabled()
+                ? new AsyncLogDispatcher<>("logging-aspect", async.getBufferSize(), async.getOverflowPolicy(),
+                        async.getSampleRate(), this::log)
+                : null;
+
+        LoggingAspectProperties.Metrics metricsProperties = aspectProperties.getMetrics();
+        this.metrics = metricsProperties.isEnabled() ? new LoggingAspectMetrics(metricsProperties.getWindow()) : null;
+        if (metrics != null) {
+            meterRegistry.ifAvailable(metrics::bindTo);
+        }
+        if (dispatcher != null) {
+            meterRegistry.ifAvailable(this::bindDispatcherMetrics);
+        }
+    }
+
+    private static LogSink createSink(LoggingAspectProperties.Sink properties) {
+        try {
+            switch (properties.getType()) {
+                case SLF4J:
+                    return new Slf4jKeyValueSink(logger);
+                case NDJSON:
+                    return NdjsonSink.open(properties.getPath());
+                case BINARY:
+                    return new MappedFileSink(properties.getPath(), properties.getFileSize(), properties.getMaxFiles(),
+                            MappedFileSink.factoryFor(properties.getBinaryFormat().name()));
+                default:
+                    return null;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open log sink at " + properties.getPath(), e);
+        }
+    }
+
+    private void bindDispatcherMetrics(MeterRegistry registry) {
+        Gauge.builder("logging.aspect.async.queue.depth", dispatcher, AsyncLogDispatcher::queueDepth)
+                .description("Log events waiting for the dispatcher thread")
+                .register(registry);
+        FunctionCounter.builder("logging.aspect.async.dropped", dispatcher, AsyncLogDispatcher::droppedCount)
+                .description("Log events dropped by the overflow policy")
+                .register(registry);
     }
 
     @Pointcut("execution(* com.yourpackage..service..*(..))")
@@ -31,19 +104,79 @@ public class LoggingAspect {
 
     @Around("serviceMethods()")
     public Object logMethodCallAndReturn(ProceedingJoinPoint joinPoint) throws Throwable {
-        String methodName = joinPoint.getSignature().toShortString();
+        // Nothing is built or serialized unless the call is going to be logged or measured
+        boolean logEnabled = !levelGated || logger.isInfoEnabled();
+        if (!logEnabled && metrics == null) {
+            return joinPoint.proceed();
+        }
+        LoggedMethod method = loggedMethod((MethodSignature) joinPoint.getSignature());
+        if (!logEnabled || !method.sampleCounter.next()) {
+            return proceed(joinPoint, method, System.nanoTime());
+        }
         Object[] args = joinPoint.getArgs();
-        String[] paramNames = ((MethodSignature) joinPoint.getSignature()).getParameterNames();
+        long timestamp = System.currentTimeMillis();
+
+        if (dispatcher != null) {
+            // Masked and serialized on the dispatcher thread; nothing is captured for a dropped event
+            dispatcher.publishLazily(() -> LogEvent.call(method, args, timestamp, MDC.getCopyOfContextMap()));
+        } else {
+            logCall(method, args, timestamp, MDC.get(TRACE_ID_KEY));
+        }
+
+        // Proceed with method execution
+        long start = System.nanoTime();
+        Object result = proceed(joinPoint, method, start);
+        long durationNanos = System.nanoTime() - start;
 
+        // Log masked return value
+        if (dispatcher != null) {
+            long returnTimestamp = System.currentTimeMillis();
+            dispatcher.publishLazily(() -> LogEvent.returned(method, result, returnTimestamp, durationNanos,
+                    MDC.getCopyOfContextMap()));
+        } else {
+            logReturn(method, result, System.currentTimeMillis(), durationNanos, MDC.get(TRACE_ID_KEY));
+        }
+
+        return result;
+    }
+
+    private Object proceed(ProceedingJoinPoint joinPoint, LoggedMethod method, long start) throws Throwable {
+        if (method.metrics == null) {
+            return joinPoint.proceed();
+        }
+        boolean failed = true;
+        try {
+            Object result = joinPoint.proceed();
+            failed = false;
+            return result;
+        } finally {
+            method.metrics.recordCall(System.nanoTime() - start, failed);
+        }
+    }
+
+    private LoggedMethod loggedMethod(MethodSignature signature) {
+        Method key = signature.getMethod();
+        LoggedMethod method = loggedMethods.get(key);
+        if (method == null) {
+            method = loggedMethods.computeIfAbsent(key, m -> new LoggedMethod(signature, maskingJsonWriter, sampler, metrics));
+        }
+        return method;
+    }
+
+    private void logCall(LoggedMethod method, Object[] args, long timestamp, String traceId) {
+        if (sink != null) {
+            writeCall(method, args, timestamp, traceId);
+            return;
+        }
         // Build and mask arguments
-        StringBuilder logBuilder = new StringBuilder("Calling method: ").append(methodName).append(" | Args: [");
+        StringBuilder logBuilder = new StringBuilder("Calling method: ").append(method.shortName).append(" | Args: [");
+        int payloadSize = 0;
 
         for (int i = 0; i < args.length; i++) {
-            String paramName = (paramNames != null && i < paramNames.length) ? paramNames[i] : "arg" + i;
-            Object arg = args[i];
-            String masked = serializeAndMask(arg, paramName);
+            String masked = serializeAndMask(args[i], maskArg(method, i));
+            payloadSize += masked.length();
 
-            logBuilder.append(paramName).append("=").append(masked);
+            logBuilder.append(paramName(method, i)).append("=").append(masked);
             if (i < args.length - 1) {
                 logBuilder.append(", ");
             }
@@ -51,60 +184,154 @@ public class LoggingAspect {
 
         logBuilder.append("]");
         logger.info(logBuilder.toString());
+        recordPayload(method, payloadSize);
+    }
 
-        // Proceed with method execution
-        Object result = joinPoint.proceed();
+    private void logReturn(LoggedMethod method, Object result, long timestamp, long durationNanos, String traceId) {
+        String masked = serializeAndMask(result, method.maskReturn);
+        if (sink != null) {
+            writeRecord(new LogRecord(timestamp, LogRecord.Type.RETURN, method.shortName, traceId, durationNanos,
+                    jsonValue(masked, new StringBuilder()).toString()));
+        } else {
+            logger.info("Return from {}: {}", method.shortName, masked);
+        }
+        recordPayload(method, masked.length());
+    }
 
-        // Log masked return value
-        logger.info("Return from {}: {}", methodName, serializeAndMask(result, "return"));
+    // The arguments as one JSON object by parameter name
+    private void writeCall(LoggedMethod method, Object[] args, long timestamp, String traceId) {
+        StringBuilder payload = new StringBuilder("{");
+        int payloadSize = 0;
+        for (int i = 0; i < args.length; i++) {
+            String masked = serializeAndMask(args[i], maskArg(method, i));
+            payloadSize += masked.length();
+            if (i > 0) {
+                payload.append(',');
+            }
+            payload.append('"');
+            JsonStringEncoder.getInstance().quoteAsString(paramName(method, i), payload);
+            payload.append("\":");
+            jsonValue(masked, payload);
+        }
+        payload.append('}');
+        writeRecord(new LogRecord(timestamp, LogRecord.Type.CALL, method.shortName, traceId, -1, payload.toString()));
+        recordPayload(method, payloadSize);
+    }
 
-        return result;
+    private void writeRecord(LogRecord record) {
+        try {
+            sink.write(record);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to write log record of {}", record.getMethod(), e);
+        }
+    }
+
+    // Serialized values that are not complete JSON are embedded as strings
+    private static StringBuilder jsonValue(String serialized, StringBuilder out) {
+        if (serialized.startsWith(SERIALIZATION_ERROR) || MaskingJsonWriter.isTruncated(serialized)) {
+            out.append('"');
+            JsonStringEncoder.getInstance().quoteAsString(serialized, out);
+            return out.append('"');
+        }
+        return out.append(serialized);
+    }
+
+    private static String paramName(LoggedMethod method, int index) {
+        return index < method.paramNames.length ? method.paramNames[index] : "arg" + index;
+    }
+
+    private static boolean maskArg(LoggedMethod method, int index) {
+        return index >= method.maskArgs.length || method.maskArgs[index];
+    }
+
+    private static void recordPayload(LoggedMethod method, int size) {
+        if (method.metrics != null) {
+            method.metrics.recordPayload(size);
+        }
     }
 
-    private String serializeAndMask(Object obj, String contextName) {
+    // Runs on the dispatcher thread, with the MDC of the calling thread
+    private void log(LogEvent event) {
+        if (event.mdc != null) {
+            MDC.setContextMap(event.mdc);
+        }
+        try {
+            String traceId = event.mdc != null ? event.mdc.get(TRACE_ID_KEY) : null;
+            if (event.returned) {
+                logReturn(event.method, event.result, event.timestamp, event.durationNanos, traceId);
+            } else {
+                logCall(event.method, event.args, event.timestamp, traceId);
+            }
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    private String serializeAndMask(Object obj, boolean mayContainSensitive) {
         if (obj == null) return "null";
 
         try {
-            JsonNode node = objectMapper.valueToTree(obj);
-            maskJson(node);
-            return objectMapper.writeValueAsString(node);
+            return maskingJsonWriter.writeValueAsString(obj, mayContainSensitive);
         } catch (Exception e) {
-            return "[ERROR serializing: " + e.getMessage() + "]";
+            return SERIALIZATION_ERROR + e.getMessage() + "]";
         }
     }
 
-    private void maskJson(JsonNode node) {
-        if (node.isObject()) {
-            ObjectNode objNode = (ObjectNode) node;
-            Iterator<Map.Entry<String, JsonNode>> fields = objNode.fields();
-            while (fields.hasNext()) {
-                Map.Entry<String, JsonNode> entry = fields.next();
-                String fieldName = entry.getKey();
-                JsonNode childNode = entry.getValue();
+    /**
+     * @return per-method latency, error and payload metrics, or null when metrics are disabled
+     */
+    public LoggingAspectMetrics getMetrics() {
+        return metrics;
+    }
 
-                if (shouldMask(fieldName) && childNode.isTextual()) {
-                    objNode.put(fieldName, maskValue(childNode.asText()));
-                } else {
-                    maskJson(childNode);
-                }
-            }
-        } else if (node.isArray()) {
-            for (JsonNode item : node) {
-                maskJson(item);
-            }
-        }
-        // primitives are left untouched
+    /**
+     * @return the async dispatcher, or null when logging synchronously
+     */
+    AsyncLogDispatcher<LogEvent> getDispatcher() {
+        return dispatcher;
     }
 
-    private boolean shouldMask(String name) {
-        return name != null && sensitiveFields.contains(name.toLowerCase());
+    @Override
+    public void destroy() throws InterruptedException, IOException {
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        if (sink != null) {
+            sink.close();
+        }
     }
 
-    private String maskValue(String value) {
-        if (value == null) return null;
-        int visibleCount = 4;
-        if (value.length() <= visibleCount) return "****";
-        int maskedLength = value.length() - visibleCount;
-        return "*".repeat(maskedLength) + value.substring(maskedLength);
+    /**
+     * A call or return captured for async logging. Arguments and results are referenced, not
+     * copied, so an object changed after the call may be logged in its later state.
+     */
+    static final class LogEvent {
+        final LoggedMethod method;
+        final Object[] args;
+        final Object result;
+        final boolean returned;
+        final long timestamp;
+        final long durationNanos;
+        final Map<String, String> mdc;
+
+        private LogEvent(LoggedMethod method, Object[] args, Object result, boolean returned, long timestamp,
+                         long durationNanos, Map<String, String> mdc) {
+            this.method = method;
+            this.args = args;
+            this.result = result;
+            this.returned = returned;
+            this.timestamp = timestamp;
+            this.durationNanos = durationNanos;
+            this.mdc = mdc;
+        }
+
+        static LogEvent call(LoggedMethod method, Object[] args, long timestamp, Map<String, String> mdc) {
+            return new LogEvent(method, args, null, false, timestamp, -1, mdc);
+        }
+
+        static LogEvent returned(LoggedMethod method, Object result, long timestamp, long durationNanos,
+                                 Map<String, String> mdc) {
+            return new LogEvent(method, null, result, true, timestamp, durationNanos, mdc);
+        }
     }
 }
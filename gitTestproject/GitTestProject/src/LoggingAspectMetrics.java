@@ -0,0 +1,161 @@
+package com.yourpackage.aspect;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Metrics of every method advised by {@link LoggingAspect}, readable locally through
+ * {@link #snapshot()} and published to Micrometer once bound to a registry.
+ *
+ * <p>Micrometer gets cumulative counters and timers, plus percentile gauges computed over the
+ * last complete window, since percentiles since startup say little about a long-running service.
+ */
+public class LoggingAspectMetrics implements MeterBinder {
+
+    private static final double[] PERCENTILES = {50, 95, 99};
+
+    private final ConcurrentHashMap<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final long windowNanos;
+    private volatile MeterRegistry registry;
+
+    /**
+     * @param window how long the percentile gauges aggregate over
+     */
+    public LoggingAspectMetrics(Duration window) {
+        this.windowNanos = window.toNanos();
+    }
+
+    /**
+     * @return the metrics of the method, created and registered on first use
+     */
+    MethodMetrics forMethod(String method) {
+        MethodMetrics metrics = methods.get(method);
+        if (metrics != null) {
+            return metrics;
+        }
+        MethodMetrics created = new MethodMetrics(method);
+        metrics = methods.putIfAbsent(method, created);
+        if (metrics != null) {
+            return metrics;
+        }
+        // Read after publishing, so either this thread or bindTo registers the new method
+        MeterRegistry current = registry;
+        if (current != null) {
+            register(current, created);
+        }
+        return created;
+    }
+
+    /**
+     * @return the metrics of all methods called so far, by method name
+     */
+    public Map<String, MethodMetrics.Snapshot> snapshot() {
+        Map<String, MethodMetrics.Snapshot> snapshot = new TreeMap<>();
+        methods.forEach((method, metrics) -> snapshot.put(method, metrics.snapshot()));
+        return snapshot;
+    }
+
+    /**
+     * @param limit      the number of methods to return
+     * @param percentile the latency percentile to rank by, between 0 and 100
+     * @return the methods with the highest latency at the percentile, slowest first
+     */
+    public List<MethodMetrics.Snapshot> slowest(int limit, double percentile) {
+        List<MethodMetrics.Snapshot> snapshots = new ArrayList<>(snapshot().values());
+        snapshots.sort(Comparator.comparingLong(
+                (MethodMetrics.Snapshot s) -> s.latency().valueAtPercentile(percentile)).reversed());
+        return snapshots.subList(0, Math.min(limit, snapshots.size()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        methods.values().forEach(metrics -> register(registry, metrics));
+    }
+
+    private void register(MeterRegistry registry, MethodMetrics metrics) {
+        String method = metrics.method();
+        Window latency = new Window(metrics.latency(), windowNanos);
+        Window payloadSizes = new Window(metrics.payloadSizes(), windowNanos);
+
+        FunctionTimer.builder("logging.aspect.method.duration", metrics,
+                        m -> m.latency().count(), m -> m.latency().sum(), TimeUnit.NANOSECONDS)
+                .tag("method", method)
+                .description("Duration of advised service method calls")
+                .register(registry);
+        TimeGauge.builder("logging.aspect.method.duration.max", latency, TimeUnit.NANOSECONDS,
+                        w -> w.current().max())
+                .tag("method", method)
+                .register(registry);
+        FunctionCounter.builder("logging.aspect.method.errors", metrics, MethodMetrics::errorCount)
+                .tag("method", method)
+                .description("Advised service method calls that threw")
+                .register(registry);
+        FunctionCounter.builder("logging.aspect.method.payload", metrics, m -> m.payloadSizes().sum())
+                .tag("method", method)
+                .baseUnit("characters")
+                .description("Size of the serialized arguments and return values logged")
+                .register(registry);
+
+        for (double percentile : PERCENTILES) {
+            String tag = String.valueOf(percentile / 100);
+            TimeGauge.builder("logging.aspect.method.duration.percentile", latency, TimeUnit.NANOSECONDS,
+                            percentileOf(percentile))
+                    .tags("method", method, "percentile", tag)
+                    .register(registry);
+            Gauge.builder("logging.aspect.method.payload.percentile", payloadSizes, percentileOf(percentile))
+                    .tags("method", method, "percentile", tag)
+                    .baseUnit("characters")
+                    .register(registry);
+        }
+    }
+
+    private static ToDoubleFunction<Window> percentileOf(double percentile) {
+        return window -> window.current().valueAtPercentile(percentile);
+    }
+
+    /**
+     * The values a histogram recorded in the last complete window, rolled over when read.
+     */
+    private static final class Window {
+
+        private final Histogram histogram;
+        private final long lengthNanos;
+        private Histogram.Snapshot base;
+        private Histogram.Snapshot last;
+        private long start;
+
+        Window(Histogram histogram, long lengthNanos) {
+            this.histogram = histogram;
+            this.lengthNanos = lengthNanos;
+            this.base = histogram.snapshot();
+            this.last = base.since(base);
+            this.start = System.nanoTime();
+        }
+
+        synchronized Histogram.Snapshot current() {
+            long now = System.nanoTime();
+            if (now - start >= lengthNanos) {
+                Histogram.Snapshot snapshot = histogram.snapshot();
+                last = snapshot.since(base);
+                base = snapshot;
+                start = now;
+            }
+            return last;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.yourpackage.config;
+
+import com.yourpackage.aspect.AsyncLogDispatcher;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of {@code LoggingAspect} beyond the sensitive fields of {@link LoggingProperties},
+ * bound from {@code logging.aspect.*}.
+ */
+@Component
+@ConfigurationProperties(prefix = "logging.aspect")
+public class LoggingAspectProperties {
+
+    private final Async async = new Async();
+    private final Sampling sampling = new Sampling();
+    private final Payload payload = new Payload();
+    private final Metrics metrics = new Metrics();
+    private final Sink sink = new Sink();
+
+    public Async getAsync() {
+        return async;
+    }
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    public Payload getPayload() {
+        return payload;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Sink getSink() {
+        return sink;
+    }
+
+    /**
+     * Serializing and logging on a background thread instead of the calling thread. The queue
+     * depth and dropped events are published to Micrometer when a registry is available, whether
+     * or not {@code metrics} is enabled.
+     */
+    public static class Async {
+
+        private boolean enabled = false;
+        private int bufferSize = 8192;
+        private AsyncLogDispatcher.OverflowPolicy overflowPolicy = AsyncLogDispatcher.OverflowPolicy.DROP;
+        private int sampleRate = 10;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getBufferSize() {
+            return bufferSize;
+        }
+
+        public void setBufferSize(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        public AsyncLogDispatcher.OverflowPolicy getOverflowPolicy() {
+            return overflowPolicy;
+        }
+
+        public void setOverflowPolicy(AsyncLogDispatcher.OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+        }
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+    }
+
+    /**
+     * Which calls get logged. A rate of n logs one call in n, 1 logs every call and 0 none.
+     * Rates are keyed by a prefix of the method's short name, such as {@code OrderService} or
+     * {@code OrderService.find}; the longest matching prefix wins.
+     */
+    public static class Sampling {
+
+        private int rate = 1;
+        private Map<String, Integer> rates = new HashMap<>();
+
+        public int getRate() {
+            return rate;
+        }
+
+        public void setRate(int rate) {
+            this.rate = rate;
+        }
+
+        public Map<String, Integer> getRates() {
+            return rates;
+        }
+
+        public void setRates(Map<String, Integer> rates) {
+            this.rates = rates;
+        }
+    }
+
+    /**
+     * Limits on each logged argument and return value, 0 for no limit.
+     */
+    public static class Payload {
+
+        private int maxBytes = 16384;
+        private int maxCollectionElements = 100;
+        private int maxDepth = 10;
+
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getMaxCollectionElements() {
+            return maxCollectionElements;
+        }
+
+        public void setMaxCollectionElements(int maxCollectionElements) {
+            this.maxCollectionElements = maxCollectionElements;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public void setMaxDepth(int maxDepth) {
+            this.maxDepth = maxDepth;
+        }
+    }
+
+    /**
+     * Per-method latency, error and payload size metrics, published to Micrometer when a
+     * registry is available.
+     */
+    public static class Metrics {
+
+        private boolean enabled = false;
+        private Duration window = Duration.ofMinutes(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return how long the percentile gauges aggregate over
+         */
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+    }
+
+    /**
+     * Where logged calls and returns go: text messages, or structured records with the method,
+     * trace id, duration and masked payload.
+     */
+    public static class Sink {
+
+        public enum Type {
+            /** Text messages through SLF4J */
+            TEXT,
+            /** SLF4J events with key-value pairs */
+            SLF4J,
+            /** One JSON object per line, appended to the file at path */
+            NDJSON,
+            /** Binary records in rolling memory-mapped files in the directory at path */
+            BINARY
+        }
+
+        public enum BinaryFormat {
+            SMILE, CBOR
+        }
+
+        private Type type = Type.TEXT;
+        private Path path;
+        private long fileSize = 64L * 1024 * 1024;
+        private int maxFiles = 16;
+        private BinaryFormat binaryFormat = BinaryFormat.SMILE;
+
+        public Type getType() {
+            return type;
+        }
+
+        public void setType(Type type) {
+            this.type = type;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public void setPath(Path path) {
+            this.path = path;
+        }
+
+        public long getFileSize() {
+            return fileSize;
+        }
+
+        public void setFileSize(long fileSize) {
+            this.fileSize = fileSize;
+        }
+
+        /**
+         * @return the number of binary files kept, the oldest deleted as new ones start
+         */
+        public int getMaxFiles() {
+            return maxFiles;
+        }
+
+        public void setMaxFiles(int maxFiles) {
+            this.maxFiles = maxFiles;
+        }
+
+        public BinaryFormat getBinaryFormat() {
+            return binaryFormat;
+        }
+
+        public void setBinaryFormat(BinaryFormat binaryFormat) {
+            this.binaryFormat = binaryFormat;
+        }
+    }
+}
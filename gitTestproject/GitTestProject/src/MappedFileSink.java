@@ -0,0 +1,189 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Appends records in a binary Jackson format, normally Smile or CBOR, to memory-mapped files of
+ * a fixed size, starting a new file when one is full and deleting the oldest beyond the
+ * configured number of files. Writing a record is a copy into the mapping; the operating system
+ * writes the pages back.
+ *
+ * <p>Each file starts with a header naming the format, followed by records prefixed with their
+ * length as an int. A length of 0, which is what the unused part of the file holds, ends the
+ * file. Records are encoded independently, so a file can be read from any record boundary.
+ * {@link StructuredLogReader} turns the files back into JSON.
+ */
+public class MappedFileSink implements LogSink {
+
+    static final int MAGIC = 0x414C4F47; // "ALOG"
+    static final int VERSION = 1;
+    static final String FILE_PREFIX = "aspect-";
+    static final String FILE_SUFFIX = ".log";
+
+    private final Path directory;
+    private final long fileSize;
+    private final int maxFiles;
+    private final JsonFactory factory;
+    // Oldest first, including the one being written
+    private final ArrayDeque<Path> files = new ArrayDeque<>();
+    private final RecordBuffer recordBuffer = new RecordBuffer();
+
+    private FileChannel channel;
+    private MappedByteBuffer mapping;
+    private int nextFile;
+
+    /**
+     * @param directory where the files are written, created if needed
+     * @param fileSize  the size of each file in bytes
+     * @param maxFiles  the number of files kept, counting the one being written
+     * @param factory   the format, such as a {@code SmileFactory} or {@code CBORFactory}
+     */
+    public MappedFileSink(Path directory, long fileSize, int maxFiles, JsonFactory factory) throws IOException {
+        if (fileSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("File size must fit a single mapping: " + fileSize);
+        }
+        if (maxFiles < 1) {
+            throw new IllegalArgumentException("At least one file must be kept: " + maxFiles);
+        }
+        this.directory = Files.createDirectories(directory);
+        this.fileSize = fileSize;
+        this.maxFiles = maxFiles;
+        this.factory = factory;
+        // Continue after files left by earlier runs, which count against the limit
+        List<Path> existing = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : found) {
+                if (fileNumber(file) >= 0) {
+                    existing.add(file);
+                }
+            }
+        }
+        existing.sort(Comparator.comparingInt(MappedFileSink::fileNumber));
+        files.addAll(existing);
+        if (!existing.isEmpty()) {
+            nextFile = fileNumber(existing.get(existing.size() - 1)) + 1;
+        }
+        roll();
+    }
+
+    /**
+     * @param format a format name, as returned by {@link JsonFactory#getFormatName()}
+     * @return a factory for the format
+     */
+    static JsonFactory factoryFor(String format) {
+        switch (format.toUpperCase()) {
+            case "SMILE":
+                return new SmileFactory();
+            case "CBOR":
+                return new CBORFactory();
+            case "JSON":
+                return new JsonFactory();
+            default:
+                throw new IllegalArgumentException("Unknown format: " + format);
+        }
+    }
+
+    static Path fileName(Path directory, int number) {
+        return directory.resolve(String.format("%s%05d%s", FILE_PREFIX, number, FILE_SUFFIX));
+    }
+
+    private static int fileNumber(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(FILE_PREFIX.length(), name.length() - FILE_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public synchronized void write(LogRecord record) throws IOException {
+        recordBuffer.reset();
+        try (JsonGenerator generator = factory.createGenerator(recordBuffer)) {
+            record.writeTo(generator);
+        }
+        int length = recordBuffer.size();
+        // The record, its length and the 0 that ends the file
+        if (length + 2 * Integer.BYTES > fileSize - headerSize()) {
+            throw new IOException("Record of " + length + " bytes does not fit a file of " + fileSize + " bytes");
+        }
+        if (mapping.remaining() < length + 2 * Integer.BYTES) {
+            roll();
+        }
+        mapping.putInt(length);
+        mapping.put(recordBuffer.array(), 0, length);
+    }
+
+    private int headerSize() {
+        return 2 * Integer.BYTES + 1 + factory.getFormatName().length();
+    }
+
+    private void roll() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path file = fileName(directory, nextFile++);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        byte[] format = factory.getFormatName().getBytes(StandardCharsets.US_ASCII);
+        mapping.putInt(MAGIC).putInt(VERSION).put((byte) format.length).put(format);
+        files.addLast(file);
+        while (files.size() > maxFiles) {
+            Files.deleteIfExists(files.removeFirst());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        mapping.force();
+        channel.close();
+    }
+
+    /**
+     * @return the format name in the header of a mapped file, leaving the buffer after the header
+     * @throws IOException if the buffer does not start with a header
+     */
+    static String readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < 2 * Integer.BYTES + 1 || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a structured log file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported structured log version: " + version);
+        }
+        byte[] format = new byte[buffer.get()];
+        buffer.get(format);
+        return new String(format, StandardCharsets.US_ASCII);
+    }
+
+    // Reused for every record, read without copying
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super(4096);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileSinkTests {
+
+    @TempDir
+    Path directory;
+
+    private static LogRecord record(int i) {
+        return new LogRecord(1_700_000_000_000L + i, LogRecord.Type.RETURN, "OrderService.find(..)", "abc123",
+                1_500 + i, "{\"id\":" + i + ",\"items\":[\"a\",\"b\"],\"card\":{\"number\":\"****1111\"}}");
+    }
+
+    private static String json(int i) {
+        return "{\"timestamp\":" + (1_700_000_000_000L + i) + ",\"type\":\"RETURN\",\"method\":\"OrderService.find(..)\","
+                + "\"traceId\":\"abc123\",\"durationNanos\":" + (1_500 + i) + ","
+                + "\"payload\":{\"id\":" + i + ",\"items\":[\"a\",\"b\"],\"card\":{\"number\":\"****1111\"}}}\n";
+    }
+
+    @Test
+    void testRollsAndReadsBack() throws IOException {
+        try (MappedFileSink sink = new MappedFileSink(directory, 1024, 100, MappedFileSink.factoryFor("Smile"))) {
+            for (int i = 0; i < 50; i++) {
+                sink.write(record(i));
+            }
+        }
+
+        List<Path> files = StructuredLogReader.files(directory);
+        assertTrue(files.size() > 1);
+        StringWriter out = new StringWriter();
+        long records = 0;
+        for (Path file : files) {
+            records += StructuredLogReader.convert(file, out);
+        }
+
+        assertEquals(50, records);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            expected.append(json(i));
+        }
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    @Test
+    void testContinuesAfterExistingFiles() throws IOException {
+        try (MappedFileSink sink = new MappedFileSink(directory, 4096, 100, new JsonFactory())) {
+            sink.write(record(1));
+        }
+        try (MappedFileSink sink = new MappedFileSink(directory, 4096, 100, new JsonFactory())) {
+            sink.write(record(2));
+        }
+
+        List<Path> files = StructuredLogReader.files(directory);
+        assertEquals(List.of(MappedFileSink.fileName(directory, 0), MappedFileSink.fileName(directory, 1)), files);
+        StringWriter out = new StringWriter();
+        StructuredLogReader.convert(files.get(1), out);
+        assertEquals(json(2), out.toString());
+    }
+
+    @Test
+    void testDeletesOldestFilesBeyondLimit() throws IOException {
+        try (MappedFileSink sink = new MappedFileSink(directory, 1024, 3, new JsonFactory())) {
+            for (int i = 0; i < 50; i++) {
+                sink.write(record(i));
+            }
+        }
+        List<Path> files = StructuredLogReader.files(directory);
+        assertEquals(3, files.size());
+
+        // Files of earlier runs count too
+        try (MappedFileSink sink = new MappedFileSink(directory, 1024, 3, new JsonFactory())) {
+            sink.write(record(50));
+        }
+        List<Path> after = StructuredLogReader.files(directory);
+        assertEquals(3, after.size());
+        assertEquals(files.subList(1, 3), after.subList(0, 2));
+    }
+
+    @Test
+    void testRejectsRecordLargerThanFile() throws IOException {
+        try (MappedFileSink sink = new MappedFileSink(directory, 64, 100, new JsonFactory())) {
+            assertThrows(IOException.class, () -> sink.write(record(1)));
+        }
+    }
+}
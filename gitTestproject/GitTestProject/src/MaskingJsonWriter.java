@@ -0,0 +1,380 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.filter.FilteringGeneratorDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+import com.fasterxml.jackson.core.util.JsonGeneratorDelegate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.Set;
+
+/**
+ * Serializes values to JSON in a single pass, masking the string values of sensitive
+ * properties as they are written. No intermediate tree is built.
+ *
+ * <p>A string is masked when it is the direct value of an object property whose name is in the
+ * sensitive set, ignoring case, whether the object is a bean or a map. Strings inside arrays
+ * and non-string values are written as-is, exactly like the tree-walking masking this replaces.
+ * Values of types that cannot hold a sensitive property, see {@link SensitiveTypes}, are written
+ * without the masking layer at all.
+ *
+ * <p>Output can be limited while it is generated: collections are cut to their first elements,
+ * containers nested too deep are left out, and serialization stops once the output reaches a
+ * size, so a huge value costs no more than the part that is logged.
+ */
+class MaskingJsonWriter {
+
+    static final String TRUNCATED_SUFFIX = "...[truncated]";
+
+    private static final int VISIBLE_COUNT = 4;
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter objectWriter;
+    private final CaseInsensitiveNames sensitiveFields;
+    private final SensitiveTypes sensitiveTypes;
+    private final int maxBytes;
+    // Null when neither collections nor depth are limited
+    private final LimitFilter limitFilter;
+
+    /**
+     * @param objectMapper    the mapper whose configuration is used to serialize
+     * @param sensitiveFields names of the properties to mask, matched ignoring case
+     */
+    MaskingJsonWriter(ObjectMapper objectMapper, Set<String> sensitiveFields) {
+        this(objectMapper, sensitiveFields, 0, 0, 0);
+    }
+
+    /**
+     * @param objectMapper          the mapper whose configuration is used to serialize
+     * @param sensitiveFields       names of the properties to mask, matched ignoring case
+     * @param maxBytes              UTF-8 size after which output is truncated, 0 for no limit
+     * @param maxCollectionElements elements written per array or collection, 0 for no limit
+     * @param maxDepth              levels of nested objects and arrays written, 0 for no limit
+     */
+    MaskingJsonWriter(ObjectMapper objectMapper, Set<String> sensitiveFields, int maxBytes,
+                      int maxCollectionElements, int maxDepth) {
+        this.objectMapper = objectMapper;
+        this.objectWriter = objectMapper.writer();
+        this.sensitiveFields = new CaseInsensitiveNames(sensitiveFields);
+        this.sensitiveTypes = new SensitiveTypes(objectMapper, this.sensitiveFields);
+        this.maxBytes = Math.max(maxBytes, 0);
+        this.limitFilter = maxCollectionElements > 0 || maxDepth > 0
+                ? LimitFilter.create(maxCollectionElements, maxDepth)
+                : null;
+    }
+
+    /**
+     * Serialize and mask a value. Null is written as {@code null}. Output longer than the size
+     * limit is cut there and ends with {@link #TRUNCATED_SUFFIX}.
+     *
+     * @throws IOException if the value cannot be serialized
+     */
+    String writeValueAsString(Object value) throws IOException {
+        return writeValueAsString(value, true);
+    }
+
+    /**
+     * Serialize a value, masking it only if it may contain sensitive fields.
+     *
+     * @param mayContainSensitive false if the declared type of the value is known to contain no
+     *                            sensitive fields, see {@link #mayContainSensitive(Type)}
+     * @throws IOException if the value cannot be serialized
+     */
+    String writeValueAsString(Object value, boolean mayContainSensitive) throws IOException {
+        StringWriter out = new StringWriter();
+        if (maxBytes == 0) {
+            writeValue(value, mayContainSensitive, out);
+            return out.toString();
+        }
+        try {
+            writeValue(value, mayContainSensitive, new BoundedWriter(out, maxBytes));
+        } catch (LimitReachedException e) {
+            return out.append(TRUNCATED_SUFFIX).toString();
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return true if the output of {@link #writeValueAsString} was cut by the size limit. Valid
+     * JSON never ends with the suffix, so this is exact.
+     */
+    static boolean isTruncated(String json) {
+        return json.endsWith(TRUNCATED_SUFFIX);
+    }
+
+    /**
+     * Serialize and mask a value into the given writer. The writer is not closed. Collection and
+     * depth limits apply, the size limit only applies to {@link #writeValueAsString}.
+     *
+     * @throws IOException if the value cannot be serialized
+     */
+    void writeValue(Object value, Writer out) throws IOException {
+        writeValue(value, true, out);
+    }
+
+    private void writeValue(Object value, boolean mayContainSensitive, Writer out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        if (mayContainSensitive && value != null && sensitiveTypes.mayContain(value.getClass())) {
+            generator = new MaskingGenerator(generator);
+        }
+        try (JsonGenerator limited = limitFilter != null ? new LimitingGenerator(generator, limitFilter) : generator) {
+            objectWriter.writeValue(limited, value);
+        }
+    }
+
+    /**
+     * @param declaredType a declared parameter or return type
+     * @return false if no value of the type can contain sensitive fields, so it never needs masking
+     */
+    boolean mayContainSensitive(Type declaredType) {
+        return sensitiveTypes.mayContain(declaredType);
+    }
+
+    boolean isSensitive(String name) {
+        return sensitiveFields.contains(name);
+    }
+
+    static String maskValue(String value) {
+        if (value == null) return null;
+        if (value.length() <= VISIBLE_COUNT) return "****";
+        int maskedLength = value.length() - VISIBLE_COUNT;
+        return "*".repeat(maskedLength) + value.substring(maskedLength);
+    }
+
+    /**
+     * Replaces string values written directly under a sensitive property. Copy methods are not
+     * delegated, so nested values written through writeObject or writeTree are masked as well.
+     */
+    private class MaskingGenerator extends JsonGeneratorDelegate {
+
+        MaskingGenerator(JsonGenerator delegate) {
+            super(delegate, false);
+        }
+
+        private boolean masking() {
+            JsonStreamContext context = getOutputContext();
+            return context.inObject() && isSensitive(context.getCurrentName());
+        }
+
+        @Override
+        public void writeString(String text) throws IOException {
+            super.writeString(text != null && masking() ? maskValue(text) : text);
+        }
+
+        @Override
+        public void writeString(char[] text, int offset, int len) throws IOException {
+            if (masking()) {
+                super.writeString(maskValue(new String(text, offset, len)));
+            } else {
+                super.writeString(text, offset, len);
+            }
+        }
+
+        @Override
+        public void writeString(SerializableString text) throws IOException {
+            if (masking()) {
+                super.writeString(maskValue(text.getValue()));
+            } else {
+                super.writeString(text);
+            }
+        }
+
+        @Override
+        public void writeString(Reader reader, int len) throws IOException {
+            if (!masking()) {
+                super.writeString(reader, len);
+                return;
+            }
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[1024];
+            int remaining = len < 0 ? Integer.MAX_VALUE : len;
+            int read;
+            while (remaining > 0 && (read = reader.read(buffer, 0, Math.min(buffer.length, remaining))) != -1) {
+                text.append(buffer, 0, read);
+                remaining -= read;
+            }
+            super.writeString(maskValue(text.toString()));
+        }
+    }
+
+    /**
+     * Applies the collection and depth limits. The filter for a container's contents is the one
+     * a level deeper; past the last level there is none and the container is left out.
+     */
+    private static final class LimitFilter extends TokenFilter {
+
+        private final int maxElements;
+        private LimitFilter children;
+
+        private LimitFilter(int maxElements) {
+            this.maxElements = maxElements;
+        }
+
+        static LimitFilter create(int maxElements, int maxDepth) {
+            LimitFilter root = new LimitFilter(maxElements);
+            if (maxDepth <= 0) {
+                root.children = root;
+                return root;
+            }
+            LimitFilter filter = root;
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                filter.children = new LimitFilter(maxElements);
+                filter = filter.children;
+            }
+            return root;
+        }
+
+        @Override
+        public TokenFilter filterStartObject() {
+            return children;
+        }
+
+        @Override
+        public TokenFilter filterStartArray() {
+            return children;
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            return maxElements <= 0 || index < maxElements ? this : null;
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return this;
+        }
+
+        @Override
+        public TokenFilter includeRootValue(int index) {
+            return this;
+        }
+
+        @Override
+        public boolean includeEmptyArray(boolean contentsFiltered) {
+            return true;
+        }
+
+        @Override
+        public boolean includeEmptyObject(boolean contentsFiltered) {
+            return true;
+        }
+    }
+
+    /**
+     * Filtering generator that also filters primitive arrays, which the base class passes
+     * straight through.
+     */
+    private static class LimitingGenerator extends FilteringGeneratorDelegate {
+
+        LimitingGenerator(JsonGenerator delegate, TokenFilter filter) {
+            super(delegate, filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true);
+        }
+
+        @Override
+        public void writeArray(int[] array, int offset, int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                writeNumber(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeArray(long[] array, int offset, int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                writeNumber(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeArray(double[] array, int offset, int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                writeNumber(array[i]);
+            }
+            writeEndArray();
+        }
+
+        @Override
+        public void writeArray(String[] array, int offset, int length) throws IOException {
+            writeStartArray(array, length);
+            for (int i = offset, end = offset + length; i < end; i++) {
+                writeString(array[i]);
+            }
+            writeEndArray();
+        }
+    }
+
+    /**
+     * Passes through characters until their UTF-8 size reaches the limit, then writes what still
+     * fits and throws {@link LimitReachedException}, which stops serialization.
+     */
+    private static final class BoundedWriter extends Writer {
+
+        private final Writer out;
+        private long remaining;
+
+        BoundedWriter(Writer out, int maxBytes) {
+            this.out = out;
+            this.remaining = maxBytes;
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            int end = offset + length;
+            for (int i = offset; i < end; i++) {
+                char c = buffer[i];
+                int size = c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+                if (size > remaining) {
+                    // Do not leave half a surrogate pair behind
+                    int cut = i > offset && Character.isHighSurrogate(buffer[i - 1]) ? i - 1 : i;
+                    out.write(buffer, offset, cut - offset);
+                    remaining = 0;
+                    throw new LimitReachedException();
+                }
+                remaining -= size;
+            }
+            out.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String text, int offset, int length) throws IOException {
+            char[] chars = new char[length];
+            text.getChars(offset, offset + length, chars, 0);
+            write(chars, 0, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class LimitReachedException extends IOException {
+
+        LimitReachedException() {
+            super("Size limit reached", null);
+        }
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MaskingJsonWriterTests {
+
+    private final MaskingJsonWriter writer =
+            new MaskingJsonWriter(new ObjectMapper(), Set.of("ssn", "password", "number", "pin"));
+
+    public static class Card {
+        public String number = "4111111111111111";
+        public int pin = 1234;
+    }
+
+    public static class Customer {
+        public String name = "Jane";
+        public String SSN = "123-45-6789";
+        public String password = "abc";
+        public Card card = new Card();
+        public List<String> number = List.of("555-0100");
+        public Map<String, Object> extra = new LinkedHashMap<>(Map.of("password", "hunter22"));
+    }
+
+    @Test
+    void testMasksSensitiveStrings() throws Exception {
+        assertEquals("{\"name\":\"Jane\",\"SSN\":\"*******6789\",\"password\":\"****\","
+                        + "\"card\":{\"number\":\"************1111\",\"pin\":1234},"
+                        + "\"number\":[\"555-0100\"],\"extra\":{\"password\":\"****er22\"}}",
+                writer.writeValueAsString(new Customer()));
+    }
+
+    @Test
+    void testTopLevelValues() throws Exception {
+        assertEquals("\"123-45-6789\"", writer.writeValueAsString("123-45-6789"));
+        assertEquals("[{\"number\":\"************1111\",\"pin\":1234}]", writer.writeValueAsString(List.of(new Card())));
+        assertEquals("null", writer.writeValueAsString(null));
+    }
+
+    @Test
+    void testCollectionAndDepthLimits() throws Exception {
+        MaskingJsonWriter limited = new MaskingJsonWriter(new ObjectMapper(), Set.of("password"), 0, 3, 2);
+
+        assertEquals("[1,2,3]", limited.writeValueAsString(List.of(1, 2, 3, 4, 5)));
+        assertEquals("[1,2,3]", limited.writeValueAsString(new int[]{1, 2, 3, 4}));
+        assertEquals("{\"a\":{},\"b\":[]}", limited.writeValueAsString(
+                new TreeMap<>(Map.of("a", Map.of("c", Map.of("d", 1)), "b", List.of(List.of(1))))));
+        assertEquals("{\"card\":{\"password\":\"****\"}}",
+                limited.writeValueAsString(Map.of("card", Map.of("password", "abc"))));
+    }
+
+    @Test
+    void testTruncatesWhileWriting() throws Exception {
+        MaskingJsonWriter limited = new MaskingJsonWriter(new ObjectMapper(), Set.of("password"), 10, 0, 0);
+
+        assertEquals("[1,2,3]", limited.writeValueAsString(List.of(1, 2, 3)));
+        assertEquals("[1,2,3,4,5" + MaskingJsonWriter.TRUNCATED_SUFFIX,
+                limited.writeValueAsString(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9)));
+        // Two bytes per character in UTF-8
+        assertEquals("\"éééé" + MaskingJsonWriter.TRUNCATED_SUFFIX, limited.writeValueAsString("éééééééé"));
+    }
+}
@@ -0,0 +1,110 @@
+package com.yourpackage.aspect;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, error and payload size metrics of one advised method.
+ */
+public final class MethodMetrics {
+
+    private final String method;
+    private final Histogram latency = new Histogram();
+    private final Histogram payloadSizes = new Histogram();
+    private final LongAdder errors = new LongAdder();
+
+    MethodMetrics(String method) {
+        this.method = method;
+    }
+
+    /**
+     * @return the short name of the method, such as {@code OrderService.find(..)}
+     */
+    public String method() {
+        return method;
+    }
+
+    void recordCall(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    void recordPayload(int size) {
+        payloadSizes.record(size);
+    }
+
+    /**
+     * @return call durations in nanoseconds, failed calls included
+     */
+    public Histogram latency() {
+        return latency;
+    }
+
+    /**
+     * @return sizes in characters of the serialized arguments and return values that were logged
+     */
+    public Histogram payloadSizes() {
+        return payloadSizes;
+    }
+
+    /**
+     * @return the number of calls that threw
+     */
+    public long errorCount() {
+        return errors.sum();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(method, latency.snapshot(), errors.sum(), payloadSizes.snapshot());
+    }
+
+    /**
+     * The metrics of a method at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final String method;
+        private final Histogram.Snapshot latency;
+        private final long errors;
+        private final Histogram.Snapshot payloadSizes;
+
+        Snapshot(String method, Histogram.Snapshot latency, long errors, Histogram.Snapshot payloadSizes) {
+            this.method = method;
+            this.latency = latency;
+            this.errors = errors;
+            this.payloadSizes = payloadSizes;
+        }
+
+        /**
+         * @return what happened between {@code earlier} and this snapshot
+         */
+        public Snapshot since(Snapshot earlier) {
+            return new Snapshot(method, latency.since(earlier.latency), errors - earlier.errors,
+                    payloadSizes.since(earlier.payloadSizes));
+        }
+
+        public String method() {
+            return method;
+        }
+
+        public Histogram.Snapshot latency() {
+            return latency;
+        }
+
+        public long errorCount() {
+            return errors;
+        }
+
+        public Histogram.Snapshot payloadSizes() {
+            return payloadSizes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s calls=%d errors=%d p50=%.3fms p99=%.3fms max=%.3fms payloadP99=%d",
+                    method, latency.count(), errors, latency.valueAtPercentile(50) / 1e6,
+                    latency.valueAtPercentile(99) / 1e6, latency.max() / 1e6, payloadSizes.valueAtPercentile(99));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes each record as one line of JSON, with the payload embedded as JSON rather than as an
+ * escaped string, so shippers can read it without parsing a message.
+ */
+public class NdjsonSink implements LogSink {
+
+    private final JsonGenerator generator;
+
+    public NdjsonSink(Writer out) throws IOException {
+        this.generator = new JsonFactory().createGenerator(out);
+        this.generator.setRootValueSeparator(null);
+    }
+
+    /**
+     * @return a sink appending to the file, which is created if needed
+     */
+    public static NdjsonSink open(Path file) throws IOException {
+        return new NdjsonSink(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    }
+
+    @Override
+    public synchronized void write(LogRecord record) throws IOException {
+        record.writeTo(generator);
+        generator.writeRaw('\n');
+        generator.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        generator.close();
+    }
+}
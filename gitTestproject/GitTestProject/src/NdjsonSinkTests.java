@@ -0,0 +1,28 @@
+package com.yourpackage.aspect;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NdjsonSinkTests {
+
+    @Test
+    void testOneObjectPerLine() throws IOException {
+        StringWriter out = new StringWriter();
+        try (NdjsonSink sink = new NdjsonSink(out)) {
+            sink.write(new LogRecord(1000, LogRecord.Type.CALL, "OrderService.find(..)", null, -1,
+                    "{\"id\":7,\"note\":\"line\\nbreak\"}"));
+            sink.write(new LogRecord(1001, LogRecord.Type.RETURN, "OrderService.find(..)", "abc", 2500,
+                    "\"[1,2...[truncated]\""));
+        }
+
+        assertEquals("{\"timestamp\":1000,\"type\":\"CALL\",\"method\":\"OrderService.find(..)\","
+                        + "\"payload\":{\"id\":7,\"note\":\"line\\nbreak\"}}\n"
+                        + "{\"timestamp\":1001,\"type\":\"RETURN\",\"method\":\"OrderService.find(..)\",\"traceId\":\"abc\","
+                        + "\"durationNanos\":2500,\"payload\":\"[1,2...[truncated]\"}\n",
+                out.toString());
+    }
+}
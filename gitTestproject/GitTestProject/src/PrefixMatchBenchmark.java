@@ -0,0 +1,74 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the prefix loop the name formatters used to run against {@link PrefixTrie}.
+ * Run with {@code -prof gc} to see the allocation difference as well.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PrefixMatchBenchmark {
+
+    private static final int CORPUS_SIZE = 1024;
+
+    // Common North American surnames, roughly a third of them starting with a name prefix
+    private static final String[] SURNAMES = {
+            "SMITH", "JOHNSON", "WILLIAMS", "BROWN", "JONES", "GARCIA", "MILLER", "DAVIS", "WILSON", "TAYLOR",
+            "TREMBLAY", "GAGNON", "ROY", "COTE", "BOUCHARD", "GAUTHIER", "MORIN", "NGUYEN", "PATEL", "KIM",
+            "MARTIN", "THOMPSON", "WHITE", "HARRIS", "CLARK", "LEWIS", "ROBINSON", "WALKER", "YOUNG", "ALLEN",
+            "MCDONALD", "MCKENZIE", "MACLEOD", "MACDONALD", "O'BRIEN", "O'CONNOR", "D'AMICO", "D'ARCY",
+            "DELGADO", "DELUCA", "DESJARDINS", "VANDERBILT", "VANHORN", "VONTRAPP", "LEBLANC", "LEVESQUE",
+            "LAROCHE", "LAPOINTE", "DASILVA", "DICAPRIO", "DIMAGGIO", "DUBOIS", "DUPONT", "ST.PIERRE",
+            "SANCHEZ", "SANTOS", "DOSSANTOS", "DEMARCO", "LEE", "DE"
+    };
+
+    private static final String[] NAME_PREFIXES = FormatterRules.NAME_PREFIXES;
+
+    private static final PrefixTrie TRIE = new PrefixTrie(NAME_PREFIXES);
+
+    private String[] corpus;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        corpus = new String[CORPUS_SIZE];
+        for (int i = 0; i < corpus.length; i++) {
+            corpus[i] = SURNAMES[random.nextInt(SURNAMES.length)];
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void legacyLoop(Blackhole blackhole) {
+        for (String part : corpus) {
+            blackhole.consume(legacyMatch(part));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CORPUS_SIZE)
+    public void trie(Blackhole blackhole) {
+        for (String part : corpus) {
+            blackhole.consume(TRIE.match(part, 0, part.length()));
+        }
+    }
+
+    // The loop from ClientNameFormatter.capitalizeNamePart before the trie
+    private static String legacyMatch(String part) {
+        for (String prefix : NAME_PREFIXES) {
+            if (part.toUpperCase().startsWith(prefix.toUpperCase()) && part.length() > prefix.length()) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.util;
+
+import java.util.Arrays;
+
+/**
+ * Case-insensitive trie over a fixed list of name prefixes. Nodes are stored in flat arrays
+ * indexed by a compact symbol alphabet, so matching a word is a single walk over its characters
+ * that always yields the longest matching prefix, whatever order the prefixes were declared in.
+ */
+final class PrefixTrie {
+
+    private static final int NONE = -1;
+
+    private final String[] prefixes;
+    private final int maxLength;
+
+    // ASCII character (uppercased) -> symbol index, NONE if no prefix uses it
+    private final byte[] symbols = new byte[128];
+    private final int symbolCount;
+
+    // node * symbolCount + symbol -> child node; 0 means no child since the root is never a child
+    private final int[] children;
+
+    // node -> index of the prefix ending at that node, NONE if none does
+    private final int[] terminals;
+
+    /**
+     * Compile a trie.
+     *
+     * @param prefixes the ASCII prefixes
+     */
+    PrefixTrie(String[] prefixes) {
+        this.prefixes = prefixes.clone();
+
+        Arrays.fill(symbols, (byte) NONE);
+        int symbolCount = 0;
+        int nodeCount = 1;
+        int maxLength = 0;
+        for (String prefix : prefixes) {
+            for (int i = 0; i < prefix.length(); i++) {
+                char c = toUpperAscii(prefix.charAt(i));
+                if (c >= 128) {
+                    throw new IllegalArgumentException("Not an ASCII prefix: " + prefix);
+                }
+                if (symbols[c] == NONE) {
+                    symbols[c] = (byte) symbolCount++;
+                }
+            }
+            nodeCount += prefix.length();
+            maxLength = Math.max(maxLength, prefix.length());
+        }
+        this.symbolCount = symbolCount;
+        this.maxLength = maxLength;
+
+        int[] children = new int[nodeCount * symbolCount];
+        int[] terminals = new int[nodeCount];
+        Arrays.fill(terminals, NONE);
+        int used = 1;
+        for (int p = 0; p < prefixes.length; p++) {
+            String prefix = prefixes[p];
+            int node = 0;
+            for (int i = 0; i < prefix.length(); i++) {
+                int edge = node * symbolCount + symbols[toUpperAscii(prefix.charAt(i))];
+                if (children[edge] == 0) {
+                    children[edge] = used++;
+                }
+                node = children[edge];
+            }
+            terminals[node] = p;
+        }
+        this.children = children;
+        this.terminals = terminals;
+    }
+
+    private static char toUpperAscii(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - 32) : c;
+    }
+
+    /**
+     * Find the longest prefix a word starts with, ignoring case. The prefix must be strictly
+     * shorter than the word, so "DEL" matches "De" while "DELGADO" matches "Del".
+     *
+     * @return the prefix as declared, or {@code null} if none matches
+     */
+    String match(CharSequence word, int start, int end) {
+        int limit = Math.min(end - start - 1, maxLength);
+        int best = NONE;
+        int node = 0;
+        for (int i = 0; i < limit; i++) {
+            char c = word.charAt(start + i);
+            if (c >= 0x80) {
+                // Uppercasing may change the length (e.g. ligatures), compare against the folded word instead
+                return matchFolded(word.subSequence(start, end).toString().toUpperCase(), end - start - 1);
+            }
+            node = step(node, c);
+            if (node == 0) {
+                break;
+            }
+            if (terminals[node] != NONE) {
+                best = terminals[node];
+            }
+        }
+        return best == NONE ? null : prefixes[best];
+    }
+
+    private String matchFolded(String folded, int limit) {
+        limit = Math.min(Math.min(limit, folded.length()), maxLength);
+        int best = NONE;
+        int node = 0;
+        for (int i = 0; i < limit; i++) {
+            node = step(node, folded.charAt(i));
+            if (node == 0) {
+                break;
+            }
+            if (terminals[node] != NONE) {
+                best = terminals[node];
+            }
+        }
+        return best == NONE ? null : prefixes[best];
+    }
+
+    private int step(int node, char c) {
+        if (c >= 128) {
+            return 0;
+        }
+        int symbol = symbols[toUpperAscii(c)];
+        return symbol == NONE ? 0 : children[node * symbolCount + symbol];
+    }
+}
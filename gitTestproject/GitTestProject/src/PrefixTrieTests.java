@@ -0,0 +1,48 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefixTrieTests {
+
+    private static final PrefixTrie TRIE = new PrefixTrie(FormatterRules.NAME_PREFIXES);
+
+    @Test
+    void testLongestPrefixWins() {
+        // "Del" over "De", "Mac" over nothing shorter
+        assertEquals("Del", TRIE.match("DELGADO", 0, 7));
+        assertEquals("Mac", TRIE.match("MACLEOD", 0, 7));
+        assertEquals("Mc", TRIE.match("mcdonald", 0, 8));
+        assertEquals("St.", TRIE.match("St.John", 0, 7));
+    }
+
+    @Test
+    void testPrefixMustBeShorterThanWord() {
+        // A word equal to a prefix only matches a shorter one
+        assertEquals("De", TRIE.match("DEL", 0, 3));
+        assertNull(TRIE.match("DE", 0, 2));
+        assertNull(TRIE.match("O'", 0, 2));
+    }
+
+    @Test
+    void testNoMatch() {
+        assertNull(TRIE.match("SMITH", 0, 5));
+        assertNull(TRIE.match("", 0, 0));
+        assertNull(TRIE.match("ÉMILIE", 0, 6));
+    }
+
+    @Test
+    void testMatchWithinRange() {
+        // Only the given range is considered
+        assertEquals("Van", TRIE.match("JAN VANDYKE", 4, 11));
+        assertNull(TRIE.match("JAN VANDYKE", 0, 3));
+    }
+
+    @Test
+    void testDeterministicRegardlessOfDeclarationOrder() {
+        PrefixTrie reversed = new PrefixTrie(new String[]{"De La", "Del", "De"});
+        assertEquals("Del", reversed.match("DELGADO", 0, 7));
+        assertEquals("De", reversed.match("DEMARCO", 0, 7));
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stored responses by key: a least recently used tier in memory bounded by bytes, backed by an
+ * optional tier on disk with its own bound. Every response goes to both tiers; one read from disk
+ * moves back into memory. The disk tier survives restarts, and files it cannot read are
+ * dropped.
+ */
+final class ResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final int MAGIC = 0x52455350; // "RESP"
+    private static final String SUFFIX = ".response";
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, CachedResponse> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private final Disk disk;
+
+    /**
+     * @param maxBytes      the bound of the memory tier
+     * @param directory     the directory of the disk tier, null for none
+     * @param maxDiskBytes  the bound of the disk tier
+     */
+    ResponseCache(long maxBytes, Path directory, long maxDiskBytes) throws IOException {
+        this.maxBytes = maxBytes;
+        this.disk = directory != null ? new Disk(directory, maxDiskBytes) : null;
+    }
+
+    CachedResponse get(String key) {
+        synchronized (this) {
+            CachedResponse response = memory.get(key);
+            if (response != null || disk == null) {
+                return response;
+            }
+        }
+        CachedResponse response = disk.get(key);
+        if (response != null) {
+            putInMemory(key, response);
+        }
+        return response;
+    }
+
+    void put(String key, CachedResponse response) {
+        putInMemory(key, response);
+        if (disk != null) {
+            disk.put(key, response);
+        }
+    }
+
+    private synchronized void putInMemory(String key, CachedResponse response) {
+        int size = response.size();
+        if (size > maxBytes) {
+            return;
+        }
+        CachedResponse previous = memory.put(key, response);
+        memoryBytes += size - (previous != null ? previous.size() : 0);
+        Iterator<CachedResponse> eldest = memory.values().iterator();
+        while (memoryBytes > maxBytes && eldest.hasNext()) {
+            memoryBytes -= eldest.next().size();
+            eldest.remove();
+        }
+    }
+
+    synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    synchronized int getMemoryEntries() {
+        return memory.size();
+    }
+
+    long getDiskBytes() {
+        return disk != null ? disk.bytes.get() : 0;
+    }
+
+    private static final class Disk {
+        private final Path directory;
+        private final long maxBytes;
+        private final AtomicLong bytes = new AtomicLong();
+
+        Disk(Path directory, long maxBytes) throws IOException {
+            this.directory = Files.createDirectories(directory);
+            this.maxBytes = maxBytes;
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (file.getFileName().toString().endsWith(SUFFIX)) {
+                        bytes.addAndGet(Files.size(file));
+                    }
+                }
+            }
+        }
+
+        CachedResponse get(String key) {
+            Path file = file(key);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != MAGIC || !key.equals(in.readUTF())) {
+                    throw new IOException("Not a cached response for " + key);
+                }
+                return CachedResponse.readFrom(in);
+            } catch (NoSuchFileException e) {
+                return null;
+            } catch (IOException e) {
+                logger.warn("Dropping unreadable cached response {}", file, e);
+                delete(file);
+                return null;
+            }
+        }
+
+        void put(String key, CachedResponse response) {
+            Path file = file(key);
+            try {
+                Path temporary = Files.createTempFile(directory, "write-", ".tmp");
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                    out.writeInt(MAGIC);
+                    out.writeUTF(key);
+                    response.writeTo(out);
+                }
+                long size = Files.size(temporary);
+                long previous = Files.exists(file) ? Files.size(file) : 0;
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                if (bytes.addAndGet(size - previous) > maxBytes) {
+                    evict();
+                }
+            } catch (IOException e) {
+                logger.warn("Could not store cached response for {}", key, e);
+            }
+        }
+
+        // Oldest written first, until back under the bound
+        private synchronized void evict() throws IOException {
+            List<Path> files;
+            try (Stream<Path> listed = Files.list(directory)) {
+                files = listed.filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                        .sorted(Comparator.comparingLong(Disk::lastModified))
+                        .collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                if (bytes.get() <= maxBytes) {
+                    return;
+                }
+                delete(file);
+            }
+        }
+
+        private void delete(Path file) {
+            try {
+                long size = Files.size(file);
+                if (Files.deleteIfExists(file)) {
+                    bytes.addAndGet(-size);
+                }
+            } catch (IOException e) {
+                // Gone already, or removed on the next eviction
+            }
+        }
+
+        private static long lastModified(Path file) {
+            try {
+                return Files.getLastModifiedTime(file).toMillis();
+            } catch (IOException e) {
+                return 0;
+            }
+        }
+
+        private Path file(String key) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+                StringBuilder name = new StringBuilder(digest.length * 2 + SUFFIX.length());
+                for (byte b : digest) {
+                    name.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+                }
+                return directory.resolve(name.append(SUFFIX).toString());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the pooled JDK client against the {@code HttpURLConnection} client it replaced,
+ * sixteen threads calling a stub server on localhost that answers after a short delay. The stub
+ * speaks plain HTTP/1.1, so this measures connection reuse and the limiter's overhead, not TLS
+ * handshakes or HTTP/2; with {@code maxPerRoute} below the thread count it also shows requests
+ * queueing for a connection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class RestClientBenchmark {
+
+    private static final byte[] BODY = "{\"id\":42,\"name\":\"reference data\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"8", "32"})
+    public int maxPerRoute;
+
+    @Param({"1"})
+    public int serverDelayMillis;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ConnectionLimiter limiter;
+    private RestClient pooled;
+    private RestClient legacy;
+
+    @Setup
+    public void setUp() throws Exception {
+        serverThreads = Executors.newFixedThreadPool(64);
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 256);
+        server.createContext("/reference", exchange -> {
+            try {
+                Thread.sleep(serverDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, BODY.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(BODY);
+            }
+        });
+        server.setExecutor(serverThreads);
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        RestClientProperties properties = new RestClientProperties();
+        properties.setBaseUrl(baseUrl);
+        properties.setHttp2(false);
+        properties.getPool().setMaxPerRoute(maxPerRoute);
+        limiter = ConnectionLimiter.of(properties.getPool());
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(HttpClients.create(properties));
+        factory.setReadTimeout(properties.getReadTimeout());
+        pooled = RestClient.builder()
+                .requestFactory(factory)
+                .baseUrl(baseUrl)
+                .requestInterceptor(limiter)
+                .build();
+        legacy = RestClient.builder()
+                .requestFactory(new SimpleClientHttpRequestFactory())
+                .baseUrl(baseUrl)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println("Pool after run: " + limiter.snapshot());
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] pooled() {
+        return pooled.get().uri("/reference").retrieve().body(byte[].class);
+    }
+
+    @Benchmark
+    public byte[] legacy() {
+        return legacy.get().uri("/reference").retrieve().body(byte[].class);
+    }
+}
@@ -1,31 +1,78 @@
+import com.example.http.CachingInterceptor;
+import com.example.http.ConnectionLimiter;
+import com.example.http.FanOutClient;
+import com.example.http.HeaderLoggingInterceptor;
+import com.example.http.HttpClients;
+import com.example.http.IdleEvictingRequestFactory;
+import com.example.http.RestClientProperties;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
 
-import java.net.HttpURLConnection;
+import java.net.http.HttpClient;
 
 @Configuration
 public class RestClientConfig {
 
+    /**
+     * The external provider's client, keeping connections alive across calls. TLS comes from
+     * {@code rest-client.tls.*} and applies to this client only.
+     */
     @Bean
-    public RestClient restClient() throws Exception {
-        SSLUtil.disableSSLVerification();
-
-        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
-            @Override
-            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
-                if (connection instanceof HttpsURLConnection) {
-                    HttpsURLConnection httpsConnection = (HttpsURLConnection) connection;
-                    httpsConnection.setHostnameVerifier((hostname, session) -> true);
-                }
-                super.prepareConnection(connection, httpMethod);
-            }
-        };
-
-        return RestClient.builder()
-                .requestFactory(() -> requestFactory)
-                .baseUrl("https://api.externalprovider.com")  // Change to your actual base URL
-                .build();
+    public HttpClient externalProviderHttpClient(RestClientProperties properties) throws Exception {
+        return HttpClients.create(properties);
+    }
+
+    @Bean
+    public ConnectionLimiter externalProviderConnectionLimiter(RestClientProperties properties) {
+        return ConnectionLimiter.of(properties.getPool());
+    }
+
+    @Bean
+    public HeaderLoggingInterceptor externalProviderLogging(RestClientProperties properties) {
+        return HeaderLoggingInterceptor.of(properties.getLogging());
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "rest-client.cache", name = "enabled", havingValue = "true")
+    public CachingInterceptor externalProviderCache(RestClientProperties properties) throws Exception {
+        return CachingInterceptor.of(properties.getCache());
+    }
+
+    @Bean
+    public RestClient restClient(RestClientProperties properties, HttpClient externalProviderHttpClient,
+                                 HeaderLoggingInterceptor externalProviderLogging,
+                                 ConnectionLimiter externalProviderConnectionLimiter,
+                                 ObjectProvider<CachingInterceptor> externalProviderCache) {
+        ClientHttpRequestFactory requestFactory;
+        if (properties.getPool().getIdleTimeout() != null) {
+            requestFactory = IdleEvictingRequestFactory.of(externalProviderHttpClient, properties);
+        } else {
+            JdkClientHttpRequestFactory jdkRequestFactory = new JdkClientHttpRequestFactory(externalProviderHttpClient);
+            jdkRequestFactory.setReadTimeout(properties.getReadTimeout());
+            requestFactory = jdkRequestFactory;
+        }
+
+        RestClient.Builder builder = RestClient.builder()
+                .requestFactory(requestFactory)
+                .baseUrl(properties.getBaseUrl())
+                // First, so it times and counts cached responses as well
+                .requestInterceptor(externalProviderLogging);
+        externalProviderCache.ifAvailable(builder::requestInterceptor);
+        // Last, so only requests that reach the network wait for a connection
+        return builder.requestInterceptor(externalProviderConnectionLimiter).build();
+    }
+
+    /**
+     * Runs independent calls through {@link #restClient} at the same time, see
+     * {@code rest-client.fan-out.*}.
+     */
+    @Bean
+    public FanOutClient externalProviderFanOut(RestClient restClient, RestClientProperties properties) {
+        return FanOutClient.of(restClient, properties.getFanOut());
     }
 }
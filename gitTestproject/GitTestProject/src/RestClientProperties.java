@@ -0,0 +1,346 @@
+package com.example.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings of the external provider's {@code RestClient}, bound from {@code rest-client.*}.
+ */
+@Component
+@ConfigurationProperties(prefix = "rest-client")
+public class RestClientProperties {
+
+    private String baseUrl = "https://api.externalprovider.com";
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(30);
+    private boolean http2 = true;
+    private final Pool pool = new Pool();
+    private final Tls tls = new Tls();
+    private final Cache cache = new Cache();
+    private final Logging logging = new Logging();
+    private final FanOut fanOut = new FanOut();
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public void setBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return how long to wait for the response headers of a request
+     */
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return true to prefer HTTP/2, multiplexing requests over one connection per host where the
+     * server agrees, false for HTTP/1.1 only
+     */
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
+    public Pool getPool() {
+        return pool;
+    }
+
+    public Tls getTls() {
+        return tls;
+    }
+
+    public Cache getCache() {
+        return cache;
+    }
+
+    public Logging getLogging() {
+        return logging;
+    }
+
+    public FanOut getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Limits on requests in flight, which over HTTP/1.1 are the connections in use. A request
+     * waits up to {@code acquire-timeout} for its turn.
+     */
+    public static class Pool {
+
+        private int maxTotal = 100;
+        private int maxPerRoute = 20;
+        private Duration acquireTimeout = Duration.ofSeconds(10);
+        private Duration idleTimeout = Duration.ofMinutes(5);
+
+        public int getMaxTotal() {
+            return maxTotal;
+        }
+
+        public void setMaxTotal(int maxTotal) {
+            this.maxTotal = maxTotal;
+        }
+
+        public int getMaxPerRoute() {
+            return maxPerRoute;
+        }
+
+        public void setMaxPerRoute(int maxPerRoute) {
+            this.maxPerRoute = maxPerRoute;
+        }
+
+        public Duration getAcquireTimeout() {
+            return acquireTimeout;
+        }
+
+        public void setAcquireTimeout(Duration acquireTimeout) {
+            this.acquireTimeout = acquireTimeout;
+        }
+
+        /**
+         * @return how long the client may go without a request before its connections are
+         * dropped, or null to leave them to the JDK. The JDK client cannot evict single idle
+         * connections per client, so this replaces the whole client, see
+         * {@link IdleEvictingRequestFactory}: a connection idle on one route is only dropped once
+         * all routes are idle. Otherwise the JDK closes it after its own keep-alive timeout, 1200
+         * seconds unless the JVM is started with another
+         * {@code -Djdk.httpclient.keepalive.timeout}, which applies to every client.
+         */
+        public Duration getIdleTimeout() {
+            return idleTimeout;
+        }
+
+        public void setIdleTimeout(Duration idleTimeout) {
+            this.idleTimeout = idleTimeout;
+        }
+    }
+
+    /**
+     * TLS of this client only. Without a trust store the JDK's default trusted certificates
+     * apply; a key store adds a client certificate. {@code trust-all} skips certificate
+     * validation, for test environments with self-signed certificates only.
+     */
+    public static class Tls {
+
+        private Path trustStore;
+        private String trustStorePassword;
+        private String trustStoreType = "PKCS12";
+        private Path keyStore;
+        private String keyStorePassword;
+        private String keyStoreType = "PKCS12";
+        private List<String> protocols = new ArrayList<>(List.of("TLSv1.3", "TLSv1.2"));
+        private boolean trustAll = false;
+
+        public Path getTrustStore() {
+            return trustStore;
+        }
+
+        public void setTrustStore(Path trustStore) {
+            this.trustStore = trustStore;
+        }
+
+        public String getTrustStorePassword() {
+            return trustStorePassword;
+        }
+
+        public void setTrustStorePassword(String trustStorePassword) {
+            this.trustStorePassword = trustStorePassword;
+        }
+
+        public String getTrustStoreType() {
+            return trustStoreType;
+        }
+
+        public void setTrustStoreType(String trustStoreType) {
+            this.trustStoreType = trustStoreType;
+        }
+
+        public Path getKeyStore() {
+            return keyStore;
+        }
+
+        public void setKeyStore(Path keyStore) {
+            this.keyStore = keyStore;
+        }
+
+        public String getKeyStorePassword() {
+            return keyStorePassword;
+        }
+
+        public void setKeyStorePassword(String keyStorePassword) {
+            this.keyStorePassword = keyStorePassword;
+        }
+
+        public String getKeyStoreType() {
+            return keyStoreType;
+        }
+
+        public void setKeyStoreType(String keyStoreType) {
+            this.keyStoreType = keyStoreType;
+        }
+
+        public List<String> getProtocols() {
+            return protocols;
+        }
+
+        public void setProtocols(List<String> protocols) {
+            this.protocols = protocols;
+        }
+
+        public boolean isTrustAll() {
+            return trustAll;
+        }
+
+        public void setTrustAll(boolean trustAll) {
+            this.trustAll = trustAll;
+        }
+    }
+
+    /**
+     * Caching of GET responses, off unless enabled. Responses up to {@code max-entry-bytes} are
+     * kept in memory up to {@code max-bytes} in total, and with a disk path also on disk up to
+     * {@code disk-max-bytes}.
+     */
+    public static class Cache {
+
+        private boolean enabled = false;
+        private long maxBytes = 16L * 1024 * 1024;
+        private int maxEntryBytes = 1024 * 1024;
+        private Path diskPath;
+        private long diskMaxBytes = 256L * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public int getMaxEntryBytes() {
+            return maxEntryBytes;
+        }
+
+        public void setMaxEntryBytes(int maxEntryBytes) {
+            this.maxEntryBytes = maxEntryBytes;
+        }
+
+        public Path getDiskPath() {
+            return diskPath;
+        }
+
+        public void setDiskPath(Path diskPath) {
+            this.diskPath = diskPath;
+        }
+
+        public long getDiskMaxBytes() {
+            return diskMaxBytes;
+        }
+
+        public void setDiskMaxBytes(long diskMaxBytes) {
+            this.diskMaxBytes = diskMaxBytes;
+        }
+    }
+
+    /**
+     * Debug logging of requests and their headers, for one request in {@code sample-rate}. The
+     * values of the {@code redacted-headers} are never logged.
+     */
+    public static class Logging {
+
+        private int sampleRate = 1;
+        private List<String> redactedHeaders = new ArrayList<>(List.of(
+                "Authorization", "Proxy-Authorization", "Cookie", "Set-Cookie", "X-Api-Key"));
+
+        public int getSampleRate() {
+            return sampleRate;
+        }
+
+        public void setSampleRate(int sampleRate) {
+            this.sampleRate = sampleRate;
+        }
+
+        public List<String> getRedactedHeaders() {
+            return redactedHeaders;
+        }
+
+        public void setRedactedHeaders(List<String> redactedHeaders) {
+            this.redactedHeaders = redactedHeaders;
+        }
+    }
+
+    /**
+     * Limits of requests in flight from the fan-out client: {@code max-concurrency} across all
+     * batches and {@code max-per-host} to one host. A batch fails once {@code timeout} has passed.
+     * With {@code deadline-header} set, requests carry the milliseconds left in that header.
+     */
+    public static class FanOut {
+
+        private int maxConcurrency = 64;
+        private int maxPerHost = 16;
+        private Duration timeout = Duration.ofSeconds(10);
+        private String deadlineHeader;
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public int getMaxPerHost() {
+            return maxPerHost;
+        }
+
+        public void setMaxPerHost(int maxPerHost) {
+            this.maxPerHost = maxPerHost;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public String getDeadlineHeader() {
+            return deadlineHeader;
+        }
+
+        public void setDeadlineHeader(String deadlineHeader) {
+            this.deadlineHeader = deadlineHeader;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.yourpackage.aspect;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and a single consumer. Producers claim a slot with
+ * a CAS on the tail and publish it by advancing the slot's sequence number; the consumer reads
+ * slots in order and hands them back by advancing the sequence past the next lap.
+ */
+final class RingBuffer<E> {
+
+    private final Object[] elements;
+    private final AtomicLongArray sequences;
+    private final int mask;
+
+    private final AtomicLong tail = new AtomicLong();
+    // Written by the consumer only, read by anyone for the queue depth
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        size = Math.max(size, 2);
+        this.elements = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an element, from any thread.
+     *
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements[index] = element;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                // Another producer took this slot
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Remove the oldest element. Must only be called from the consumer thread.
+     *
+     * @return the element, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    E poll() {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E element = (E) elements[index];
+        elements[index] = null;
+        sequences.lazySet(index, position + elements.length);
+        head.lazySet(position + 1);
+        return element;
+    }
+
+    /**
+     * @return the number of queued elements, approximate while producers are active
+     */
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+}
@@ -5,6 +5,11 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.security.cert.X509Certificate;
 
+/**
+ * @deprecated turns off certificate and host name checks for every {@code HttpsURLConnection}
+ * in the JVM. Configure TLS on the client instead, see {@code rest-client.tls}.
+ */
+@Deprecated
 public class SSLUtil {
 
     public static void disableSSLVerification() throws Exception {
@@ -0,0 +1,114 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAccessor;
+import java.time.temporal.TemporalAmount;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Works out from Jackson's view of a type whether serializing it can ever write a string under a
+ * sensitive property name. Values of types that cannot are written without the masking layer.
+ *
+ * <p>The answer errs towards masking: maps, interfaces, abstract and other non-final classes
+ * reached through a property are assumed to be able to, since their runtime type is unknown, as
+ * are classes with custom serialization. A class is only analyzed in depth when it is the
+ * runtime class of the value itself, or final.
+ */
+final class SensitiveTypes {
+
+    private final ObjectMapper objectMapper;
+    private final CaseInsensitiveNames sensitiveFields;
+
+    private final ClassValue<Boolean> byClass = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                return mayContain(objectMapper.constructType(type), true, new HashSet<>());
+            } catch (RuntimeException e) {
+                return true;
+            }
+        }
+    };
+
+    SensitiveTypes(ObjectMapper objectMapper, CaseInsensitiveNames sensitiveFields) {
+        this.objectMapper = objectMapper;
+        this.sensitiveFields = sensitiveFields;
+    }
+
+    /**
+     * @param runtimeClass the class of a value about to be serialized
+     * @return false if no value of exactly this class can need masking; cached per class
+     */
+    boolean mayContain(Class<?> runtimeClass) {
+        return byClass.get(runtimeClass);
+    }
+
+    /**
+     * @param declaredType a declared parameter or return type, with its type arguments
+     * @return false if no value of this type or any subtype can need masking
+     */
+    boolean mayContain(Type declaredType) {
+        try {
+            return mayContain(objectMapper.constructType(declaredType), false, new HashSet<>());
+        } catch (RuntimeException e) {
+            return true;
+        }
+    }
+
+    private boolean mayContain(JavaType type, boolean exact, Set<Class<?>> visiting) {
+        Class<?> raw = type.getRawClass();
+        if (isScalar(raw)) {
+            return false;
+        }
+        // Elements of arrays and collections are never masked themselves, only what is inside them
+        if (type.isArrayType() || type.isCollectionLikeType() || type.isReferenceType()) {
+            return mayContain(type.getContentType(), false, visiting);
+        }
+        if (type.isMapLikeType() || raw.isInterface() || Modifier.isAbstract(raw.getModifiers())
+                || !exact && !Modifier.isFinal(raw.getModifiers())) {
+            return true;
+        }
+        if (!visiting.add(raw)) {
+            // Already being analyzed further up
+            return false;
+        }
+        BeanDescription description = objectMapper.getSerializationConfig().introspect(type);
+        if (description.findJsonValueAccessor() != null || description.findAnyGetter() != null
+                || description.getClassAnnotations().has(JsonSerialize.class)) {
+            return true;
+        }
+        for (BeanPropertyDefinition property : description.findProperties()) {
+            if (!property.couldSerialize()) {
+                continue;
+            }
+            AnnotatedMember accessor = property.getAccessor();
+            if (sensitiveFields.contains(property.getName()) || accessor == null
+                    || accessor.hasAnnotation(JsonSerialize.class) || accessor.hasAnnotation(JsonUnwrapped.class)
+                    || mayContain(property.getPrimaryType(), false, visiting)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Types written as a single JSON value, never as an object with properties
+    private static boolean isScalar(Class<?> type) {
+        return type.isPrimitive() || type == String.class || type == Character.class || type == Boolean.class
+                || Number.class.isAssignableFrom(type) || type.isEnum() || Enum.class.isAssignableFrom(type)
+                || type == UUID.class || Date.class.isAssignableFrom(type) || ZoneId.class.isAssignableFrom(type)
+                || TemporalAccessor.class.isAssignableFrom(type) || TemporalAmount.class.isAssignableFrom(type);
+    }
+}
@@ -0,0 +1,93 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensitiveTypesTests {
+
+    private final SensitiveTypes types =
+            new SensitiveTypes(new ObjectMapper(), new CaseInsensitiveNames(Set.of("ssn", "password")));
+
+    public static final class Money {
+        public long amount;
+        public String currency;
+    }
+
+    public static final class Account {
+        public String owner;
+        public Money balance;
+        public List<Money> history;
+    }
+
+    public static class User {
+        public String name;
+        @JsonProperty("Password")
+        public String secret;
+    }
+
+    public static class Order {
+        public long id;
+        public Money total;
+    }
+
+    public static class AuditedOrder extends Order {
+        public User approvedBy;
+    }
+
+    public static class Tree {
+        public String label;
+        public Tree parent;
+    }
+
+    // Declared parameter types with their type arguments
+    @SuppressWarnings("unused")
+    private static void parameters(List<Long> ids, Map<String, Long> counts, Optional<Money> money, Order order,
+                                   Account[] accounts, List<? extends Order> orders) {
+    }
+
+    @Test
+    void testScalarsNeverNeedMasking() {
+        assertFalse(types.mayContain(String.class));
+        assertFalse(types.mayContain(Long.class));
+        assertFalse(types.mayContain(int.class));
+        assertFalse(types.mayContain(LocalDate.class));
+        assertFalse(types.mayContain(Thread.State.class));
+    }
+
+    @Test
+    void testBeansAreAnalyzedByProperty() {
+        assertFalse(types.mayContain(Money.class));
+        assertFalse(types.mayContain(Account.class));
+        // Renamed to a sensitive name
+        assertTrue(types.mayContain(User.class));
+        // Money is final, so its fields are all there is
+        assertFalse(types.mayContain(Order.class));
+        assertTrue(types.mayContain(AuditedOrder.class));
+        // Tree is not final, so a subclass could be in parent
+        assertTrue(types.mayContain(Tree.class));
+    }
+
+    @Test
+    void testDeclaredTypes() throws Exception {
+        Type[] parameters = SensitiveTypesTests.class.getDeclaredMethod("parameters", List.class, Map.class,
+                Optional.class, Order.class, Account[].class, List.class).getGenericParameterTypes();
+
+        assertFalse(types.mayContain(parameters[0]));
+        assertTrue(types.mayContain(parameters[1]));
+        assertFalse(types.mayContain(parameters[2]));
+        // Could be an AuditedOrder at runtime
+        assertTrue(types.mayContain(parameters[3]));
+        assertFalse(types.mayContain(parameters[4]));
+        assertTrue(types.mayContain(parameters[5]));
+    }
+}
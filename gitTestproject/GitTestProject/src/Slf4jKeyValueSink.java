@@ -0,0 +1,27 @@
+package com.yourpackage.aspect;
+
+import org.slf4j.Logger;
+
+/**
+ * Logs each record as an SLF4J event with key-value pairs, for encoders that write them as
+ * fields of their own, such as a JSON encoder.
+ */
+public class Slf4jKeyValueSink implements LogSink {
+
+    private final Logger logger;
+
+    public Slf4jKeyValueSink(Logger logger) {
+        this.logger = logger;
+    }
+
+    @Override
+    public void write(LogRecord record) {
+        logger.atInfo()
+                .setMessage(record.getType() == LogRecord.Type.CALL ? "Calling method" : "Return from method")
+                .addKeyValue("method", record.getMethod())
+                .addKeyValue("traceId", record.getTraceId())
+                .addKeyValue("durationNanos", record.getDurationNanos() >= 0 ? record.getDurationNanos() : null)
+                .addKeyValue("payload", record.getPayload())
+                .log();
+    }
+}
@@ -0,0 +1,568 @@
+package com.example.tracing.filter;
+
+import com.example.tracing.TraceIds;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The most recently finished requests, for looking into latency without a tracing backend.
+ *
+ * <p>Each request takes a fixed number of longs in one array, overwritten a lap later, so
+ * recording allocates nothing once its route is known. A writer claims a slot's sequence number
+ * with a CAS, which also keeps two writers lapping each other out of the same slot, and
+ * publishes it when done; readers copy a slot and keep it only if its sequence did not change
+ * meanwhile. Queries work on such a copy and never hold up writers.
+ *
+ * <p>{@link #dump} writes the records and their routes to a compact binary file, which
+ * {@link #load} reads back for the same queries elsewhere.
+ */
+@Component
+public class SpanBuffer implements DisposableBean {
+
+    /** The request had a span from the start */
+    public static final int SAMPLED = 1;
+    /** The request was not sampled but its span was kept as slow or failed */
+    public static final int RETAINED = 2;
+    public static final int ERROR = 4;
+
+    // Routes beyond this are recorded as one, so odd paths cannot grow the table without bound
+    static final int MAX_ROUTES = 1024;
+    static final String OTHER_ROUTES = "*";
+    private static final int OTHER_ROUTE_ID = MAX_ROUTES - 1;
+
+    static final int MAGIC = 0x5350414E; // "SPAN"
+    static final int VERSION = 1;
+
+    private static final int STRIDE = 8;
+    private static final int TRACE_HIGH = 0;
+    private static final int TRACE_LOW = 1;
+    private static final int SPAN = 2;
+    private static final int PARENT = 3;
+    private static final int START = 4;
+    private static final int DURATION = 5;
+    // Route id in the high half, status and flags in the low
+    private static final int INFO = 6;
+    private static final int FIELDS = 7;
+
+    private final boolean enabled;
+    private final Path dumpPath;
+    private final long[] slots;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong next = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+
+    // Open addressing by the route's String hash, so a known route is found without building its name
+    private final AtomicReferenceArray<Route> routeTable = new AtomicReferenceArray<>(2 * MAX_ROUTES);
+    private final AtomicReferenceArray<String> routes = new AtomicReferenceArray<>(MAX_ROUTES);
+    private final AtomicInteger routeCount = new AtomicInteger();
+
+    public SpanBuffer(TracingProperties properties) {
+        this(properties.getBuffer().isEnabled(), properties.getBuffer().getCapacity(),
+                properties.getBuffer().getDumpPath());
+    }
+
+    /**
+     * @param capacity the number of requests kept, rounded up to a power of two
+     */
+    SpanBuffer(boolean enabled, int capacity, Path dumpPath) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        int size = Math.max(Integer.highestOneBit(capacity - 1) << 1, 2);
+        this.enabled = enabled;
+        this.dumpPath = dumpPath;
+        this.slots = new long[enabled ? size * STRIDE : 0];
+        this.sequences = new AtomicLongArray(enabled ? size : 0);
+        this.mask = size - 1;
+        routes.set(OTHER_ROUTE_ID, OTHER_ROUTES);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return where the buffer is dumped on shutdown, null if it is not
+     */
+    public Path getDumpPath() {
+        return dumpPath;
+    }
+
+    /**
+     * Record a finished request, from any thread.
+     *
+     * @param parentId 0 for a request without a parent
+     * @param route    the request's route, such as {@code GET /api/orders/*}
+     * @param flags    any of {@link #SAMPLED}, {@link #RETAINED} and {@link #ERROR}
+     */
+    public void record(long traceIdHigh, long traceIdLow, long spanId, long parentId, String route,
+                       long startMicros, long durationNanos, int status, int flags) {
+        if (enabled) {
+            write(traceIdHigh, traceIdLow, spanId, parentId, routeId(route), startMicros, durationNanos, status,
+                    flags);
+        }
+    }
+
+    /**
+     * Record a finished request, from any thread, under the route of its method and path: the
+     * path with every segment holding a digit replaced by {@code *}, as
+     * {@link TraceSampler#endpoint} does.
+     *
+     * @param parentId 0 for a request without a parent
+     * @param flags    any of {@link #SAMPLED}, {@link #RETAINED} and {@link #ERROR}
+     */
+    public void record(long traceIdHigh, long traceIdLow, long spanId, long parentId, String method, String path,
+                       long startMicros, long durationNanos, int status, int flags) {
+        if (enabled) {
+            write(traceIdHigh, traceIdLow, spanId, parentId, routeId(method, path), startMicros, durationNanos,
+                    status, flags);
+        }
+    }
+
+    private void write(long traceIdHigh, long traceIdLow, long spanId, long parentId, int routeId,
+                       long startMicros, long durationNanos, int status, int flags) {
+        long info = (long) routeId << 32 | (long) (status & 0xffff) << 16 | flags & 0xffff;
+        long position = next.getAndIncrement();
+        int index = (int) position & mask;
+        long sequence = sequences.get(index);
+        // Another writer is still in the slot, or has already put a newer record there
+        if (sequence < 0 || sequence > position || !sequences.compareAndSet(index, sequence, -1 - position)) {
+            dropped.increment();
+            return;
+        }
+        VarHandle.storeStoreFence();
+        int base = index * STRIDE;
+        slots[base + TRACE_HIGH] = traceIdHigh;
+        slots[base + TRACE_LOW] = traceIdLow;
+        slots[base + SPAN] = spanId;
+        slots[base + PARENT] = parentId;
+        slots[base + START] = startMicros;
+        slots[base + DURATION] = durationNanos;
+        slots[base + INFO] = info;
+        sequences.lazySet(index, position + 1);
+    }
+
+    /**
+     * @return the number of requests recorded since start, including those overwritten since
+     */
+    public long getRecorded() {
+        return next.get() - dropped.sum();
+    }
+
+    /**
+     * @return the number of requests not recorded because their slot was busy
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return the slowest requests in the buffer, slowest first
+     */
+    public List<FinishedSpan> slowest(int limit) {
+        Records records = copy();
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Comparator.comparingLong(records::duration));
+        for (int i = 0; i < records.count; i++) {
+            if (heap.size() < limit) {
+                heap.add(i);
+            } else if (limit > 0 && records.duration(i) > records.duration(heap.peek())) {
+                heap.poll();
+                heap.add(i);
+            }
+        }
+        List<FinishedSpan> spans = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            spans.add(records.span(heap.poll()));
+        }
+        Collections.reverse(spans);
+        return spans;
+    }
+
+    /**
+     * @return latency percentiles of each route in the buffer, by route name
+     */
+    public List<RouteStats> routes() {
+        Records records = copy();
+        int[] counts = new int[MAX_ROUTES];
+        for (int i = 0; i < records.count; i++) {
+            counts[records.route(i)]++;
+        }
+        long[][] durations = new long[MAX_ROUTES][];
+        int[] errors = new int[MAX_ROUTES];
+        for (int i = 0; i < records.count; i++) {
+            int route = records.route(i);
+            if (durations[route] == null) {
+                durations[route] = new long[counts[route]];
+                counts[route] = 0;
+            }
+            durations[route][counts[route]++] = records.duration(i);
+            if ((records.flags(i) & ERROR) != 0) {
+                errors[route]++;
+            }
+        }
+        List<RouteStats> stats = new ArrayList<>();
+        for (int route = 0; route < MAX_ROUTES; route++) {
+            long[] values = durations[route];
+            if (values != null) {
+                Arrays.sort(values);
+                stats.add(new RouteStats(routes.get(route), values.length, errors[route],
+                        percentile(values, 0.5), percentile(values, 0.99), values[values.length - 1]));
+            }
+        }
+        stats.sort(Comparator.comparing(RouteStats::getRoute));
+        return stats;
+    }
+
+    /**
+     * @return the spans of the trace in the buffer, earliest first
+     */
+    public List<FinishedSpan> trace(String traceId) {
+        long high = TraceIds.highBits(traceId);
+        long low = TraceIds.lowBits(traceId);
+        Records records = copy();
+        List<FinishedSpan> spans = new ArrayList<>();
+        for (int i = 0; i < records.count; i++) {
+            if (records.field(i, TRACE_LOW) == low && records.field(i, TRACE_HIGH) == high) {
+                spans.add(records.span(i));
+            }
+        }
+        spans.sort(Comparator.comparingLong(FinishedSpan::getStartMicros));
+        return spans;
+    }
+
+    /**
+     * Write the requests in the buffer to a file, replacing it.
+     */
+    public void dump(Path file) throws IOException {
+        Records records = copy();
+        int routeTotal = Math.min(routeCount.get(), OTHER_ROUTE_ID);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeShort(routeTotal);
+            for (int route = 0; route < routeTotal; route++) {
+                // Null if claimed but not yet named, no record can use it yet
+                String name = routes.get(route);
+                out.writeUTF(name != null ? name : OTHER_ROUTES);
+            }
+            out.writeInt(records.count);
+            for (int i = 0; i < records.count; i++) {
+                for (int field = 0; field < FIELDS; field++) {
+                    out.writeLong(records.field(i, field));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a buffer holding the requests of a file written by {@link #dump}
+     * @throws IOException if the file was not written by {@link #dump}
+     */
+    public static SpanBuffer load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a span dump: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported span dump version: " + version);
+            }
+            String[] names = new String[in.readUnsignedShort()];
+            for (int route = 0; route < names.length; route++) {
+                names[route] = in.readUTF();
+            }
+            int count = in.readInt();
+            SpanBuffer buffer = new SpanBuffer(true, Math.max(count, 1), null);
+            long[] fields = new long[FIELDS];
+            for (int i = 0; i < count; i++) {
+                for (int field = 0; field < FIELDS; field++) {
+                    fields[field] = in.readLong();
+                }
+                int routeId = (int) (fields[INFO] >>> 32);
+                buffer.record(fields[TRACE_HIGH], fields[TRACE_LOW], fields[SPAN], fields[PARENT],
+                        routeId < names.length ? names[routeId] : OTHER_ROUTES, fields[START], fields[DURATION],
+                        (int) fields[INFO] >>> 16, (int) fields[INFO] & 0xffff);
+            }
+            return buffer;
+        }
+    }
+
+    /**
+     * Dump the buffer to the configured path, if any, on shutdown.
+     */
+    @Override
+    public void destroy() throws IOException {
+        if (enabled && dumpPath != null) {
+            dump(dumpPath);
+        }
+    }
+
+    private int routeId(String route) {
+        int hash = route.hashCode();
+        int mask = routeTable.length() - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Route known = routeTable.get(i);
+            if (known == null) {
+                return routeCount.get() >= OTHER_ROUTE_ID ? OTHER_ROUTE_ID : addRoute(route, hash);
+            }
+            if (known.hash == hash && known.name.equals(route)) {
+                return known.id;
+            }
+        }
+    }
+
+    private int routeId(String method, String path) {
+        int hash = TraceSampler.endpointHash(31 * method.hashCode() + ' ', path);
+        int mask = routeTable.length() - 1;
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            Route known = routeTable.get(i);
+            if (known == null) {
+                // Once full, new routes are counted as others without the lock or their name
+                if (routeCount.get() >= OTHER_ROUTE_ID) {
+                    return OTHER_ROUTE_ID;
+                }
+                return addRoute(method + " " + TraceSampler.endpoint(path), hash);
+            }
+            String name = known.name;
+            if (known.hash == hash && name.length() > method.length() && name.startsWith(method)
+                    && name.charAt(method.length()) == ' '
+                    && TraceSampler.endpointEquals(name, method.length() + 1, path)) {
+                return known.id;
+            }
+        }
+    }
+
+    // Slots are only ever filled, so readers probing without the lock see a consistent table
+    private synchronized int addRoute(String name, int hash) {
+        int mask = routeTable.length() - 1;
+        int i = hash & mask;
+        for (Route known = routeTable.get(i); known != null; known = routeTable.get(i)) {
+            if (known.hash == hash && known.name.equals(name)) {
+                return known.id;
+            }
+            i = (i + 1) & mask;
+        }
+        if (routeCount.get() >= OTHER_ROUTE_ID) {
+            return OTHER_ROUTE_ID;
+        }
+        int id = routeCount.getAndIncrement();
+        routes.set(id, name);
+        routeTable.set(i, new Route(name, hash, id));
+        return id;
+    }
+
+    private static final class Route {
+        final String name;
+        final int hash;
+        final int id;
+
+        Route(String name, int hash, int id) {
+            this.name = name;
+            this.hash = hash;
+            this.id = id;
+        }
+    }
+
+    // A consistent copy of the slots in use, skipping any being written
+    private Records copy() {
+        int size = sequences.length();
+        long[] copied = new long[size * FIELDS];
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            long sequence = sequences.get(index);
+            if (sequence <= 0) {
+                continue;
+            }
+            int base = index * STRIDE;
+            System.arraycopy(slots, base, copied, count * FIELDS, FIELDS);
+            VarHandle.loadLoadFence();
+            if (sequences.get(index) == sequence) {
+                count++;
+            }
+        }
+        return new Records(copied, count);
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private final class Records {
+        final long[] fields;
+        final int count;
+
+        Records(long[] fields, int count) {
+            this.fields = fields;
+            this.count = count;
+        }
+
+        long field(int record, int field) {
+            return fields[record * FIELDS + field];
+        }
+
+        long duration(int record) {
+            return field(record, DURATION);
+        }
+
+        int route(int record) {
+            return (int) (field(record, INFO) >>> 32);
+        }
+
+        int flags(int record) {
+            return (int) field(record, INFO) & 0xffff;
+        }
+
+        FinishedSpan span(int record) {
+            long info = field(record, INFO);
+            return new FinishedSpan(field(record, TRACE_HIGH), field(record, TRACE_LOW), field(record, SPAN),
+                    field(record, PARENT), routes.get(route(record)), field(record, START), duration(record),
+                    (int) info >>> 16, (int) info & 0xffff);
+        }
+    }
+
+    /**
+     * One request in the buffer.
+     */
+    public static final class FinishedSpan {
+        private final long traceIdHigh;
+        private final long traceIdLow;
+        private final long spanId;
+        private final long parentId;
+        private final String route;
+        private final long startMicros;
+        private final long durationNanos;
+        private final int status;
+        private final int flags;
+
+        FinishedSpan(long traceIdHigh, long traceIdLow, long spanId, long parentId, String route, long startMicros,
+                     long durationNanos, int status, int flags) {
+            this.traceIdHigh = traceIdHigh;
+            this.traceIdLow = traceIdLow;
+            this.spanId = spanId;
+            this.parentId = parentId;
+            this.route = route;
+            this.startMicros = startMicros;
+            this.durationNanos = durationNanos;
+            this.status = status;
+            this.flags = flags;
+        }
+
+        public String getTraceId() {
+            return traceIdHigh != 0 ? TraceIds.toHex(traceIdHigh) + TraceIds.toHex(traceIdLow) : TraceIds.toHex(traceIdLow);
+        }
+
+        public String getSpanId() {
+            return TraceIds.toHex(spanId);
+        }
+
+        /**
+         * @return the parent span id, null for a request without a parent
+         */
+        public String getParentId() {
+            return parentId != 0 ? TraceIds.toHex(parentId) : null;
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        /**
+         * @return the start in microseconds since the epoch
+         */
+        public long getStartMicros() {
+            return startMicros;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public boolean isSampled() {
+            return (flags & SAMPLED) != 0;
+        }
+
+        public boolean isRetained() {
+            return (flags & RETAINED) != 0;
+        }
+
+        public boolean isError() {
+            return (flags & ERROR) != 0;
+        }
+
+        @Override
+        public String toString() {
+            return getTraceId() + " " + route + " " + status + " " + durationNanos + "ns";
+        }
+    }
+
+    /**
+     * Latency of one route over the requests in the buffer.
+     */
+    public static final class RouteStats {
+        private final String route;
+        private final int count;
+        private final int errors;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        RouteStats(String route, int count, int errors, long p50Nanos, long p99Nanos, long maxNanos) {
+            this.route = route;
+            this.count = count;
+            this.errors = errors;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getRoute() {
+            return route;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getErrors() {
+            return errors;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+    }
+}
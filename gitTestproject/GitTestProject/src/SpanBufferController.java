@@ -0,0 +1,57 @@
+package com.example.tracing.filter;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Queries on the {@link SpanBuffer} over HTTP, enabled by {@code tracing.buffer.endpoint}. Meant
+ * for operators on the host, so keep it off the public listener.
+ */
+@RestController
+@RequestMapping("/internal/traces")
+@ConditionalOnProperty(prefix = "tracing.buffer", name = "endpoint", havingValue = "true")
+public class SpanBufferController {
+
+    private final SpanBuffer buffer;
+
+    public SpanBufferController(SpanBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @GetMapping("/slowest")
+    public List<SpanBuffer.FinishedSpan> slowest(@RequestParam(defaultValue = "20") int limit) {
+        return buffer.slowest(limit);
+    }
+
+    @GetMapping("/routes")
+    public List<SpanBuffer.RouteStats> routes() {
+        return buffer.routes();
+    }
+
+    @GetMapping("/{traceId}")
+    public ResponseEntity<List<SpanBuffer.FinishedSpan>> trace(@PathVariable String traceId) {
+        List<SpanBuffer.FinishedSpan> spans = buffer.trace(traceId);
+        return spans.isEmpty() ? ResponseEntity.notFound().build() : ResponseEntity.ok(spans);
+    }
+
+    /**
+     * Dump the buffer to {@code tracing.buffer.dump-path}; the path is never taken from the request.
+     */
+    @PostMapping("/dump")
+    public ResponseEntity<String> dump() throws IOException {
+        if (buffer.getDumpPath() == null) {
+            return ResponseEntity.notFound().build();
+        }
+        buffer.dump(buffer.getDumpPath());
+        return ResponseEntity.ok(buffer.getDumpPath().toString());
+    }
+}
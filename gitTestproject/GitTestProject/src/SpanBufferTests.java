@@ -0,0 +1,204 @@
+package com.example.tracing.filter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpanBufferTests {
+
+    @TempDir
+    Path directory;
+
+    private static void record(SpanBuffer buffer, long traceId, long spanId, String route, long durationNanos,
+                               int status, int flags) {
+        buffer.record(0, traceId, spanId, 0, route, 1_000 * spanId, durationNanos, status, flags);
+    }
+
+    @Test
+    void testSlowest() {
+        SpanBuffer buffer = new SpanBuffer(true, 16, null);
+        for (int i = 1; i <= 10; i++) {
+            record(buffer, i, i, "GET /orders/*", i * 1_000, 200, 0);
+        }
+
+        List<SpanBuffer.FinishedSpan> slowest = buffer.slowest(3);
+
+        assertEquals(3, slowest.size());
+        assertEquals(10_000L, slowest.get(0).getDurationNanos());
+        assertEquals(8_000L, slowest.get(2).getDurationNanos());
+        assertEquals("000000000000000a", slowest.get(0).getTraceId());
+        assertEquals(0, buffer.slowest(0).size());
+    }
+
+    @Test
+    void testRoutePercentiles() {
+        SpanBuffer buffer = new SpanBuffer(true, 256, null);
+        for (int i = 1; i <= 100; i++) {
+            record(buffer, i, i, "GET /orders/*", i * 1_000, i == 100 ? 500 : 200, i == 100 ? SpanBuffer.ERROR : 0);
+        }
+        record(buffer, 101, 101, "GET /health", 7, 200, 0);
+
+        List<SpanBuffer.RouteStats> routes = buffer.routes();
+
+        assertEquals(2, routes.size());
+        assertEquals("GET /health", routes.get(0).getRoute());
+        SpanBuffer.RouteStats orders = routes.get(1);
+        assertEquals(100, orders.getCount());
+        assertEquals(1, orders.getErrors());
+        assertEquals(50_000L, orders.getP50Nanos());
+        assertEquals(99_000L, orders.getP99Nanos());
+        assertEquals(100_000L, orders.getMaxNanos());
+    }
+
+    @Test
+    void testTraceById() {
+        SpanBuffer buffer = new SpanBuffer(true, 16, null);
+        buffer.record(0x463ac35c9f6413adL, 0x48485a3953bb6124L, 2, 1, "GET /a", 2_000, 5, 200, SpanBuffer.SAMPLED);
+        buffer.record(0x463ac35c9f6413adL, 0x48485a3953bb6124L, 1, 0, "GET /b", 1_000, 9, 200, SpanBuffer.SAMPLED);
+        buffer.record(0, 0x48485a3953bb6124L, 3, 0, "GET /c", 500, 9, 200, 0);
+
+        List<SpanBuffer.FinishedSpan> trace = buffer.trace("463ac35c9f6413ad48485a3953bb6124");
+
+        assertEquals(2, trace.size());
+        assertEquals("0000000000000001", trace.get(0).getSpanId());
+        assertNull(trace.get(0).getParentId());
+        assertEquals("0000000000000001", trace.get(1).getParentId());
+        assertTrue(trace.get(1).isSampled());
+        assertEquals(1, buffer.trace("48485a3953bb6124").size());
+    }
+
+    @Test
+    void testOverwritesOldest() {
+        SpanBuffer buffer = new SpanBuffer(true, 4, null);
+        for (int i = 1; i <= 10; i++) {
+            record(buffer, i, i, "GET /", i, 200, 0);
+        }
+
+        List<SpanBuffer.FinishedSpan> kept = buffer.slowest(10);
+
+        assertEquals(4, kept.size());
+        assertEquals(7L, kept.get(3).getDurationNanos());
+        assertEquals(10L, buffer.getRecorded());
+    }
+
+    @Test
+    void testRecordsByMethodAndPath() {
+        SpanBuffer buffer = new SpanBuffer(true, 16, null);
+        buffer.record(0, 1, 1, 0, "GET", "/orders/1", 1_000, 10, 200, 0);
+        buffer.record(0, 2, 2, 0, "GET", "/orders/2", 2_000, 20, 200, 0);
+        record(buffer, 3, 3, "GET /orders/*", 30, 200, 0);
+        buffer.record(0, 4, 4, 0, "POST", "/orders/4", 4_000, 40, 201, 0);
+        buffer.record(0, 5, 5, 0, "GET", "/orders", 5_000, 50, 200, 0);
+
+        List<SpanBuffer.RouteStats> routes = buffer.routes();
+
+        assertEquals(3, routes.size());
+        assertEquals("GET /orders", routes.get(0).getRoute());
+        assertEquals("GET /orders/*", routes.get(1).getRoute());
+        assertEquals(3, routes.get(1).getCount());
+        assertEquals("POST /orders/*", routes.get(2).getRoute());
+    }
+
+    @Test
+    void testBoundsRoutes() {
+        SpanBuffer buffer = new SpanBuffer(true, 4096, null);
+        for (int i = 0; i < SpanBuffer.MAX_ROUTES + 10; i++) {
+            record(buffer, i + 1, i + 1, "GET /r" + i, 1, 200, 0);
+        }
+
+        List<SpanBuffer.RouteStats> routes = buffer.routes();
+
+        assertEquals(SpanBuffer.MAX_ROUTES, routes.size());
+        assertEquals(11, routes.stream().filter(r -> r.getRoute().equals(SpanBuffer.OTHER_ROUTES))
+                .findFirst().get().getCount());
+    }
+
+    @Test
+    void testKnownRoutesStillResolveOnceFull() {
+        SpanBuffer buffer = new SpanBuffer(true, 4096, null);
+        buffer.record(0, 1, 1, 0, "GET", "/orders/1", 1_000, 1, 200, 0);
+        for (int i = 0; i < SpanBuffer.MAX_ROUTES + 10; i++) {
+            // In letters, a segment with digits would be an id of one route
+            StringBuilder path = new StringBuilder("/r");
+            for (int n = i; n > 0 || path.length() == 2; n /= 26) {
+                path.append((char) ('a' + n % 26));
+            }
+            buffer.record(0, i + 2, i + 2, 0, "GET", path.toString(), 1_000, 1, 200, 0);
+        }
+        buffer.record(0, 2_000, 2_000, 0, "GET", "/orders/2", 1_000, 1, 200, 0);
+
+        List<SpanBuffer.RouteStats> routes = buffer.routes();
+
+        assertEquals(2, routes.stream().filter(r -> r.getRoute().equals("GET /orders/*"))
+                .findFirst().get().getCount());
+        assertEquals(12, routes.stream().filter(r -> r.getRoute().equals(SpanBuffer.OTHER_ROUTES))
+                .findFirst().get().getCount());
+    }
+
+    @Test
+    void testDumpAndLoad() throws IOException {
+        SpanBuffer buffer = new SpanBuffer(true, 16, null);
+        record(buffer, 1, 1, "GET /orders/*", 3_000, 200, SpanBuffer.SAMPLED);
+        record(buffer, 2, 2, "POST /orders", 9_000, 503, SpanBuffer.RETAINED | SpanBuffer.ERROR);
+        Path file = directory.resolve("spans.bin");
+
+        buffer.dump(file);
+        SpanBuffer loaded = SpanBuffer.load(file);
+
+        assertEquals(8 + 2 + 2 + "GET /orders/*".length() + 2 + "POST /orders".length() + 4 + 2 * 7 * 8,
+                (int) Files.size(file));
+        SpanBuffer.FinishedSpan slowest = loaded.slowest(1).get(0);
+        assertEquals("POST /orders", slowest.getRoute());
+        assertEquals(503, slowest.getStatus());
+        assertTrue(slowest.isRetained());
+        assertTrue(slowest.isError());
+        assertFalse(slowest.isSampled());
+        assertEquals(2, loaded.routes().size());
+
+        Files.write(file, new byte[]{1, 2, 3, 4});
+        assertThrows(IOException.class, () -> SpanBuffer.load(file));
+    }
+
+    @Test
+    void testConcurrentRecordingStaysConsistent() throws Exception {
+        SpanBuffer buffer = new SpanBuffer(true, 64, null);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (long i = 1; i <= 100_000; i++) {
+                    // Every field derives from the trace id, so a torn record would show
+                    buffer.record(i, i, i, i, "GET /", i, i, 200, 0);
+                }
+            });
+        }
+        for (int i = 0; i < 200; i++) {
+            for (SpanBuffer.FinishedSpan span : buffer.slowest(64)) {
+                long id = Long.parseLong(span.getSpanId(), 16);
+                assertEquals(id, span.getDurationNanos());
+                assertEquals(id, span.getStartMicros());
+                assertEquals(span.getSpanId(), span.getParentId());
+            }
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(400_000L, buffer.getRecorded() + buffer.getDropped());
+    }
+
+    @Test
+    void testDisabledRecordsNothing() {
+        SpanBuffer buffer = new SpanBuffer(false, 16, null);
+        record(buffer, 1, 1, "GET /", 1, 200, 0);
+
+        assertEquals(0, buffer.slowest(10).size());
+        assertEquals(0L, buffer.getRecorded());
+    }
+}
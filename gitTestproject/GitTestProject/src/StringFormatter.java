@@ -1,42 +1,32 @@
 package com.example.util;
 
-import java.util.Arrays;
-import java.util.Set;
-
 public class StringFormatter {
 
-    // Canadian Provinces and Territories
-    private static final Set<String> CANADIAN_PROVINCES = Set.of(
-            "AB", "BC", "MB", "NB", "NL", "NT", "NS", "NU", "ON", "PE", "QC", "SK", "YT"
-    );
-
-    // U.S. States and Territories
-    private static final Set<String> US_STATES = Set.of(
-            "AL", "AK", "AZ", "AR", "CA", "CO", "CT", "DE", "FL", "GA", "HI", "ID", "IL",
-            "IN", "IA", "KS", "KY", "LA", "ME", "MD", "MA", "MI", "MN", "MS", "MO", "MT",
-            "NE", "NV", "NH", "NJ", "NM", "NY", "NC", "ND", "OH", "OK", "OR", "PA", "RI",
-            "SC", "SD", "TN", "TX", "UT", "VT", "VA", "WA", "WV", "WI", "WY", "DC"
-    );
-
     // Country Codes
-    private static final Set<String> COUNTRY_CODES = Set.of(
+    private static final String[] COUNTRY_CODES = {
             "US", "CA", "GB", "FR", "DE", "IT", "ES", "AU", "JP", "CN", "IN", "RU", "ZA",
             "USA", "CAN", "GBR", "FRA", "DEU", "ITA", "ESP", "AUS", "JPN", "CHN", "IND",
             "RUS", "ZAF"
-    );
+    };
 
     // Full Country Names
-    private static final Set<String> COUNTRY_NAMES = Set.of(
+    private static final String[] COUNTRY_NAMES = {
             "United States", "United States of America", "Canada", "United Kingdom",
             "France", "Germany", "Italy", "Spain", "Australia", "Japan", "China",
             "India", "Russia", "South Africa"
-    );
+    };
+
+    // Provinces, states (including DC) and country codes are all uppercased by formatAddress
+    private static final CodeSet ADDRESS_CODES = new CodeSet(CodeSet.Fold.UPPER,
+            FormatterRules.CANADIAN_PROVINCES, FormatterRules.US_STATES, new String[]{"DC"}, COUNTRY_CODES);
+
+    private static final CodeSet COUNTRY_CODE_SET = new CodeSet(CodeSet.Fold.UPPER, COUNTRY_CODES);
+
+    private static final CodeSet COUNTRY_NAME_SET = new CodeSet(CodeSet.Fold.IGNORE_CASE, COUNTRY_NAMES);
 
-    // Special Name Prefixes
-    private static final Set<String> NAME_PREFIXES = Set.of(
-            "Mc", "Mac", "O'", "D'", "De", "Van", "Von", "Le", "La", "Da", "Di", "Du", "Del",
-            "De La", "Van Der", "De Los", "St.", "San", "Dos"
-    );
+    // Special name prefixes, first character capitalized and the rest lowercased
+    private static final FormatterProfile NAME_PROFILE =
+            FormatterProfile.capitalizeFirstCharacter(FormatterRules.NAME_PREFIX_TRIE);
 
     // Format Names (First Name, Last Name, Full Name)
     public static String formatName(String input) {
@@ -44,19 +34,22 @@ public class StringFormatter {
             return input;
         }
 
-        String[] parts = input.split("\\s+");
-        return Arrays.stream(parts)
-                .map(StringFormatter::capitalizeNameWord)
-                .reduce("", (a, b) -> a + " " + b).trim();
+        StringBuilder formatted = new StringBuilder(input.length());
+        FormatterEngine.formatWords(input, NAME_PROFILE, formatted);
+        return formatted.toString();
     }
 
-    private static String capitalizeNameWord(String word) {
-        for (String prefix : NAME_PREFIXES) {
-            if (word.toUpperCase().startsWith(prefix.toUpperCase()) && word.length() > prefix.length()) {
-                return prefix + capitalizeWord(word.substring(prefix.length()));
-            }
+    // Format Names into the given output, blank input is copied unchanged and null appends nothing
+    public static void formatName(CharSequence input, Appendable out) {
+        FormatterEngine.formatTo(input, out, StringFormatter::appendName);
+    }
+
+    private static void appendName(CharSequence input, StringBuilder out) {
+        if (FormatterEngine.isBlank(input)) {
+            out.append(input);
+            return;
         }
-        return capitalizeWord(word);
+        FormatterEngine.formatWords(input, NAME_PROFILE, out);
     }
 
     // Format Addresses
@@ -65,26 +58,81 @@ public class StringFormatter {
             return input;
         }
 
-        String[] parts = input.split("(?=[,])|(?<=[,])|(?=[ ])|(?<=[ ])");
-        return Arrays.stream(parts)
-                .map(part -> CANADIAN_PROVINCES.contains(part.toUpperCase())
-                        ? part.toUpperCase() // Canadian Provinces
-                        : US_STATES.contains(part.toUpperCase())
-                        ? part.toUpperCase() // US States
-                        : COUNTRY_CODES.contains(part.toUpperCase())
-                        ? formatCountry(part) // Countries
-                        : part.matches("(?i)[A-Z]\\d[A-Z] ?\\d[A-Z]\\d|\\d{5}(-\\d{4})?")
-                        ? formatPostalCode(part) // Postal Codes
-                        : capitalizeAddressWord(part)) // Default
-                .reduce("", String::concat)
-                .trim();
+        StringBuilder formatted = new StringBuilder(input.length() + 4);
+        appendAddress(input, formatted);
+        return formatted.toString();
+    }
+
+    // Format Addresses into the given output, blank input is copied unchanged and null appends nothing
+    public static void formatAddress(CharSequence input, Appendable out) {
+        FormatterEngine.formatTo(input, out, StringFormatter::appendAddress);
+    }
+
+    private static void appendAddress(CharSequence input, StringBuilder out) {
+        if (FormatterEngine.isBlank(input)) {
+            out.append(input);
+            return;
+        }
+
+        // Single scan: commas and spaces are emitted as-is, every run in between is classified in place
+        int base = out.length();
+        int length = input.length();
+        int start = 0;
+        while (start < length) {
+            char c = input.charAt(start);
+            if (isAddressSeparator(c)) {
+                out.append(c);
+                start++;
+                continue;
+            }
+            int end = start + 1;
+            while (end < length && !isAddressSeparator(input.charAt(end))) {
+                end++;
+            }
+            appendAddressToken(input, start, end, out);
+            start = end;
+        }
+        FormatterEngine.trim(out, base);
+    }
+
+    private static boolean isAddressSeparator(char c) {
+        return c == ',' || c == ' ';
+    }
+
+    private static void appendAddressToken(CharSequence input, int start, int end, StringBuilder out) {
+        String code = ADDRESS_CODES.find(input, start, end);
+        if (code != null) {
+            // Provinces, states and country codes
+            out.append(code);
+        } else if (isCanadianPostalCode(input, start, end)) {
+            appendCanadianPostalCode(input, start, end, out);
+        } else {
+            // ZIP codes and numbers have no case, so capitalizing leaves them untouched
+            FormatterEngine.capitalizeFirstCharacter(input, start, end, out);
+        }
     }
 
-    private static String capitalizeAddressWord(String word) {
-        if (word.isBlank() || word.matches("\\d+")) {
-            return word;
+    // Matches (?i)[A-Z]\d[A-Z] ?\d[A-Z]\d
+    private static boolean isCanadianPostalCode(CharSequence input, int start, int end) {
+        int length = end - start;
+        boolean spaced = length == 7 && input.charAt(start + 3) == ' ';
+        if (length != 6 && !spaced) {
+            return false;
         }
-        return capitalizeWord(word);
+        int second = end - 3;
+        return FormatterEngine.isAsciiLetter(input.charAt(start))
+                && FormatterEngine.isAsciiDigit(input.charAt(start + 1))
+                && FormatterEngine.isAsciiLetter(input.charAt(start + 2))
+                && FormatterEngine.isAsciiDigit(input.charAt(second))
+                && FormatterEngine.isAsciiLetter(input.charAt(second + 1))
+                && FormatterEngine.isAsciiDigit(input.charAt(second + 2));
+    }
+
+    // Uppercase 'A1A 1A1', inserting the space when missing
+    private static void appendCanadianPostalCode(CharSequence input, int start, int end, StringBuilder out) {
+        FormatterEngine.appendUpperCase(input, start, start + 3, out);
+        out.append(' ');
+        FormatterEngine.appendUpperCase(input, end - 3, end, out);
     }
 
     // Format Cities
@@ -93,38 +141,97 @@ public class StringFormatter {
             return input;
         }
 
-        String[] parts = input.split("(?=[ -])|(?<=[ -])");
-        return Arrays.stream(parts)
-                .map(StringFormatter::capitalizeWord)
-                .reduce("", String::concat)
-                .trim();
+        StringBuilder formatted = new StringBuilder(input.length());
+        appendCityName(input, formatted);
+        return formatted.toString();
+    }
+
+    // Format Cities into the given output, blank input is copied unchanged and null appends nothing
+    public static void formatCityName(CharSequence input, Appendable out) {
+        FormatterEngine.formatTo(input, out, StringFormatter::appendCityName);
+    }
+
+    private static void appendCityName(CharSequence input, StringBuilder out) {
+        if (FormatterEngine.isBlank(input)) {
+            out.append(input);
+            return;
+        }
+
+        // Spaces and hyphens are kept, every run in between is capitalized
+        int base = out.length();
+        int length = input.length();
+        int start = 0;
+        while (start < length) {
+            int end = start;
+            while (end < length && !isCitySeparator(input.charAt(end))) {
+                end++;
+            }
+            FormatterEngine.capitalizeFirstCharacter(input, start, end, out);
+            if (end < length) {
+                out.append(input.charAt(end));
+            }
+            start = end + 1;
+        }
+        FormatterEngine.trim(out, base);
+    }
+
+    private static boolean isCitySeparator(char c) {
+        return c == ' ' || c == '-';
     }
 
     // Format Postal Codes
     public static String formatPostalCode(String input) {
-        if (input.matches("(?i)[A-Z]\\d[A-Z] ?\\d[A-Z]\\d")) {
-            return input.toUpperCase().replaceAll("(\\w{3})(\\w{3})", "$1 $2");
-        }
-        if (input.matches("\\d{5}(-\\d{4})?")) {
+        if (!isCanadianPostalCode(input, 0, input.length())) {
+            // US ZIP codes and anything unrecognized are returned unchanged
             return input;
         }
-        return input;
+        StringBuilder formatted = new StringBuilder(7);
+        appendCanadianPostalCode(input, 0, input.length(), formatted);
+        return formatted.toString();
+    }
+
+    // Format Postal Codes into the given output, null appends nothing
+    public static void formatPostalCode(CharSequence input, Appendable out) {
+        FormatterEngine.formatTo(input, out, StringFormatter::appendPostalCode);
+    }
+
+    private static void appendPostalCode(CharSequence input, StringBuilder out) {
+        if (isCanadianPostalCode(input, 0, input.length())) {
+            appendCanadianPostalCode(input, 0, input.length(), out);
+        } else {
+            out.append(input);
+        }
     }
 
     // Format Countries
     public static String formatCountry(String input) {
-        if (COUNTRY_CODES.contains(input.toUpperCase())) {
-            return input.toUpperCase();
+        String code = COUNTRY_CODE_SET.find(input, 0, input.length());
+        if (code != null) {
+            return code;
         }
-        for (String country : COUNTRY_NAMES) {
-            if (country.equalsIgnoreCase(input)) {
-                return capitalizeWord(country);
-            }
+        String country = COUNTRY_NAME_SET.find(input, 0, input.length());
+        if (country != null) {
+            return FormatterEngine.capitalizeFirstCharacter(country);
         }
         return input;
     }
 
-    private static String capitalizeWord(String word) {
-        return Character.toUpperCase(word.charAt(0)) + word.substring(1).toLowerCase();
+    // Format Countries into the given output, null appends nothing
+    public static void formatCountry(CharSequence input, Appendable out) {
+        FormatterEngine.formatTo(input, out, StringFormatter::appendCountry);
+    }
+
+    private static void appendCountry(CharSequence input, StringBuilder out) {
+        String code = COUNTRY_CODE_SET.find(input, 0, input.length());
+        if (code != null) {
+            out.append(code);
+            return;
+        }
+        String country = COUNTRY_NAME_SET.find(input, 0, input.length());
+        if (country != null) {
+            FormatterEngine.capitalizeFirstCharacter(country, 0, country.length(), out);
+        } else {
+            out.append(input);
+        }
     }
 }
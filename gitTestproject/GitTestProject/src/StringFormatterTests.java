@@ -2,6 +2,8 @@ package com.example.util;
 
 import org.junit.jupiter.api.Test;
 
+import java.nio.CharBuffer;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class StringFormatterTests {
@@ -64,7 +66,6 @@ class StringFormatterTests {
         assertEquals("Marie", ClientNameFormatter.formatFirstName("marie"));
         assertEquals("Jean-Paul", ClientNameFormatter.formatLastName("jean-paul"));
     }
-2o
 
     @Test
     void testFormatAddress() {
@@ -85,6 +86,39 @@ class StringFormatterTests {
                 StringFormatter.formatAddress("789 ELM STREET, VANCOUVER, BC, V6C3N3"));
     }
 
+    @Test
+    void testFormatAddressPreservesSeparators() {
+        // Repeated spaces and commas are kept as written, only the outer whitespace is trimmed
+        assertEquals("77  King St W,, Toronto ,ON,M5H 1J9",
+                StringFormatter.formatAddress("  77  king st w,, toronto ,on,m5h1j9 "));
+
+        // Lowercase codes and postal codes
+        assertEquals("1600 Pennsylvania Ave Nw, Washington, DC, 20500-0003, USA",
+                StringFormatter.formatAddress("1600 pennsylvania ave nw, washington, dc, 20500-0003, usa"));
+    }
+
+    @Test
+    void testFormatIntoAppendable() {
+        // Appends to existing content
+        StringBuilder builder = new StringBuilder("Address: ");
+        StringFormatter.formatAddress("123 MAIN STREET, TORONTO, ON, M5W1E6, CANADA", builder);
+        assertEquals("Address: 123 Main Street, Toronto, ON, M5W 1E6, Canada", builder.toString());
+
+        CharBuffer buffer = CharBuffer.allocate(64);
+        StringFormatter.formatCityName("OTTAWA-GATINEAU", buffer);
+        buffer.put('|');
+        StringFormatter.formatPostalCode("k1a0b1", buffer);
+        buffer.put('|');
+        ClientNameFormatter.formatLastName("O'CONNOR-LEE", buffer);
+        assertEquals("Ottawa-Gatineau|K1A 0B1|O'Connor-Lee", buffer.flip().toString());
+
+        // Null appends nothing, blank is copied unchanged
+        builder.setLength(0);
+        StringFormatter.formatName(null, builder);
+        StringFormatter.formatName("  ", builder);
+        assertEquals("  ", builder.toString());
+    }
+
     @Test
     void testFormatCityName() {
         // General city names
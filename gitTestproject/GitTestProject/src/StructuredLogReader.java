@@ -0,0 +1,95 @@
+package com.yourpackage.aspect;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints the files written by {@link MappedFileSink} as newline-delimited JSON, one record per
+ * line, in the order they were written.
+ *
+ * <pre>
+ * java com.yourpackage.aspect.StructuredLogReader &lt;file or directory&gt;...
+ * </pre>
+ */
+public class StructuredLogReader {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: StructuredLogReader <file or directory>...");
+            System.exit(2);
+        }
+        Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        for (String arg : args) {
+            for (Path file : files(Paths.get(arg))) {
+                convert(file, out);
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * @return the file itself, or the structured log files in the directory in order
+     */
+    static List<Path> files(Path path) throws IOException {
+        List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(path)) {
+            files.add(path);
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path,
+                MappedFileSink.FILE_PREFIX + "*" + MappedFileSink.FILE_SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        // Numbers are zero-padded, so names sort in writing order
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Write every record of a file as a line of JSON.
+     *
+     * @return the number of records
+     */
+    static long convert(Path file, Writer out) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            JsonFactory factory = MappedFileSink.factoryFor(MappedFileSink.readHeader(buffer));
+            JsonGenerator json = new JsonFactory().createGenerator(out);
+            json.setRootValueSeparator(null);
+            byte[] record = new byte[4096];
+            long count = 0;
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                if (record.length < length) {
+                    record = new byte[Math.max(length, record.length * 2)];
+                }
+                buffer.get(record, 0, length);
+                try (JsonParser parser = factory.createParser(record, 0, length)) {
+                    parser.nextToken();
+                    json.copyCurrentStructure(parser);
+                }
+                json.writeRaw('\n');
+                count++;
+            }
+            json.flush();
+            return count;
+        }
+    }
+}
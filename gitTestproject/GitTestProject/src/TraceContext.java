@@ -1,28 +1,278 @@
+package com.example.tracing;
+
+import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * The trace and span id of the current request.
+ *
+ * <p>Ids are bound for the extent of {@link #runWith} or {@link #callWith}. On runtimes that
+ * have {@code java.lang.ScopedValue} they are held in one, which costs nothing per thread and
+ * is cheap to read from virtual threads; elsewhere they fall back to a single
+ * {@code ThreadLocal} restored when the scope ends. The setters remain for code such as
+ * interceptors that cannot wrap the work in a scope; they always use the thread local.
+ *
+ * <p>Neither survives a hop to another thread by itself. {@link #capture()} takes the ids and
+ * the MDC of the current thread so they can be restored around a task elsewhere, which is what
+ * {@link ContextPropagatingExecutorService} does for every task it runs.
+ */
 @Component
 public class TraceContext {
-    private static final ThreadLocal<String> traceId = new ThreadLocal<>();
-    private static final ThreadLocal<String> spanId = new ThreadLocal<>();
+
+    private static final Ids NONE = new Ids(null, null);
+    private static final ThreadLocal<Ids> current = new ThreadLocal<>();
+
+    /**
+     * Work to run with ids bound, which may throw.
+     */
+    @FunctionalInterface
+    public interface Action<X extends Throwable> {
+        void run() throws X;
+    }
+
+    /**
+     * Work to run with ids bound, which returns a value and may throw.
+     */
+    @FunctionalInterface
+    public interface Call<T, X extends Throwable> {
+        T call() throws X;
+    }
+
+    /**
+     * Run an action with the ids bound, restoring the previous ones afterwards.
+     */
+    public static <X extends Throwable> void runWith(String traceId, String spanId, Action<X> action) throws X {
+        callWith(traceId, spanId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Run a call with the ids bound, restoring the previous ones afterwards.
+     */
+    public static <T, X extends Throwable> T callWith(String traceId, String spanId, Call<T, X> call) throws X {
+        Ids ids = new Ids(traceId, spanId);
+        if (Scoped.AVAILABLE) {
+            return Scoped.callWith(ids, call);
+        }
+        Ids previous = current.get();
+        current.set(ids);
+        try {
+            return call.call();
+        } finally {
+            if (previous != null) {
+                current.set(previous);
+            } else {
+                current.remove();
+            }
+        }
+    }
 
     public static void setTraceId(String id) {
-        traceId.set(id);
+        current.set(new Ids(id, ids(current.get()).spanId));
     }
 
     public static String getTraceId() {
-        return traceId.get();
+        return currentIds().traceId;
     }
 
     public static void setSpanId(String id) {
-        spanId.set(id);
+        current.set(new Ids(ids(current.get()).traceId, id));
     }
 
     public static String getSpanId() {
-        return spanId.get();
+        return currentIds().spanId;
     }
 
+    /**
+     * Clear the ids set through the setters. Ids bound by a scope end with the scope.
+     */
     public static void clear() {
-        traceId.remove();
-        spanId.remove();
+        current.remove();
+    }
+
+    /**
+     * @return the ids and MDC of the current thread, to restore around work on another thread
+     */
+    public static Snapshot capture() {
+        Ids ids = currentIds();
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        if (ids == NONE && (mdc == null || mdc.isEmpty())) {
+            return Snapshot.EMPTY;
+        }
+        return new Snapshot(ids, mdc);
+    }
+
+    private static Ids currentIds() {
+        if (Scoped.AVAILABLE) {
+            Ids scoped = Scoped.get();
+            if (scoped != NONE) {
+                return scoped;
+            }
+        }
+        return ids(current.get());
+    }
+
+    private static Ids ids(Ids ids) {
+        return ids != null ? ids : NONE;
+    }
+
+    private static final class Ids {
+        final String traceId;
+        final String spanId;
+
+        Ids(String traceId, String spanId) {
+            this.traceId = traceId;
+            this.spanId = spanId;
+        }
+    }
+
+    /**
+     * Trace ids and MDC captured on one thread, restored around tasks on another.
+     */
+    public static final class Snapshot {
+
+        static final Snapshot EMPTY = new Snapshot(NONE, null);
+
+        private final Ids ids;
+        private final Map<String, String> mdc;
+
+        private Snapshot(Ids ids, Map<String, String> mdc) {
+            this.ids = ids;
+            this.mdc = mdc;
+        }
+
+        public boolean isEmpty() {
+            return this == EMPTY;
+        }
+
+        public String getTraceId() {
+            return ids.traceId;
+        }
+
+        public String getSpanId() {
+            return ids.spanId;
+        }
+
+        /**
+         * Run the call with the captured ids and MDC, and nothing else, putting back the thread's
+         * own afterwards. Even an empty snapshot hides the thread's ids and MDC from the call,
+         * they belong to whatever ran there before.
+         */
+        public <T, X extends Throwable> T call(Call<T, X> call) throws X {
+            Map<String, String> previousMdc = MDC.getCopyOfContextMap();
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            } else if (previousMdc != null) {
+                MDC.clear();
+            }
+            try {
+                return callWith(ids.traceId, ids.spanId, call);
+            } finally {
+                if (previousMdc != null) {
+                    MDC.setContextMap(previousMdc);
+                } else {
+                    MDC.clear();
+                }
+            }
+        }
+
+        public Runnable wrap(Runnable task) {
+            return () -> call(() -> {
+                task.run();
+                return null;
+            });
+        }
+
+        public <T> Callable<T> wrap(Callable<T> task) {
+            return () -> call(task::call);
+        }
+    }
+
+    /**
+     * java.lang.ScopedValue through method handles, so this compiles and runs on runtimes
+     * without it. The handles are constants, so the JIT compiles the calls as direct ones.
+     */
+    private static final class Scoped {
+
+        static final boolean AVAILABLE;
+        private static final Object KEY;
+        private static final MethodHandle WHERE;
+        private static final MethodHandle RUN;
+        private static final MethodHandle OR_ELSE;
+
+        static {
+            Object key = null;
+            MethodHandle where = null;
+            MethodHandle run = null;
+            MethodHandle orElse = null;
+            boolean available = false;
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+                Class<?> scopedValue = Class.forName("java.lang.ScopedValue");
+                Class<?> carrier = Class.forName("java.lang.ScopedValue$Carrier");
+                key = lookup.findStatic(scopedValue, "newInstance", MethodType.methodType(scopedValue)).invoke();
+                where = lookup.findStatic(scopedValue, "where",
+                        MethodType.methodType(carrier, scopedValue, Object.class));
+                run = lookup.findVirtual(carrier, "run", MethodType.methodType(void.class, Runnable.class));
+                orElse = lookup.findVirtual(scopedValue, "orElse", MethodType.methodType(Object.class, Object.class));
+                // Preview builds may refuse to bind, so try it once
+                run.invoke(where.invoke(key, NONE), (Runnable) () -> { });
+                available = true;
+            } catch (Throwable e) {
+                // Older runtime, or preview features disabled: use the thread local
+            }
+            AVAILABLE = available;
+            KEY = key;
+            WHERE = where;
+            RUN = run;
+            OR_ELSE = orElse;
+        }
+
+        static Ids get() {
+            try {
+                return (Ids) OR_ELSE.invoke(KEY, NONE);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        static <T, X extends Throwable> T callWith(Ids ids, Call<T, X> call) throws X {
+            Outcome<T> outcome = new Outcome<>();
+            Runnable task = () -> {
+                try {
+                    outcome.value = call.call();
+                } catch (Throwable e) {
+                    outcome.failure = e;
+                }
+            };
+            try {
+                RUN.invoke(WHERE.invoke(KEY, ids), task);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+            if (outcome.failure != null) {
+                throw Scoped.<X>sneaky(outcome.failure);
+            }
+            return outcome.value;
+        }
+
+        // Rethrows what the call threw, which is either an X or unchecked
+        @SuppressWarnings("unchecked")
+        private static <X extends Throwable> X sneaky(Throwable e) throws X {
+            throw (X) e;
+        }
+
+        private static final class Outcome<T> {
+            T value;
+            Throwable failure;
+        }
     }
 }
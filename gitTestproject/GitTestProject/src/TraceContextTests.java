@@ -0,0 +1,101 @@
+package com.example.tracing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceContextTests {
+
+    private final ExecutorService executor =
+            ContextPropagatingExecutorService.wrap(Executors.newSingleThreadExecutor());
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        MDC.clear();
+        TraceContext.clear();
+    }
+
+    @Test
+    void testScopesNestAndEnd() {
+        String ids = TraceContext.callWith("trace-1", "span-1", () -> {
+            String inner = TraceContext.callWith("trace-2", "span-2", TraceContext::getSpanId);
+            return inner + " " + TraceContext.getTraceId() + " " + TraceContext.getSpanId();
+        });
+
+        assertEquals("span-2 trace-1 span-1", ids);
+        assertNull(TraceContext.getTraceId());
+    }
+
+    @Test
+    void testScopeEndsWhenActionThrows() {
+        assertThrows(IOException.class, () -> TraceContext.runWith("trace-1", "span-1", () -> {
+            throw new IOException("failed");
+        }));
+        assertNull(TraceContext.getTraceId());
+    }
+
+    @Test
+    void testPropagatesToExecutorTasks() throws Exception {
+        // Start the worker first, so it cannot inherit the MDC from an inheritable adapter
+        executor.submit(() -> { }).get();
+        MDC.put("user", "jane");
+        String seen = TraceContext.callWith("trace-1", "span-1", () -> executor.submit(
+                () -> TraceContext.getTraceId() + " " + TraceContext.getSpanId() + " " + MDC.get("user")).get());
+
+        assertEquals("trace-1 span-1 jane", seen);
+        // Nothing is left behind on the worker
+        MDC.clear();
+        assertEquals("null null", executor.submit(() -> TraceContext.getTraceId() + " " + MDC.get("user")).get());
+    }
+
+    @Test
+    void testTasksDoNotSeeWorkerContext() throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            // Left behind on the worker by code outside any task
+            worker.submit(() -> {
+                MDC.put("user", "jane");
+                TraceContext.setTraceId("stale");
+            }).get();
+            ExecutorService propagating = ContextPropagatingExecutorService.wrap(worker);
+
+            String withIds = TraceContext.callWith("trace-1", "span-1", () -> propagating.submit(
+                    () -> TraceContext.getTraceId() + " " + MDC.get("user")).get());
+            String withNothing = propagating.submit(() -> TraceContext.getTraceId() + " " + MDC.get("user")).get();
+
+            assertEquals("trace-1 null", withIds);
+            assertEquals("null null", withNothing);
+            // The worker gets its own back
+            assertEquals("stale jane", worker.submit(() -> TraceContext.getTraceId() + " " + MDC.get("user")).get());
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPropagatesToCompletableFutures() throws Exception {
+        String seen = TraceContext.callWith("trace-1", "span-1",
+                () -> CompletableFuture.supplyAsync(TraceContext::getTraceId, executor).get());
+
+        assertEquals("trace-1", seen);
+    }
+
+    @Test
+    void testSettersForInterceptors() {
+        TraceContext.setTraceId("trace-1");
+        TraceContext.setSpanId("span-1");
+        assertEquals("trace-1", TraceContext.getTraceId());
+        assertEquals("span-1", TraceContext.getSpanId());
+
+        TraceContext.clear();
+        assertNull(TraceContext.getTraceId());
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.tracing;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Trace ids from incoming request headers, held as longs rather than strings.
+ *
+ * <p>{@link #extract} reads, in this order, the B3 single header {@code b3}, the W3C
+ * {@code traceparent} header and the B3 multi headers {@code X-B3-*}, and uses the first one
+ * present. Each is parsed in one pass over its characters, without splitting or
+ * intermediate strings; hex strings are only made when an id is needed as text.
+ */
+public final class TraceIds {
+
+    /** Sampling decision not made upstream */
+    public static final byte SAMPLING_UNKNOWN = -1;
+    public static final byte NOT_SAMPLED = 0;
+    public static final byte SAMPLED = 1;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long traceIdHigh;
+    private final long traceIdLow;
+    private final long spanId;
+    private final long parentId;
+    private final byte sampled;
+    private final boolean debug;
+
+    TraceIds(long traceIdHigh, long traceIdLow, long spanId, long parentId, byte sampled, boolean debug) {
+        this.traceIdHigh = traceIdHigh;
+        this.traceIdLow = traceIdLow;
+        this.spanId = spanId;
+        this.parentId = parentId;
+        this.sampled = sampled;
+        this.debug = debug;
+    }
+
+    /**
+     * @param headers looks up a request header by name, case-insensitively, null if absent
+     * @return the ids of the first supported header set present and valid, or null
+     */
+    public static TraceIds extract(UnaryOperator<String> headers) {
+        String b3 = headers.apply("b3");
+        if (b3 != null) {
+            TraceIds ids = parseB3(b3);
+            if (ids != null) {
+                return ids;
+            }
+        }
+        String traceparent = headers.apply("traceparent");
+        if (traceparent != null) {
+            TraceIds ids = parseTraceparent(traceparent);
+            if (ids != null) {
+                return ids;
+            }
+        }
+        String traceId = headers.apply("X-B3-TraceId");
+        String sampled = headers.apply("X-B3-Sampled");
+        String flags = headers.apply("X-B3-Flags");
+        if (traceId == null && sampled == null && flags == null) {
+            return null;
+        }
+        return parseB3Headers(traceId, headers.apply("X-B3-SpanId"), headers.apply("X-B3-ParentSpanId"),
+                sampled, flags);
+    }
+
+    /**
+     * Parse the B3 single header: {@code {traceId}-{spanId}[-{sampling}[-{parentSpanId}]]}, or
+     * only a sampling state of {@code 0}, {@code 1} or {@code d}.
+     *
+     * @return the ids, or null if the value is malformed
+     */
+    public static TraceIds parseB3(String value) {
+        int length = value.length();
+        if (length == 1) {
+            byte sampled = samplingState(value.charAt(0));
+            return sampled == SAMPLING_UNKNOWN ? null
+                    : new TraceIds(0, 0, 0, 0, sampled, value.charAt(0) == 'd');
+        }
+        int traceEnd = value.indexOf('-');
+        int traceLength = traceEnd;
+        if (traceLength != 16 && traceLength != 32) {
+            return null;
+        }
+        int spanEnd = traceEnd + 17;
+        if (spanEnd > length || spanEnd < length && value.charAt(spanEnd) != '-') {
+            return null;
+        }
+        if (!isHex(value, 0, traceEnd) || !isHex(value, traceEnd + 1, spanEnd)) {
+            return null;
+        }
+        long high = traceLength == 32 ? parseHex(value, 0) : 0;
+        long low = parseHex(value, traceLength - 16);
+        long span = parseHex(value, traceEnd + 1);
+        if ((high | low) == 0 || span == 0) {
+            return null;
+        }
+        byte sampled = SAMPLING_UNKNOWN;
+        boolean debug = false;
+        long parent = 0;
+        if (spanEnd < length) {
+            if (spanEnd + 2 > length || spanEnd + 2 < length && value.charAt(spanEnd + 2) != '-') {
+                return null;
+            }
+            char state = value.charAt(spanEnd + 1);
+            sampled = samplingState(state);
+            debug = state == 'd';
+            if (sampled == SAMPLING_UNKNOWN) {
+                return null;
+            }
+            if (spanEnd + 2 < length) {
+                int parentStart = spanEnd + 3;
+                if (length - parentStart != 16 || !isHex(value, parentStart, length)) {
+                    return null;
+                }
+                parent = parseHex(value, parentStart);
+            }
+        }
+        return new TraceIds(high, low, span, parent, sampled, debug);
+    }
+
+    /**
+     * Parse a W3C {@code traceparent}: {@code {version}-{traceId}-{parentId}-{flags}}. Versions
+     * after 00 are read the same way, ignoring anything they append.
+     *
+     * @return the ids, or null if the value is malformed
+     */
+    public static TraceIds parseTraceparent(String value) {
+        if (value.length() < 55 || value.charAt(2) != '-' || value.charAt(35) != '-' || value.charAt(52) != '-'
+                || value.length() > 55 && value.charAt(55) != '-'
+                || !isHex(value, 0, 2) || !isHex(value, 3, 35) || !isHex(value, 36, 52) || !isHex(value, 53, 55)) {
+            return null;
+        }
+        int version = (int) parseHex(value, 0, 2);
+        if (version == 0xff || version == 0 && value.length() != 55) {
+            return null;
+        }
+        long high = parseHex(value, 3);
+        long low = parseHex(value, 19);
+        long span = parseHex(value, 36);
+        if ((high | low) == 0 || span == 0) {
+            return null;
+        }
+        int flags = (int) parseHex(value, 53, 55);
+        return new TraceIds(high, low, span, 0, (flags & 1) != 0 ? SAMPLED : NOT_SAMPLED, false);
+    }
+
+    /**
+     * Parse the B3 multi headers. Any of them may be null.
+     *
+     * @return the ids, or null if the trace or span id is malformed
+     */
+    public static TraceIds parseB3Headers(String traceId, String spanId, String parentSpanId, String sampled,
+                                          String flags) {
+        boolean debug = "1".equals(flags);
+        byte sampling = debug ? SAMPLED
+                : sampled == null ? SAMPLING_UNKNOWN
+                : "1".equals(sampled) || "true".equalsIgnoreCase(sampled) ? SAMPLED
+                : "0".equals(sampled) || "false".equalsIgnoreCase(sampled) ? NOT_SAMPLED
+                : SAMPLING_UNKNOWN;
+        if (traceId == null) {
+            return sampling == SAMPLING_UNKNOWN ? null : new TraceIds(0, 0, 0, 0, sampling, debug);
+        }
+        int traceLength = traceId.length();
+        if (traceLength != 16 && traceLength != 32 || !isHex(traceId, 0, traceLength)
+                || spanId == null || spanId.length() != 16 || !isHex(spanId, 0, 16)) {
+            return null;
+        }
+        long parent = 0;
+        if (parentSpanId != null) {
+            if (parentSpanId.length() != 16 || !isHex(parentSpanId, 0, 16)) {
+                return null;
+            }
+            parent = parseHex(parentSpanId, 0);
+        }
+        long high = traceLength == 32 ? parseHex(traceId, 0) : 0;
+        long low = parseHex(traceId, traceLength - 16);
+        long span = parseHex(spanId, 0);
+        if ((high | low) == 0 || span == 0) {
+            return null;
+        }
+        return new TraceIds(high, low, span, parent, sampling, debug);
+    }
+
+    /**
+     * @return the low 64 bits of a hex trace or span id, 0 if it is not hex
+     */
+    public static long lowBits(String hexId) {
+        int start = Math.max(0, hexId.length() - 16);
+        return isHex(hexId, start, hexId.length()) ? parseHex(hexId, start, hexId.length()) : 0;
+    }
+
+    /**
+     * @return the high 64 bits of a 128-bit hex trace id, 0 for a 64-bit one or if it is not hex
+     */
+    public static long highBits(String hexId) {
+        int end = hexId.length() - 16;
+        int start = Math.max(0, end - 16);
+        return end > 0 && isHex(hexId, start, end) ? parseHex(hexId, start, end) : 0;
+    }
+
+    private static byte samplingState(char c) {
+        switch (c) {
+            case '1':
+            case 'd':
+                return SAMPLED;
+            case '0':
+                return NOT_SAMPLED;
+            default:
+                return SAMPLING_UNKNOWN;
+        }
+    }
+
+    private static boolean isHex(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f') && (c < 'A' || c > 'F')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Sixteen hex characters from start, already validated
+    private static long parseHex(String s, int start) {
+        return parseHex(s, start, start + 16);
+    }
+
+    private static long parseHex(String s, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value << 4 | Character.digit(s.charAt(i), 16);
+        }
+        return value;
+    }
+
+    /**
+     * @return false if the headers only carried a sampling decision
+     */
+    public boolean hasIds() {
+        return (traceIdHigh | traceIdLow) != 0;
+    }
+
+    public long getTraceIdHigh() {
+        return traceIdHigh;
+    }
+
+    public long getTraceIdLow() {
+        return traceIdLow;
+    }
+
+    public long getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return the parent span id, 0 if none was sent
+     */
+    public long getParentId() {
+        return parentId;
+    }
+
+    /**
+     * @return {@link #SAMPLED}, {@link #NOT_SAMPLED} or {@link #SAMPLING_UNKNOWN}
+     */
+    public byte getSampled() {
+        return sampled;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * @return the trace id as 32 lowercase hex characters, or 16 for a 64-bit id
+     */
+    public String traceIdString() {
+        if (traceIdHigh == 0) {
+            return toHex(traceIdLow);
+        }
+        char[] chars = new char[32];
+        writeHex(traceIdHigh, chars, 0);
+        writeHex(traceIdLow, chars, 16);
+        return new String(chars);
+    }
+
+    public String spanIdString() {
+        return toHex(spanId);
+    }
+
+    /**
+     * @return the parent span id as hex, or null if none was sent
+     */
+    public String parentIdString() {
+        return parentId != 0 ? toHex(parentId) : null;
+    }
+
+    /**
+     * @return the id as 16 lowercase hex characters
+     */
+    public static String toHex(long value) {
+        char[] chars = new char[16];
+        writeHex(value, chars, 0);
+        return new String(chars);
+    }
+
+    private static void writeHex(long value, char[] chars, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return hasIds()
+                ? traceIdString() + "-" + spanIdString() + (sampled == SAMPLING_UNKNOWN ? "" : "-" + (debug ? "d" : sampled))
+                : "sampled=" + sampled;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.tracing;
+
+import brave.propagation.B3Propagation;
+import brave.propagation.Propagation;
+import brave.propagation.TraceContext;
+import brave.propagation.TraceContextOrSamplingFlags;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing cost of {@link TraceIds} for each supported header format, against Brave's B3
+ * extractor, which is what the Micrometer propagator ran per request. Brave has no
+ * {@code traceparent} support of its own, so that format has no baseline. Run with
+ * {@code -prof gc}: the parser itself should allocate only the {@code TraceIds}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TraceIdsBenchmark {
+
+    @Param({"b3multi", "b3single", "traceparent"})
+    public String format;
+
+    private Map<String, String> headers;
+    private TraceContext.Extractor<Map<String, String>> braveExtractor;
+
+    @Setup
+    public void setUp() {
+        headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        switch (format) {
+            case "b3multi":
+                headers.put("X-B3-TraceId", "463ac35c9f6413ad48485a3953bb6124");
+                headers.put("X-B3-SpanId", "a2fb4a1d1a96d312");
+                headers.put("X-B3-ParentSpanId", "0020000000000001");
+                headers.put("X-B3-Sampled", "1");
+                break;
+            case "b3single":
+                headers.put("b3", "463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-1-0020000000000001");
+                break;
+            default:
+                headers.put("traceparent", "00-463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-01");
+        }
+        Propagation<String> propagation = B3Propagation.FACTORY.get();
+        braveExtractor = propagation.extractor(Map::get);
+    }
+
+    @Benchmark
+    public TraceIds traceIds() {
+        return TraceIds.extract(headers::get);
+    }
+
+    @Benchmark
+    public String traceIdsToString() {
+        return TraceIds.extract(headers::get).traceIdString();
+    }
+
+    @Benchmark
+    public TraceContextOrSamplingFlags brave() {
+        return braveExtractor.extract(headers);
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.tracing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceIdsTests {
+
+    private static TraceIds extract(String... namesAndValues) {
+        Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            headers.put(namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return TraceIds.extract(headers::get);
+    }
+
+    @Test
+    void testParsesB3MultiHeaders() {
+        TraceIds ids = extract("x-b3-traceid", "463AC35C9F6413AD48485A3953BB6124", "x-b3-spanid", "a2fb4a1d1a96d312",
+                "x-b3-parentspanid", "0020000000000001", "x-b3-sampled", "true");
+
+        assertEquals(0x463ac35c9f6413adL, ids.getTraceIdHigh());
+        assertEquals(0x48485a3953bb6124L, ids.getTraceIdLow());
+        assertEquals(0xa2fb4a1d1a96d312L, ids.getSpanId());
+        assertEquals(0x20000000000001L, ids.getParentId());
+        assertEquals(TraceIds.SAMPLED, ids.getSampled());
+        assertEquals("463ac35c9f6413ad48485a3953bb6124", ids.traceIdString());
+        assertEquals("0020000000000001", ids.parentIdString());
+    }
+
+    @Test
+    void testParsesB3SingleHeader() {
+        TraceIds ids = extract("b3", "80f198ee56343ba8-e457b5a2e4d86bd1-d-05e3ac9a4f6e3b90");
+
+        assertEquals("80f198ee56343ba8", ids.traceIdString());
+        assertEquals("e457b5a2e4d86bd1", ids.spanIdString());
+        assertEquals("05e3ac9a4f6e3b90", ids.parentIdString());
+        assertEquals(TraceIds.SAMPLED, ids.getSampled());
+        assertTrue(ids.isDebug());
+
+        TraceIds unsampled = TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1-0");
+        assertEquals(TraceIds.NOT_SAMPLED, unsampled.getSampled());
+        assertNull(unsampled.parentIdString());
+        assertEquals(TraceIds.SAMPLING_UNKNOWN, TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1").getSampled());
+    }
+
+    @Test
+    void testParsesTraceparent() {
+        TraceIds ids = extract("traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+
+        assertEquals("0af7651916cd43dd8448eb211c80319c", ids.traceIdString());
+        assertEquals("b7ad6b7169203331", ids.spanIdString());
+        assertEquals(TraceIds.SAMPLED, ids.getSampled());
+        assertEquals(TraceIds.NOT_SAMPLED,
+                TraceIds.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-00").getSampled());
+        // Later versions may append fields
+        assertNotNull(TraceIds.parseTraceparent("01-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-extra"));
+    }
+
+    @Test
+    void testSamplingOnlyHeaders() {
+        TraceIds single = extract("b3", "0");
+        assertFalse(single.hasIds());
+        assertEquals(TraceIds.NOT_SAMPLED, single.getSampled());
+
+        TraceIds debug = extract("X-B3-Flags", "1");
+        assertFalse(debug.hasIds());
+        assertTrue(debug.isDebug());
+        assertEquals(TraceIds.SAMPLED, debug.getSampled());
+    }
+
+    @Test
+    void testPrefersB3SingleThenTraceparent() {
+        assertEquals("80f198ee56343ba8", extract("b3", "80f198ee56343ba8-e457b5a2e4d86bd1",
+                "traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01",
+                "X-B3-TraceId", "463ac35c9f6413ad", "X-B3-SpanId", "a2fb4a1d1a96d312").traceIdString());
+        // A malformed header falls through to the next format
+        assertEquals("0af7651916cd43dd8448eb211c80319c", extract("b3", "garbage",
+                "traceparent", "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01").traceIdString());
+        assertNull(extract());
+    }
+
+    @Test
+    void testRejectsMalformedIds() {
+        assertNull(TraceIds.parseB3("80f198ee56343ba-e457b5a2e4d86bd1"));
+        assertNull(TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bdz"));
+        assertNull(TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1-x"));
+        assertNull(TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1-1-05e3"));
+        assertNull(TraceIds.parseB3("0000000000000000-e457b5a2e4d86bd1"));
+        assertNull(TraceIds.parseTraceparent("00-00000000000000000000000000000000-b7ad6b7169203331-01"));
+        assertNull(TraceIds.parseTraceparent("00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01-extra"));
+        assertNull(TraceIds.parseTraceparent("ff-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01"));
+        assertNull(TraceIds.parseB3Headers("463ac35c9f6413ad", null, null, null, null));
+        assertNull(TraceIds.parseB3Headers("463ac35c9f6413ad", "a2fb4a1d1a96d3", null, "1", null));
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.tracing.filter;
+
+import com.example.tracing.TraceIds;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides at the start of a request whether it gets a span.
+ *
+ * <p>A sampling decision made upstream is always followed. Otherwise a request is sampled with
+ * the configured probability, decided from the trace id when there is one so that every service
+ * seeing the trace decides alike, and then only while its endpoint's token bucket has tokens
+ * left.
+ */
+final class TraceSampler {
+
+    // Endpoints beyond this share one bucket, so odd paths cannot grow the map without bound
+    static final int MAX_ENDPOINTS = 1024;
+    private static final String OTHER_ENDPOINTS = "*";
+
+    private final long threshold;
+    private final int defaultLimit;
+    private final Map<String, Integer> limits;
+    private final LongSupplier nanoTime;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * @param probability  the share of requests sampled, from 0 to 1
+     * @param defaultLimit sampled requests per second of endpoints not matching any prefix, 0 for no limit
+     * @param limits       sampled requests per second by path prefix
+     */
+    TraceSampler(double probability, int defaultLimit, Map<String, Integer> limits) {
+        this(probability, defaultLimit, limits, System::nanoTime);
+    }
+
+    TraceSampler(double probability, int defaultLimit, Map<String, Integer> limits, LongSupplier nanoTime) {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException("Sampling probability must be between 0 and 1: " + probability);
+        }
+        this.threshold = probability == 1 ? Long.MAX_VALUE : (long) (probability * Long.MAX_VALUE);
+        this.defaultLimit = defaultLimit;
+        this.limits = Map.copyOf(limits);
+        this.nanoTime = nanoTime;
+    }
+
+    static TraceSampler of(TracingProperties.Sampling sampling) {
+        return new TraceSampler(sampling.getProbability(), sampling.getRateLimit(), sampling.getRateLimits());
+    }
+
+    /**
+     * @param upstream the ids from the request headers, null if there were none
+     * @param path     the request path, naming the endpoint
+     * @return true if the request should get a span
+     */
+    boolean sample(TraceIds upstream, String path) {
+        if (upstream != null && upstream.getSampled() != TraceIds.SAMPLING_UNKNOWN) {
+            return upstream.getSampled() == TraceIds.SAMPLED;
+        }
+        if (threshold == 0) {
+            return false;
+        }
+        if (threshold != Long.MAX_VALUE) {
+            long id = upstream != null && upstream.hasIds() ? upstream.getTraceIdLow() : ThreadLocalRandom.current().nextLong();
+            if ((id & Long.MAX_VALUE) >= threshold) {
+                return false;
+            }
+        }
+        TokenBucket bucket = bucket(path);
+        return bucket == null || bucket.tryAcquire(nanoTime.getAsLong());
+    }
+
+    /**
+     * @return the bucket limiting the endpoint of the path, or null if it is not limited
+     */
+    TokenBucket bucket(String path) {
+        String endpoint = null;
+        int limit = defaultLimit;
+        for (Map.Entry<String, Integer> entry : limits.entrySet()) {
+            String prefix = entry.getKey();
+            if ((endpoint == null || prefix.length() > endpoint.length()) && path.startsWith(prefix)) {
+                endpoint = prefix;
+                limit = entry.getValue();
+            }
+        }
+        if (limit <= 0) {
+            return null;
+        }
+        if (endpoint == null) {
+            endpoint = endpoint(path);
+        }
+        TokenBucket bucket = buckets.get(endpoint);
+        if (bucket == null) {
+            int rate = limit;
+            if (buckets.size() >= MAX_ENDPOINTS) {
+                endpoint = OTHER_ENDPOINTS;
+            }
+            bucket = buckets.computeIfAbsent(endpoint, name -> new TokenBucket(rate));
+        }
+        return bucket;
+    }
+
+    /**
+     * @return the path with segments holding a digit, usually ids, replaced by {@code *}
+     */
+    static String endpoint(String path) {
+        StringBuilder endpoint = null;
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (hasDigit(path, start, i)) {
+                    if (endpoint == null) {
+                        endpoint = new StringBuilder(path.length()).append(path, 0, start);
+                    }
+                    endpoint.append('*');
+                } else if (endpoint != null) {
+                    endpoint.append(path, start, i);
+                }
+                if (endpoint != null && i < path.length()) {
+                    endpoint.append('/');
+                }
+                start = i + 1;
+            }
+        }
+        return endpoint != null ? endpoint.toString() : path;
+    }
+
+    /**
+     * @return {@code hash} continued over the characters of {@code endpoint(path)} the way
+     * {@link String#hashCode} does, without building it
+     */
+    static int endpointHash(int hash, String path) {
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (hasDigit(path, start, i)) {
+                    hash = 31 * hash + '*';
+                } else {
+                    for (int j = start; j < i; j++) {
+                        hash = 31 * hash + path.charAt(j);
+                    }
+                }
+                if (i < path.length()) {
+                    hash = 31 * hash + '/';
+                }
+                start = i + 1;
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * @return true if {@code s} from {@code offset} to its end is {@code endpoint(path)}
+     */
+    static boolean endpointEquals(String s, int offset, String path) {
+        int k = offset;
+        int start = 0;
+        for (int i = 0; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                if (hasDigit(path, start, i)) {
+                    if (k >= s.length() || s.charAt(k++) != '*') {
+                        return false;
+                    }
+                } else {
+                    if (!s.regionMatches(k, path, start, i - start)) {
+                        return false;
+                    }
+                    k += i - start;
+                }
+                if (i < path.length() && (k >= s.length() || s.charAt(k++) != '/')) {
+                    return false;
+                }
+                start = i + 1;
+            }
+        }
+        return k == s.length();
+    }
+
+    private static boolean hasDigit(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A token bucket holding one second of tokens, kept as the time its next token is free so
+     * that taking one is a single compare-and-set.
+     */
+    static final class TokenBucket {
+
+        private final long interval;
+        private final long tolerance;
+        private final AtomicLong nextFree = new AtomicLong(Long.MIN_VALUE);
+
+        TokenBucket(int perSecond) {
+            this.interval = 1_000_000_000L / perSecond;
+            this.tolerance = interval * (perSecond - 1);
+        }
+
+        boolean tryAcquire(long now) {
+            while (true) {
+                long next = nextFree.get();
+                long start = Math.max(next, now);
+                if (start - now > tolerance) {
+                    return false;
+                }
+                if (nextFree.compareAndSet(next, start + interval)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.tracing.filter;
+
+import com.example.tracing.TraceIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceSamplerTests {
+
+    private final AtomicLong now = new AtomicLong(-5_000_000_000L);
+
+    @Test
+    void testFollowsUpstreamDecision() {
+        TraceSampler never = new TraceSampler(0, 0, Map.of(), now::get);
+        TraceSampler always = new TraceSampler(1, 0, Map.of(), now::get);
+
+        assertTrue(never.sample(TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1-1"), "/"));
+        assertTrue(never.sample(TraceIds.parseB3("d"), "/"));
+        assertFalse(always.sample(TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1-0"), "/"));
+        assertFalse(never.sample(TraceIds.parseB3("80f198ee56343ba8-e457b5a2e4d86bd1"), "/"));
+        assertTrue(always.sample(null, "/"));
+    }
+
+    @Test
+    void testProbabilityDecidesByTraceId() {
+        TraceSampler sampler = new TraceSampler(0.25, 0, Map.of(), now::get);
+        TraceIds low = TraceIds.parseB3("0000000000000001-e457b5a2e4d86bd1");
+        TraceIds high = TraceIds.parseB3("7fffffffffffffff-e457b5a2e4d86bd1");
+        for (int i = 0; i < 10; i++) {
+            assertTrue(sampler.sample(low, "/"));
+            assertFalse(sampler.sample(high, "/"));
+        }
+
+        int sampled = 0;
+        for (int i = 0; i < 100_000; i++) {
+            sampled += sampler.sample(null, "/") ? 1 : 0;
+        }
+        assertTrue(sampled > 24_000 && sampled < 26_000, "sampled " + sampled);
+    }
+
+    @Test
+    void testRateLimitsEachEndpoint() {
+        TraceSampler sampler = new TraceSampler(1, 2, Map.of("/health", 1), now::get);
+
+        assertTrue(sampler.sample(null, "/api/orders/1"));
+        assertTrue(sampler.sample(null, "/api/orders/2"));
+        assertFalse(sampler.sample(null, "/api/orders/3"));
+        // Another endpoint has its own bucket
+        assertTrue(sampler.sample(null, "/api/customers"));
+        assertTrue(sampler.sample(null, "/health/live"));
+        assertFalse(sampler.sample(null, "/health/ready"));
+
+        now.addAndGet(500_000_000L);
+        assertTrue(sampler.sample(null, "/api/orders/4"));
+        assertFalse(sampler.sample(null, "/api/orders/5"));
+        assertFalse(sampler.sample(null, "/health"));
+        now.addAndGet(500_000_000L);
+        assertTrue(sampler.sample(null, "/health"));
+    }
+
+    @Test
+    void testBoundsEndpoints() {
+        TraceSampler sampler = new TraceSampler(1, 1, Map.of(), now::get);
+        for (int i = 0; i < TraceSampler.MAX_ENDPOINTS; i++) {
+            sampler.sample(null, "/page-" + (char) ('a' + i % 26) + "/" + (char) ('a' + i / 26 % 26) + (char) ('a' + i / 676));
+        }
+        assertSame(sampler.bucket("/other"), sampler.bucket("/another"));
+    }
+
+    @Test
+    void testEndpointReplacesIds() {
+        assertEquals("/api/orders/*", TraceSampler.endpoint("/api/orders/42"));
+        assertEquals("/api/*/items/*/", TraceSampler.endpoint("/api/7d1e5b2c/items/3/"));
+        assertEquals("/api/orders", TraceSampler.endpoint("/api/orders"));
+    }
+
+    @Test
+    void testMatchesEndpointWithoutBuildingIt() {
+        for (String path : new String[]{"/api/orders/42", "/api/7d1e5b2c/items/3/", "/api/orders", "/", ""}) {
+            String route = "GET " + TraceSampler.endpoint(path);
+            assertEquals(route.hashCode(), TraceSampler.endpointHash("GET ".hashCode(), path));
+            assertTrue(TraceSampler.endpointEquals(route, 4, path), path);
+        }
+        assertFalse(TraceSampler.endpointEquals("GET /api/orders/*", 4, "/api/orders"));
+        assertFalse(TraceSampler.endpointEquals("GET /api/orders", 4, "/api/orders/42"));
+        assertFalse(TraceSampler.endpointEquals("GET /api/order/*", 4, "/api/orders/42"));
+    }
+}
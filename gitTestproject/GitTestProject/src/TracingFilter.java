@@ -1,25 +1,62 @@
 package com.example.tracing.filter;
 
+import com.example.tracing.TraceContext;
+import com.example.tracing.TraceIds;
+import io.micrometer.tracing.CurrentTraceContext;
 import io.micrometer.tracing.Span;
 import io.micrometer.tracing.Tracer;
-import io.micrometer.tracing.TraceContext;
-import io.micrometer.tracing.propagation.Propagator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.stereotype.Component;
 
 import javax.servlet.*;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
-
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts one server span per request, continuing the trace of the incoming B3 or W3C headers if
+ * there are any, and binds its ids to {@link TraceContext} and the MDC for the duration of the
+ * request. The headers are parsed once, by {@link TraceIds}, and handed to the tracer as the
+ * span's parent rather than extracted again by a propagator.
+ *
+ * <p>Only requests picked by the {@link TraceSampler} get a span up front. The others get ids
+ * made here, so their logs still correlate, and no span at all unless they turn out slow or
+ * fail: then a span with the request's timings is recorded after the fact, tagged with the ids
+ * its logs carry. While they run, a context with those ids marked as not sampled is current, so
+ * spans started and requests sent on their behalf stay in the same trace and pass the decision
+ * on. Requests the caller marked as not sampled never get one. The sampling is done here, so the
+ * tracer itself should sample everything it is given.
+ *
+ * <p>Every request, sampled or not, is also recorded in the {@link SpanBuffer} when it is
+ * enabled.
+ */
 @Component
 public class TracingFilter implements Filter {
 
+    static final String TRACE_ID_KEY = "b3-traceid";
+    static final String SPAN_ID_KEY = "b3-spanid";
+    static final String LOG_TRACE_ID_TAG = "log.trace_id";
+    static final String LOG_SPAN_ID_TAG = "log.span_id";
+    static final String RETAINED_TAG = "sampling.retained";
+
+    private static final Logger logger = LoggerFactory.getLogger(TracingFilter.class);
+
     private final Tracer tracer;
-    private final Propagator propagator;
+    private final TraceSampler sampler;
+    private final boolean tailEnabled;
+    private final long slowNanos;
+    private final SpanBuffer buffer;
 
-    public TracingFilter(Tracer tracer, Propagator propagator) {
+    public TracingFilter(Tracer tracer, TracingProperties properties, SpanBuffer buffer) {
         this.tracer = tracer;
-        this.propagator = propagator;
+        this.buffer = buffer;
+        this.sampler = TraceSampler.of(properties.getSampling());
+        this.tailEnabled = properties.getSampling().getTail().isEnabled();
+        this.slowNanos = properties.getSampling().getTail().getSlowThreshold().toNanos();
     }
 
     @Override
@@ -27,49 +64,158 @@ public class TracingFilter implements Filter {
             throws IOException, ServletException {
 
         HttpServletRequest httpRequest = (HttpServletRequest) request;
+        TraceIds upstream = TraceIds.extract(httpRequest::getHeader);
 
-        // Step 1: Extract traceId and spanId from incoming request headers
-        String receivedTraceId = httpRequest.getHeader("x-b3-traceid");
-        String receivedSpanId = httpRequest.getHeader("x-b3-spanid");
-
-        // Step 2: Extract Micrometer's default trace information
-        Propagator.Getter<HttpServletRequest> getter = HttpServletRequest::getHeader;
-        Span extractedSpan = propagator.extract(httpRequest, getter).start();
-
-        String extractedTraceId = extractedSpan.context().traceId();
-        String extractedSpanId = extractedSpan.context().spanId();
+        if (sampler.sample(upstream, httpRequest.getRequestURI())) {
+            traced(upstream, httpRequest, response, chain);
+        } else {
+            untraced(upstream, httpRequest, response, chain);
+        }
+    }
 
-        System.out.println("Extracted traceId from Micrometer: " + extractedTraceId);
-        System.out.println("Received traceId from upstream: " + receivedTraceId);
+    private void traced(TraceIds upstream, HttpServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
 
-        // Step 3: Use received traceId if available, otherwise use extracted one
-        String finalTraceId = (receivedTraceId != null) ? receivedTraceId : extractedTraceId;
+        Span span = spanBuilder(upstream)
+                .name("incoming-request")
+                .kind(Span.Kind.SERVER)
+                .start();
+        String traceId = span.context().traceId();
+        String spanId = span.context().spanId();
 
-        // Step 4: Decide whether to generate a new spanId
-        boolean generateNewSpanId = (receivedSpanId == null);
-        String finalSpanId = generateNewSpanId ? tracer.nextSpan().context().spanId() : receivedSpanId;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Trace {} span {} (parent {}) for {} {}", traceId, spanId, span.context().parentId(),
+                    request.getMethod(), request.getRequestURI());
+        }
+        long startMicros = buffer.isEnabled() ? TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) : 0;
+        long start = buffer.isEnabled() ? System.nanoTime() : 0;
+        Throwable failure = null;
+
+        try (Tracer.SpanInScope ignored = tracer.withSpan(span)) {
+            MDC.put(TRACE_ID_KEY, traceId);
+            MDC.put(SPAN_ID_KEY, spanId);
+
+            TraceContext.runWith(traceId, spanId, () -> chain.doFilter(request, response));
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            failure = e;
+            span.error(e);
+            throw e;
+        } catch (Exception e) {
+            // Not thrown by the chain, only the lambda's inferred type is wider
+            failure = e;
+            span.error(e);
+            throw new ServletException(e);
+        } finally {
+            // Only our own keys, other filters may still need theirs
+            MDC.remove(TRACE_ID_KEY);
+            MDC.remove(SPAN_ID_KEY);
+            span.end();
+            if (buffer.isEnabled()) {
+                String parentId = span.context().parentId();
+                record(request, response, TraceIds.highBits(traceId), TraceIds.lowBits(traceId),
+                        TraceIds.lowBits(spanId), parentId != null ? TraceIds.lowBits(parentId) : 0,
+                        startMicros, System.nanoTime() - start, failure, SpanBuffer.SAMPLED);
+            }
+        }
+    }
 
-        System.out.println("Final traceId: " + finalTraceId);
-        System.out.println("Final spanId: " + finalSpanId + (generateNewSpanId ? " (New span generated)" : " (Using existing span)"));
+    private void untraced(TraceIds upstream, HttpServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
 
-        // Step 5: Create a new TraceContext with the final traceId and spanId
-        TraceContext traceContext = extractedSpan.context().toBuilder()
-                .traceId(finalTraceId)
-                .spanId(finalSpanId)
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        boolean continued = upstream != null && upstream.hasIds();
+        long traceIdHigh = continued ? upstream.getTraceIdHigh() : random.nextLong();
+        long traceIdLow = continued ? upstream.getTraceIdLow() : random.nextLong();
+        long spanIdBits = random.nextLong();
+        String traceId = continued ? upstream.traceIdString() : TraceIds.toHex(traceIdHigh) + TraceIds.toHex(traceIdLow);
+        String spanId = TraceIds.toHex(spanIdBits);
+        boolean retainable = tailEnabled && (upstream == null || upstream.getSampled() != TraceIds.NOT_SAMPLED);
+        boolean timed = retainable || buffer.isEnabled();
+        long startMicros = timed ? TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis()) : 0;
+        long start = timed ? System.nanoTime() : 0;
+        Throwable failure = null;
+        io.micrometer.tracing.TraceContext context = tracer.traceContextBuilder()
+                .traceId(traceId)
+                .spanId(spanId)
+                .parentId(continued ? upstream.spanIdString() : null)
+                .sampled(false)
                 .build();
 
-        // Step 6: Create a new span with the correct TraceContext
-        Span finalSpan = tracer.nextSpan().name("incoming-request").setTraceContext(traceContext).start();
+        try (CurrentTraceContext.Scope ignored = tracer.currentTraceContext().newScope(context)) {
+            MDC.put(TRACE_ID_KEY, traceId);
+            MDC.put(SPAN_ID_KEY, spanId);
+
+            TraceContext.runWith(traceId, spanId, () -> chain.doFilter(request, response));
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            failure = e;
+            throw e;
+        } catch (Exception e) {
+            failure = e;
+            throw new ServletException(e);
+        } finally {
+            MDC.remove(TRACE_ID_KEY);
+            MDC.remove(SPAN_ID_KEY);
+            if (timed) {
+                long duration = System.nanoTime() - start;
+                String reason = !retainable ? null
+                        : failure != null || ((HttpServletResponse) response).getStatus() >= 500 ? "error"
+                        : duration >= slowNanos ? "slow"
+                        : null;
+                if (reason != null) {
+                    retain(upstream, traceId, spanId, reason, failure, startMicros, duration);
+                }
+                if (buffer.isEnabled()) {
+                    record(request, response, traceIdHigh, traceIdLow, spanIdBits,
+                            continued ? upstream.getSpanId() : 0, startMicros, duration, failure,
+                            reason != null ? SpanBuffer.RETAINED : 0);
+                }
+            }
+        }
+    }
 
-        // Step 7: Store the correct traceId and spanId in MDC for logging
-        try (Tracer.SpanInScope ws = tracer.withSpan(finalSpan)) {
-            MDC.put("b3-traceid", finalTraceId);
-            MDC.put("b3-spanid", finalSpanId);
+    private void record(HttpServletRequest request, ServletResponse response, long traceIdHigh, long traceIdLow,
+                        long spanId, long parentId, long startMicros, long durationNanos, Throwable failure,
+                        int flags) {
+        int status = ((HttpServletResponse) response).getStatus();
+        if (failure != null || status >= 500) {
+            flags |= SpanBuffer.ERROR;
+        }
+        buffer.record(traceIdHigh, traceIdLow, spanId, parentId, request.getMethod(), request.getRequestURI(),
+                startMicros, durationNanos, status, flags);
+    }
 
-            chain.doFilter(request, response);
-        } finally {
-            MDC.clear();
-            finalSpan.end();
+    // Records the span an unsampled request would have had
+    private void retain(TraceIds upstream, String logTraceId, String logSpanId, String reason, Throwable failure,
+                        long startMicros, long durationNanos) {
+        Span.Builder builder = spanBuilder(upstream)
+                .name("incoming-request")
+                .kind(Span.Kind.SERVER)
+                .tag(LOG_SPAN_ID_TAG, logSpanId)
+                .tag(RETAINED_TAG, reason)
+                .startTimestamp(startMicros, TimeUnit.MICROSECONDS);
+        if (upstream == null || !upstream.hasIds()) {
+            // The tracer picks its own trace id for a new trace
+            builder.tag(LOG_TRACE_ID_TAG, logTraceId);
+        }
+        Span span = builder.start();
+        if (failure != null) {
+            span.error(failure);
+        }
+        span.end(startMicros + TimeUnit.NANOSECONDS.toMicros(durationNanos), TimeUnit.MICROSECONDS);
+    }
+
+    // Continues the upstream trace, or starts a new one without ids in the headers
+    private Span.Builder spanBuilder(TraceIds upstream) {
+        Span.Builder builder = tracer.spanBuilder();
+        if (upstream == null || !upstream.hasIds()) {
+            return builder.setNoParent();
         }
+        byte sampled = upstream.getSampled();
+        return builder.setParent(tracer.traceContextBuilder()
+                .traceId(upstream.traceIdString())
+                .spanId(upstream.spanIdString())
+                .parentId(upstream.parentIdString())
+                .sampled(sampled == TraceIds.SAMPLING_UNKNOWN ? null : sampled == TraceIds.SAMPLED)
+                .build());
     }
 }
@@ -0,0 +1,163 @@
+package com.example.tracing.filter;
+
+import brave.Tracing;
+import brave.sampler.Sampler;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveBaggageManager;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BravePropagator;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import io.micrometer.tracing.propagation.Propagator;
+import org.openjdk.jmh.annotations.*;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of {@link TracingFilter} against the filter it replaced, with a Brave
+ * tracer that samples everything and reports nowhere, so only the filter's own work is measured.
+ * Runs with several threads because the old filter's {@code System.out} calls contend on the
+ * stream's lock; stdout goes to a null stream so the benchmark output stays readable. Run with
+ * {@code -prof gc} to compare allocation per request. {@code unsampled} is a request the sampler
+ * passes over, which only gets ids for the MDC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TracingFilterBenchmark {
+
+    private static final FilterChain CHAIN = (request, response) -> { };
+
+    @Param({"true", "false"})
+    public boolean upstreamHeaders;
+
+    private Tracing tracing;
+    private PrintStream stdout;
+    private Legacy legacy;
+    private TracingFilter filter;
+    private TracingFilter unsampledFilter;
+
+    @State(Scope.Thread)
+    public static class Exchange {
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+
+        @Setup
+        public void setUp(TracingFilterBenchmark benchmark) {
+            request = new MockHttpServletRequest("GET", "/api/orders/42");
+            if (benchmark.upstreamHeaders) {
+                request.addHeader("X-B3-TraceId", "463ac35c9f6413ad48485a3953bb6124");
+                request.addHeader("X-B3-SpanId", "a2fb4a1d1a96d312");
+                // No sampling flag, so the filters' own sampling decides
+            }
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        tracing = Tracing.newBuilder().sampler(Sampler.ALWAYS_SAMPLE).build();
+        Tracer tracer = new BraveTracer(tracing.tracer(),
+                new BraveCurrentTraceContext(tracing.currentTraceContext()), new BraveBaggageManager());
+        Propagator propagator = new BravePropagator(tracing);
+        legacy = new Legacy(tracer, propagator);
+        TracingProperties properties = new TracingProperties();
+        filter = new TracingFilter(tracer, properties, new SpanBuffer(properties));
+        TracingProperties unsampled = new TracingProperties();
+        unsampled.getSampling().setProbability(0);
+        unsampledFilter = new TracingFilter(tracer, unsampled, new SpanBuffer(unsampled));
+
+        stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(stdout);
+        tracing.close();
+    }
+
+    @Benchmark
+    public void legacy(Exchange exchange) throws Exception {
+        legacy.doFilter(exchange.request, exchange.response, CHAIN);
+    }
+
+    @Benchmark
+    public void singleSpan(Exchange exchange) throws Exception {
+        filter.doFilter(exchange.request, exchange.response, CHAIN);
+    }
+
+    @Benchmark
+    public void unsampled(Exchange exchange) throws Exception {
+        unsampledFilter.doFilter(exchange.request, exchange.response, CHAIN);
+    }
+
+    // TracingFilter before the redesign
+    private static final class Legacy {
+
+        private final Tracer tracer;
+        private final Propagator propagator;
+
+        Legacy(Tracer tracer, Propagator propagator) {
+            this.tracer = tracer;
+            this.propagator = propagator;
+        }
+
+        void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            HttpServletRequest httpRequest = (HttpServletRequest) request;
+
+            String receivedTraceId = httpRequest.getHeader("x-b3-traceid");
+            String receivedSpanId = httpRequest.getHeader("x-b3-spanid");
+
+            Propagator.Getter<HttpServletRequest> getter = HttpServletRequest::getHeader;
+            Span extractedSpan = propagator.extract(httpRequest, getter).start();
+
+            String extractedTraceId = extractedSpan.context().traceId();
+
+            System.out.println("Extracted traceId from Micrometer: " + extractedTraceId);
+            System.out.println("Received traceId from upstream: " + receivedTraceId);
+
+            String finalTraceId = (receivedTraceId != null) ? receivedTraceId : extractedTraceId;
+
+            boolean generateNewSpanId = (receivedSpanId == null);
+            String finalSpanId = generateNewSpanId ? tracer.nextSpan().context().spanId() : receivedSpanId;
+
+            System.out.println("Final traceId: " + finalTraceId);
+            System.out.println("Final spanId: " + finalSpanId + (generateNewSpanId ? " (New span generated)" : " (Using existing span)"));
+
+            TraceContext traceContext = extractedSpan.context().toBuilder()
+                    .traceId(finalTraceId)
+                    .spanId(finalSpanId)
+                    .build();
+
+            Span finalSpan = tracer.nextSpan().name("incoming-request").setTraceContext(traceContext).start();
+
+            try (Tracer.SpanInScope ws = tracer.withSpan(finalSpan)) {
+                MDC.put("b3-traceid", finalTraceId);
+                MDC.put("b3-spanid", finalSpanId);
+
+                chain.doFilter(request, response);
+            } finally {
+                MDC.clear();
+                finalSpan.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.tracing.filter;
+
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import brave.sampler.Sampler;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveBaggageManager;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TracingFilterTests {
+
+    private final List<MutableSpan> reported = new CopyOnWriteArrayList<>();
+    private final Tracing tracing = Tracing.newBuilder()
+            .sampler(Sampler.ALWAYS_SAMPLE)
+            .addSpanHandler(new SpanHandler() {
+                @Override
+                public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                    if (cause == Cause.FINISHED) {
+                        reported.add(span);
+                    }
+                    return true;
+                }
+            })
+            .build();
+    private final Tracer tracer = new BraveTracer(tracing.tracer(),
+            new BraveCurrentTraceContext(tracing.currentTraceContext()), new BraveBaggageManager());
+
+    @AfterEach
+    void tearDown() {
+        tracing.close();
+    }
+
+    private TracingFilter filter(double probability) {
+        TracingProperties properties = new TracingProperties();
+        properties.getSampling().setProbability(probability);
+        properties.getSampling().getTail().setSlowThreshold(Duration.ofMillis(50));
+        return new TracingFilter(tracer, properties, new SpanBuffer(properties));
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/orders/42");
+    }
+
+    @Test
+    void testEndsOneSpanPerRequest() throws Exception {
+        TracingFilter filter = filter(1);
+        MockHttpServletRequest request = request();
+        request.addHeader("b3", "463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            assertEquals("463ac35c9f6413ad48485a3953bb6124", MDC.get(TracingFilter.TRACE_ID_KEY));
+            assertEquals(MDC.get(TracingFilter.SPAN_ID_KEY), tracer.currentSpan().context().spanId());
+        });
+        FilterChain failing = (req, res) -> {
+            throw new IllegalStateException("Handler failed");
+        };
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request(), new MockHttpServletResponse(), failing));
+
+        assertEquals(2, reported.size());
+        assertEquals("463ac35c9f6413ad48485a3953bb6124", reported.get(0).traceId());
+        assertEquals("a2fb4a1d1a96d312", reported.get(0).parentId());
+        assertNotNull(reported.get(1).error());
+        assertNull(tracer.currentSpan());
+        assertNull(MDC.get(TracingFilter.TRACE_ID_KEY));
+    }
+
+    @Test
+    void testUnsampledRequestKeepsChildrenInItsTrace() throws Exception {
+        TracingFilter filter = filter(1);
+        MockHttpServletRequest request = request();
+        request.addHeader("b3", "463ac35c9f6413ad48485a3953bb6124-a2fb4a1d1a96d312-0");
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> {
+            Span child = tracer.nextSpan().name("outgoing").start();
+            assertEquals("463ac35c9f6413ad48485a3953bb6124", child.context().traceId());
+            assertEquals(MDC.get(TracingFilter.SPAN_ID_KEY), child.context().parentId());
+            assertFalse(child.context().sampled());
+            child.end();
+        });
+        // Not retained even when slow or failed, the caller decided
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> {
+                    throw new IllegalStateException("Handler failed");
+                }));
+
+        assertEquals(0, reported.size());
+        assertNull(tracer.currentTraceContext().context());
+    }
+
+    @Test
+    void testRetainsSlowAndFailedUnsampledRequests() throws Exception {
+        TracingFilter filter = filter(0);
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> { });
+        assertEquals(0, reported.size());
+
+        filter.doFilter(request(), new MockHttpServletResponse(), (req, res) -> {
+            try {
+                Thread.sleep(60);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        String[] logTraceId = new String[1];
+        assertThrows(IllegalStateException.class, () -> filter.doFilter(request(), new MockHttpServletResponse(),
+                (req, res) -> {
+                    logTraceId[0] = MDC.get(TracingFilter.TRACE_ID_KEY);
+                    throw new IllegalStateException("Handler failed");
+                }));
+
+        assertEquals(2, reported.size());
+        assertEquals("slow", reported.get(0).tag(TracingFilter.RETAINED_TAG));
+        assertTrue(reported.get(0).finishTimestamp() - reported.get(0).startTimestamp() >= 50_000);
+        MutableSpan failed = reported.get(1);
+        assertEquals("error", failed.tag(TracingFilter.RETAINED_TAG));
+        assertEquals(logTraceId[0], failed.tag(TracingFilter.LOG_TRACE_ID_TAG));
+        assertNotNull(failed.error());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.tracing;
+
+import org.slf4j.MDC;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Binds the upstream trace ids for handlers reached without {@code TracingFilter}, which
+ * otherwise has already bound them for the whole request.
+ */
+@Component
+public class TracingInterceptor implements HandlerInterceptor {
+
+    static final String TRACE_ID_KEY = "b3-traceid";
+    static final String SPAN_ID_KEY = "b3-spanid";
+
+    private static final String BOUND = TracingInterceptor.class.getName() + ".BOUND";
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (TraceContext.getTraceId() != null) {
+            return true;
+        }
+        TraceIds ids = TraceIds.extract(request::getHeader);
+        if (ids != null && ids.hasIds()) {
+            String traceId = ids.traceIdString();
+            String spanId = ids.spanIdString();
+            TraceContext.setTraceId(traceId);
+            TraceContext.setSpanId(spanId);
+            MDC.put(TRACE_ID_KEY, traceId);
+            MDC.put(SPAN_ID_KEY, spanId);
+            request.setAttribute(BOUND, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler, ModelAndView modelAndView) throws Exception {
+        // Post controller logic
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
+        // Leave ids bound by the filter to the filter
+        if (request.getAttribute(BOUND) != null) {
+            TraceContext.clear();
+            MDC.remove(TRACE_ID_KEY);
+            MDC.remove(SPAN_ID_KEY);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.tracing.filter;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings of {@link TracingFilter}, bound from {@code tracing.*}.
+ */
+@Component
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    private final Sampling sampling = new Sampling();
+    private final Buffer buffer = new Buffer();
+
+    public Sampling getSampling() {
+        return sampling;
+    }
+
+    public Buffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Which requests get a span when the caller has not decided. A probability of 1 traces
+     * every request and 0 none. Rate limits are sampled spans per second for each endpoint, 0 for
+     * no limit, keyed by a path prefix such as {@code /api/orders}; the longest matching prefix
+     * wins, and other endpoints each get {@code rate-limit}.
+     */
+    public static class Sampling {
+
+        private double probability = 1.0;
+        private int rateLimit = 0;
+        private Map<String, Integer> rateLimits = new HashMap<>();
+        private final Tail tail = new Tail();
+
+        public double getProbability() {
+            return probability;
+        }
+
+        public void setProbability(double probability) {
+            this.probability = probability;
+        }
+
+        public int getRateLimit() {
+            return rateLimit;
+        }
+
+        public void setRateLimit(int rateLimit) {
+            this.rateLimit = rateLimit;
+        }
+
+        public Map<String, Integer> getRateLimits() {
+            return rateLimits;
+        }
+
+        public void setRateLimits(Map<String, Integer> rateLimits) {
+            this.rateLimits = rateLimits;
+        }
+
+        public Tail getTail() {
+            return tail;
+        }
+    }
+
+    /**
+     * Keeping a span for requests that were not sampled but turned out slow or failed.
+     */
+    public static class Tail {
+
+        private boolean enabled = true;
+        private Duration slowThreshold = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getSlowThreshold() {
+            return slowThreshold;
+        }
+
+        public void setSlowThreshold(Duration slowThreshold) {
+            this.slowThreshold = slowThreshold;
+        }
+    }
+
+    /**
+     * The in-process buffer of recent requests, see {@link SpanBuffer}. With a dump path it is
+     * written there on shutdown, and on request to the endpoint. The endpoint, under
+     * {@code /internal/traces}, is off unless enabled.
+     */
+    public static class Buffer {
+
+        private boolean enabled = true;
+        private int capacity = 8192;
+        private Path dumpPath;
+        private boolean endpoint = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public Path getDumpPath() {
+            return dumpPath;
+        }
+
+        public void setDumpPath(Path dumpPath) {
+            this.dumpPath = dumpPath;
+        }
+
+        public boolean isEndpoint() {
+            return endpoint;
+        }
+
+        public void setEndpoint(boolean endpoint) {
+            this.endpoint = endpoint;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the span length from which {@code VectorCase} beats the one-character-at-a-time case
+ * mappings in {@link FormatterEngine}. The {@code scalar} benchmarks fork without the vector
+ * module, so the engine never vectorizes; the {@code vector} ones call VectorCase directly at
+ * every length, including the copy in and out of the character buffer the engine pays for.
+ * {@code FormatterEngine.BULK_CASE_THRESHOLD} is set from the crossover.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Thread)
+public class VectorCaseBenchmark {
+
+    // Legal entity name text, letters with a special character every few words
+    private static final String TEXT = "ALPHA-OMEGA&DELTA/GAMMA(HOLDINGS)MCDONALD'SHEA+NORTHERN.MAPLE,";
+
+    @Param({"8", "16", "24", "32", "48", "64", "128", "256"})
+    public int length;
+
+    private String input;
+    private final StringBuilder out = new StringBuilder(512);
+
+    @State(Scope.Thread)
+    public static class Vector {
+
+        FormatterEngine.BulkCase bulkCase;
+        final char[] chars = new char[512];
+
+        @Setup
+        public void setUp() throws ReflectiveOperationException {
+            // Loaded by name so the scalar forks never touch the vector module
+            bulkCase = (FormatterEngine.BulkCase) Class.forName(VectorCaseBenchmark.class.getPackageName() + ".VectorCase")
+                    .getDeclaredConstructor().newInstance();
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        input = TEXT.repeat(256 / TEXT.length() + 1).substring(0, length);
+    }
+
+    @Benchmark
+    @Fork(1)
+    public StringBuilder scalarCapitalizeLetters() {
+        out.setLength(0);
+        FormatterEngine.capitalizeLetters(input, 0, length, FormatterRules.LEGAL_ENTITY_SPECIAL_CHARACTER_TABLE, out);
+        return out;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public StringBuilder vectorCapitalizeLetters(Vector vector) {
+        out.setLength(0);
+        input.getChars(0, length, vector.chars, 0);
+        vector.bulkCase.capitalizeLetters(vector.chars, length, FormatterRules.LEGAL_ENTITY_SPECIAL_CHARACTER_TABLE);
+        return out.append(vector.chars, 0, length);
+    }
+
+    @Benchmark
+    @Fork(1)
+    public StringBuilder scalarLowerCase() {
+        out.setLength(0);
+        FormatterEngine.appendLowerCase(input, 0, length, out);
+        return out;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+    public StringBuilder vectorLowerCase(Vector vector) {
+        out.setLength(0);
+        input.getChars(0, length, vector.chars, 0);
+        vector.bulkCase.toLowerCase(vector.chars, length);
+        return out.append(vector.chars, 0, length);
+    }
+}
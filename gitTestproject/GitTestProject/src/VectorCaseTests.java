@@ -0,0 +1,84 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the long-span paths of the formatters. They go through {@code VectorCase} when the tests
+ * run with {@code src-vector} built and {@code --add-modules jdk.incubator.vector}, and stay
+ * scalar otherwise; the output must be the same either way.
+ */
+class VectorCaseTests {
+
+    @Test
+    void testLongLegalEntityName() {
+        assertEquals("Alpha-Omega&Delta/Gamma(Holdings)Mcdonald'Shea+Northern.Maple,Acme LTD.",
+                LegalEntityNameFormatter.formatLegalEntityName(
+                        "ALPHA-OMEGA&DELTA/GAMMA(HOLDINGS)MCDONALD'SHEA+NORTHERN.MAPLE,ACME LTD."));
+    }
+
+    @Test
+    void testLongNameWithDigitsAndAccents() {
+        assertEquals("Jean-Paul-Émile-François-Müller-Peña-Nuñez-Côté-Lévesque",
+                ClientNameFormatter.formatLastName("JEAN-PAUL-ÉMILE-FRANÇOIS-MÜLLER-PEÑA-NUÑEZ-CÔTÉ-LÉVESQUE"));
+        // A digit keeps the pending capitalization, so the b after -9 is still capitalized
+        assertEquals("Abcdefghijklmnopqrstuvwxyz-9Bcdefghijklmnopqrstuvwxyz",
+                ClientNameFormatter.formatLastName("ABCDEFGHIJKLMNOPQRSTUVWXYZ-9BCDEFGHIJKLMNOPQRSTUVWXYZ"));
+    }
+
+    @Test
+    void testLongCityName() {
+        assertEquals("Llanfairpwllgwyngyllgogerychwyrndrobwllllantysiliogogogoch",
+                StringFormatter.formatCityName("LLANFAIRPWLLGWYNGYLLGOGERYCHWYRNDROBWLLLLANTYSILIOGOGOGOCH"));
+    }
+
+    @Test
+    void testMatchesScalarRules() {
+        Random random = new Random(11);
+        String alphabet = "abcXYZq'-/+&().,!09 _@éÉıΣß";
+        for (int i = 0; i < 2_000; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = random.nextInt(200);
+            for (int j = 0; j < length; j++) {
+                word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+
+            StringBuilder actual = new StringBuilder();
+            FormatterEngine.capitalizeLetters(word, 0, length, FormatterRules.NAME_SPECIAL_CHARACTER_TABLE, actual);
+            assertEquals(capitalizeLetters(word), actual.toString());
+        }
+    }
+
+    @Test
+    void testSpanLongerThanKeptBuffer() {
+        StringBuilder word = new StringBuilder();
+        while (word.length() < 20_000) {
+            word.append("MCDONALD-O'SHEA ");
+        }
+        for (int length : new int[]{20_000, 100, 9_000}) {
+            StringBuilder actual = new StringBuilder();
+            FormatterEngine.capitalizeLetters(word, 0, length, FormatterRules.NAME_SPECIAL_CHARACTER_TABLE, actual);
+            assertEquals(capitalizeLetters(word.subSequence(0, length)), actual.toString());
+        }
+    }
+
+    // The capitalization rules one character at a time
+    private static String capitalizeLetters(CharSequence word) {
+        StringBuilder out = new StringBuilder();
+        boolean capitalizeNext = true;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isLetter(c)) {
+                out.append(capitalizeNext ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                capitalizeNext = false;
+            } else {
+                out.append(c);
+                capitalizeNext |= FormatterRules.NAME_SPECIAL_CHARACTER_TABLE.contains(c);
+            }
+        }
+        return out.toString();
+    }
+}